@@ -0,0 +1,308 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+public class BatchRunner {
+
+	/*
+	 * Runs an InfiniteGameOfLife without any display, for servers and scripts.
+	 *
+	 * Loads a named pattern (see Patterns) or a seeded random soup, runs it for a number
+	 * of generations or until a stop condition holds, and prints a stats line every few
+	 * seconds: generations/sec, cells looked at per second (LifeBoard.getActiveCells()),
+	 * live population, bounding box and used heap. At the end it prints a summary of
+	 * key=value lines that scripts can grep.
+	 *
+	 *     java -Djava.awt.headless=true BatchRunner [options]
+	 *
+	 *     --pattern NAME        start from a named pattern (rpentomino, acorn, glider, diehard, gosper)
+	 *     --restore FILE        start from a SnapshotFile instead, carrying on from its generation
+	 *     --soup SIDE           start from a SIDE x SIDE random soup instead (default 256)
+	 *     --density D           soup density (default 0.5)
+	 *     --seed S              soup seed (default 1)
+	 *     --generations N       stop after N generations (default 1000)
+	 *     --stop extinct|stable|cycle
+	 *                           also stop once everything died, once the population hasn't
+	 *                           changed for --stable-window generations (default 100), or once
+	 *                           the board repeats one of the last --cycle-window generations
+	 *                           (default 64), in place or moved (see CycleDetector)
+	 *     --max-seconds T       also stop after T seconds
+	 *     --rule R              Life-like rule in B/S notation, like B36/S23 (default B3/S23,
+	 *                           or the rule saved with --restore)
+	 *     --torus WxH           wrap the board into a W x H torus centered on the origin
+	 *     --clip WxH            kill every cell that leaves a W x H rectangle centered on the origin
+	 *                           (either one caps the board at W * H cells, see Topology)
+	 *     --backend B           CELL_SET or TILED (default TILED)
+	 *     --threads T           step parallelism (default 1)
+	 *     --report-every T      seconds between stats lines, 0 for none (default 1)
+	 *     --checkpoint FILE     save a SnapshotFile in the background every --checkpoint-every
+	 *                           generations (default 1000), and once more at the end
+	 *     --metrics on|off      time every step and count its births, deaths and allocations
+	 *                           (see LifeMetrics), reported with the stats and published over
+	 *                           JMX as life:type=LifeMetrics,name="batch" (default off)
+	 *     --census on|off       split the final board into objects and list the most common
+	 *                           ones in the summary (see ObjectCensus, default off)
+	 *
+	 * The population and bounding box are kept up to date by the board, so reporting them
+	 * costs nothing. When it stops on a cycle the summary also gives its kind, period and
+	 * displacement.
+	 *
+	 **/
+
+	private static final String EXTINCT = "extinct";
+	private static final String STABLE = "stable";
+	private static final String CYCLE = "cycle";
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		System.setProperty("java.awt.headless", "true");
+		String pattern = null;
+		int soupSide = 256;
+		double density = 0.5;
+		long seed = 1;
+		long generations = 1000;
+		String stop = null;
+		long stableWindow = 100;
+		int cycleWindow = 64;
+		double maxSeconds = Double.POSITIVE_INFINITY;
+		InfiniteGameOfLife.Backend backend = InfiniteGameOfLife.Backend.TILED;
+		Rule rule = null;
+		Topology topology = Topology.PLANE;
+		int threads = 1;
+		double reportEvery = 1;
+		String restore = null;
+		String checkpoint = null;
+		long checkpointEvery = 1000;
+		String metricsOption = "off";
+		String censusOption = "off";
+
+		for (int i = 0; i < args.length; i++) {
+			String option = args[i];
+			if (i + 1 >= args.length) {
+				usage("Missing value for " + option);
+			}
+			String value = args[++i];
+			switch (option) {
+				case "--pattern": pattern = value; break;
+				case "--soup": soupSide = Integer.parseInt(value); break;
+				case "--density": density = Double.parseDouble(value); break;
+				case "--seed": seed = Long.parseLong(value); break;
+				case "--generations": generations = Long.parseLong(value); break;
+				case "--stop": stop = value; break;
+				case "--stable-window": stableWindow = Long.parseLong(value); break;
+				case "--cycle-window": cycleWindow = Integer.parseInt(value); break;
+				case "--max-seconds": maxSeconds = Double.parseDouble(value); break;
+				case "--rule": rule = parseRule(value); break;
+				case "--torus": topology = parseTopology(value, true); break;
+				case "--clip": topology = parseTopology(value, false); break;
+				case "--backend": backend = InfiniteGameOfLife.Backend.valueOf(value.toUpperCase(Locale.ROOT)); break;
+				case "--threads": threads = Integer.parseInt(value); break;
+				case "--report-every": reportEvery = Double.parseDouble(value); break;
+				case "--restore": restore = value; break;
+				case "--checkpoint": checkpoint = value; break;
+				case "--checkpoint-every": checkpointEvery = Long.parseLong(value); break;
+				case "--metrics": metricsOption = value; break;
+				case "--census": censusOption = value; break;
+				default: usage("Unknown option " + option);
+			}
+		}
+		if (stop != null && !stop.equals(EXTINCT) && !stop.equals(STABLE) && !stop.equals(CYCLE)) {
+			usage("--stop must be " + EXTINCT + ", " + STABLE + " or " + CYCLE + ", got " + stop);
+		}
+		if (!metricsOption.equals("on") && !metricsOption.equals("off")) {
+			usage("--metrics must be on or off, got " + metricsOption);
+		}
+		if (!censusOption.equals("on") && !censusOption.equals("off")) {
+			usage("--census must be on or off, got " + censusOption);
+		}
+
+		InfiniteGameOfLife game = new InfiniteGameOfLife(backend);
+		game.setParallelism(threads);
+		if (CYCLE.equals(stop)) {
+			game.setCycleDetection(cycleWindow);
+		}
+		String start;
+		if (restore != null) {
+			SnapshotFile.load(Paths.get(restore), game);
+			start = restore + " at generation " + game.getGen();
+		}
+		else {
+			if (pattern != null) {
+				Patterns.load(game, Patterns.named(pattern));
+			}
+			else {
+				game.randomSetup(new int[] {-soupSide / 2, soupSide - soupSide / 2 - 1, -soupSide / 2, soupSide - soupSide / 2 - 1}, density, seed);
+			}
+			start = pattern != null ? pattern : "soup " + soupSide + "x" + soupSide + " density " + density + " seed " + seed;
+		}
+		if (rule != null) {
+			game.setRule(rule);
+		}
+		game.setTopology(topology);
+		LifeMetrics metrics = null;
+		if (metricsOption.equals("on")) {
+			metrics = new LifeMetrics();
+			metrics.register("batch");
+			game.setMetrics(metrics);
+		}
+		Checkpointer checkpointer = checkpoint != null ? new Checkpointer(Paths.get(checkpoint), checkpointEvery) : null;
+		System.out.println("start " + start + ", " + game.getPopulation() + " cells, rule " + game.getRule() + ", " + topology + ", backend " + backend + ", " + threads + " thread(s)");
+
+		long firstGen = game.getGen();
+		long startNanos = System.nanoTime();
+		long lastReport = startNanos;
+		long reportNanos = (long) (reportEvery * 1e9);
+		long maxNanos = maxSeconds == Double.POSITIVE_INFINITY ? Long.MAX_VALUE : (long) (maxSeconds * 1e9);
+		long cellsUpdated = 0;
+		long reportedGen = firstGen;
+		long reportedCells = 0;
+		long lastPopulation = -1;
+		long sameFor = 0;
+		String result = "generations";
+		while (game.getGen() - firstGen < generations) {
+			game.nextGen();
+			cellsUpdated += game.getActiveCells();
+			if (checkpointer != null) {
+				checkpointer.afterGeneration(game);
+			}
+
+			long population = game.getPopulation();
+			sameFor = population == lastPopulation ? sameFor + 1 : 0;
+			lastPopulation = population;
+			if (EXTINCT.equals(stop) && population == 0) {
+				result = EXTINCT;
+				break;
+			}
+			if (STABLE.equals(stop) && sameFor >= stableWindow) {
+				result = STABLE;
+				break;
+			}
+			if (game.getCycle() != null) {
+				result = game.getCycle().getPopulation() == 0 ? EXTINCT : CYCLE;
+				break;
+			}
+
+			long now = System.nanoTime();
+			if (now - startNanos >= maxNanos) {
+				result = "timeout";
+				break;
+			}
+			if (reportNanos > 0 && now - lastReport >= reportNanos) {
+				double seconds = (now - lastReport) / 1e9;
+				System.out.printf(Locale.ROOT, "gen %d  %.1f gens/s  %.3g cells/s  pop %d  bbox %s  heap %d MB%n",
+						game.getGen(), (game.getGen() - reportedGen) / seconds, (cellsUpdated - reportedCells) / seconds,
+						game.getPopulation(), bounds(game), usedHeap() >> 20);
+				if (metrics != null) {
+					System.out.println("    " + metrics.summary());
+				}
+				lastReport = now;
+				reportedGen = game.getGen();
+				reportedCells = cellsUpdated;
+			}
+		}
+
+		double seconds = (System.nanoTime() - startNanos) / 1e9;
+		if (checkpointer != null) {
+			checkpointer.close();
+			SnapshotFile.save(game, Paths.get(checkpoint));
+		}
+		System.out.println("result=" + result);
+		Cycle cycle = game.getCycle();
+		if (cycle != null) {
+			System.out.println("cycle=" + cycle.getKind().toString().toLowerCase(Locale.ROOT));
+			System.out.println("period=" + cycle.getPeriod());
+			System.out.println("displacement=" + cycle.getDx() + "," + cycle.getDy());
+		}
+		System.out.println("generations=" + game.getGen());
+		System.out.printf(Locale.ROOT, "seconds=%.3f%n", seconds);
+		System.out.printf(Locale.ROOT, "gens_per_sec=%.1f%n", (game.getGen() - firstGen) / seconds);
+		System.out.printf(Locale.ROOT, "cells_per_sec=%.0f%n", cellsUpdated / seconds);
+		System.out.println("population=" + game.getPopulation());
+		System.out.println("bbox=" + bounds(game));
+		System.out.println("heap_used_mb=" + (usedHeap() >> 20));
+		if (metrics != null) {
+			System.out.println("step_mean_ns=" + metrics.getMeanStepNanos());
+			System.out.println("step_p50_ns=" + metrics.getStepNanosP50());
+			System.out.println("step_p99_ns=" + metrics.getStepNanosP99());
+			System.out.println("step_max_ns=" + metrics.getMaxStepNanos());
+			System.out.println("alloc_per_gen_bytes=" + metrics.getMeanAllocatedBytes());
+			System.out.printf(Locale.ROOT, "table_load=%.3f%n", metrics.getTableLoad());
+		}
+		if (censusOption.equals("on")) {
+			PrintWriter out = new PrintWriter(System.out);
+			ObjectCensus.writeSummary(out, new ObjectCensus().count(game), SoupTally.LISTED_OBJECTS);
+			out.flush();
+		}
+	}
+
+	private static void usage(String problem) {
+		/*
+		 * Prints what went wrong and exits
+		 *
+		 **/
+
+		System.err.println(problem);
+		System.err.println("usage: java BatchRunner [--pattern NAME | --soup SIDE --density D --seed S | --restore FILE] [--generations N]");
+		System.err.println("       [--stop extinct|stable|cycle] [--stable-window N] [--cycle-window N] [--max-seconds T]");
+		System.err.println("       [--rule B3/S23] [--torus WxH | --clip WxH] [--backend CELL_SET|TILED] [--threads T] [--report-every SECONDS] [--checkpoint FILE] [--checkpoint-every N]");
+		System.err.println("       [--metrics on|off] [--census on|off]");
+		System.exit(2);
+	}
+
+	private static Rule parseRule(String rule) {
+		/*
+		 * Returns the rule given on the command line, or exits if it can't be read
+		 *
+		 **/
+
+		try {
+			return Rule.parse(rule);
+		}
+		catch (IllegalArgumentException e) {
+			usage(e.getMessage());
+			return null;
+		}
+	}
+
+	private static Topology parseTopology(String size, boolean torus) {
+		/*
+		 * Returns the torus or clip rectangle of the WxH size given on the command line,
+		 * or exits if it can't be read
+		 *
+		 **/
+
+		String[] sides = size.toLowerCase(Locale.ROOT).split("x");
+		try {
+			if (sides.length != 2) {
+				throw new IllegalArgumentException("Expected a size like 512x512, got " + size);
+			}
+			int width = Integer.parseInt(sides[0]);
+			int height = Integer.parseInt(sides[1]);
+			return torus ? Topology.torus(width, height) : Topology.clip(width, height);
+		}
+		catch (IllegalArgumentException e) {
+			usage(e.getMessage());
+			return null;
+		}
+	}
+
+	private static long usedHeap() {
+		/*
+		 * Returns bytes of heap currently in use
+		 *
+		 **/
+
+		Runtime runtime = Runtime.getRuntime();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static String bounds(InfiniteGameOfLife game) {
+		/*
+		 * Returns the bounding box as xLow,xHigh,yLow,yHigh, or "empty"
+		 *
+		 **/
+
+		int[] bounds = game.getBounds();
+		return bounds == null ? "empty" : bounds[0] + "," + bounds[1] + "," + bounds[2] + "," + bounds[3];
+	}
+}
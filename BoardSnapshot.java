@@ -0,0 +1,191 @@
+public final class BoardSnapshot implements BoardView {
+
+	/*
+	 * Immutable copy of one generation of an InfiniteGameOfLife.
+	 *
+	 * Built by InfiniteGameOfLife.snapshot() on the thread that steps the game and then
+	 * handed to other threads as is. The copied board is never stepped or edited again,
+	 * so any number of threads can read it without locking while the game moves on.
+	 * The population and bounds are read from the game up front for the same reason, since
+	 * a board may recompute its bounds the first time they are asked for. The topology is
+	 * kept too, so isAlive() wraps or clips coordinates the way the game's own does.
+	 *
+	 * Snapshots of a game are numbered one after the other, and a snapshot can say which
+	 * BLOCK_SIZE x BLOCK_SIZE blocks of cells the steps since the one before it changed, so
+	 * a display that drew that one only has to redraw those blocks (see getChangedBlocks()).
+	 *
+	 **/
+
+	public static final int BLOCK_SHIFT = 3;
+	public static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+	// past this many births and deaths in one step, or changed blocks in one snapshot, redrawing it all is cheaper
+	static final long MAX_CHANGED_CELLS = 1 << 16;
+	static final int MAX_CHANGED_BLOCKS = 1 << 14;
+
+	private final LifeBoard board;
+	private final long gen;
+	private final boolean backgroundAlive;
+	private final Rule rule;
+	private final Topology topology;
+	private final long population;
+	private final int[] bounds;
+	private final long sequence;
+	private final long[] changedBlocks;
+	private volatile boolean pyramidWanted;
+	private volatile boolean changesWanted;
+
+	BoardSnapshot(LifeBoard board, long gen, boolean backgroundAlive, Rule rule, Topology topology, long population, int[] bounds, long sequence, long[] changedBlocks) {
+		/*
+		 * Constructs a snapshot owning the given board, which nobody else may touch afterwards
+		 *
+		 **/
+
+		this.board = board;
+		this.gen = gen;
+		this.backgroundAlive = backgroundAlive;
+		this.rule = rule;
+		this.topology = topology;
+		this.population = population;
+		this.bounds = bounds;
+		this.sequence = sequence;
+		this.changedBlocks = changedBlocks;
+	}
+
+	public void forEachAliveCellIn(int[] bounds, CellVisitor visitor) {
+		/*
+		 * Calls visitor once for every alive cell inside the given bounds
+		 *
+		 **/
+
+		board.forEachAliveCellIn(bounds[0], bounds[1], bounds[2], bounds[3], visitor);
+	}
+
+	public void forEachAliveCell(CellVisitor visitor) {
+		/*
+		 * Calls visitor once for every alive cell, in no particular order
+		 *
+		 **/
+
+		board.forEachAliveCell(visitor);
+	}
+
+	public boolean isAlive(int x, int y) {
+		/*
+		 * Returns true if cell is alive at given location, wrapped or clipped by the topology
+		 * like InfiniteGameOfLife.isAlive()
+		 *
+		 **/
+
+		if (topology.isOutside(x, y)) {
+			return backgroundAlive;
+		}
+		return board.isAlive(topology.wrapX(x), topology.wrapY(y)) != backgroundAlive;
+	}
+
+	public long getPopulation() {
+		/*
+		 * Returns how many cells this snapshot lists
+		 *
+		 **/
+
+		return population;
+	}
+
+	public int[] getBounds() {
+		/*
+		 * Returns the bounds of the cells this snapshot lists, or null if there are none
+		 *
+		 **/
+
+		return bounds == null ? null : bounds.clone();
+	}
+
+	public synchronized DensityPyramid getDensityPyramid() {
+		/*
+		 * Returns the populations of the tiles and blocks of tiles of this snapshot, or null if
+		 * the board has no tiles. Asking tells the game to keep its own pyramid up to date for
+		 * the snapshots that follow (see InfiniteGameOfLife.snapshot())
+		 *
+		 **/
+
+		pyramidWanted = true;
+		return board.getDensityPyramid();
+	}
+
+	boolean isPyramidWanted() {
+		/*
+		 * Returns true once getDensityPyramid() was called
+		 *
+		 **/
+
+		return pyramidWanted;
+	}
+
+	public long getSequence() {
+		/*
+		 * Returns the number of this snapshot among the ones its game took, starting at 1
+		 *
+		 **/
+
+		return sequence;
+	}
+
+	public long[] getChangedBlocks() {
+		/*
+		 * Returns the blocks (packed block coordinates, see CellSet.pack()) with a cell that
+		 * changed since the snapshot numbered getSequence() - 1, or null if that isn't known
+		 * or is too much to be worth listing. The block (bx, by) holds the cells with
+		 * x >> BLOCK_SHIFT == bx and y >> BLOCK_SHIFT == by. Asking tells the game to list
+		 * the changes of the snapshots that follow (see InfiniteGameOfLife.snapshot())
+		 *
+		 **/
+
+		changesWanted = true;
+		return changedBlocks == null ? null : changedBlocks.clone();
+	}
+
+	boolean isChangesWanted() {
+		/*
+		 * Returns true once getChangedBlocks() was called
+		 *
+		 **/
+
+		return changesWanted;
+	}
+
+	public long getGen() {
+		/*
+		 * Returns the generation this snapshot was taken at
+		 *
+		 **/
+
+		return gen;
+	}
+
+	public boolean isBackgroundAlive() {
+		/*
+		 * Returns true if the cells this snapshot lists are the dead ones
+		 *
+		 **/
+
+		return backgroundAlive;
+	}
+
+	public Topology getTopology() {
+		/*
+		 * Returns the topology the game was running on
+		 *
+		 **/
+
+		return topology;
+	}
+
+	public Rule getRule() {
+		/*
+		 * Returns the rule the game was running
+		 *
+		 **/
+
+		return rule;
+	}
+}
@@ -0,0 +1,43 @@
+public interface BoardView {
+
+	/*
+	 * Read-only view of a board, which is all a renderer needs.
+	 *
+	 * Implemented by InfiniteGameOfLife itself, for drawing on the thread that steps it,
+	 * and by BoardSnapshot, for drawing a frozen generation while another thread keeps
+	 * stepping the game.
+	 *
+	 * Under a rule with B0 (see Rule) the background can be alive, with infinitely many alive
+	 * cells. Then the forEach methods list the cells that differ from the background, which
+	 * are the dead ones, and isBackgroundAlive() says so.
+	 *
+	 **/
+
+	// Calls visitor once for every alive cell, in no particular order
+	void forEachAliveCell(CellVisitor visitor);
+
+	// Calls visitor once for every alive cell inside bounds {xLow, xHigh, yLow, yHigh} (inclusive)
+	void forEachAliveCellIn(int[] bounds, CellVisitor visitor);
+
+	// Returns true if cell is alive at given location
+	boolean isAlive(int x, int y);
+
+	// Returns how many cells the forEach methods list, without listing them
+	long getPopulation();
+
+	// Returns bounds {xLow, xHigh, yLow, yHigh} of every cell the forEach methods list, or null if none
+	int[] getBounds();
+
+	// Returns the populations of 64x64 tiles and of blocks of them (see DensityPyramid)
+	// for drawing zoomed out, or null if the board doesn't keep them
+	DensityPyramid getDensityPyramid();
+
+	// Returns the generation being shown
+	long getGen();
+
+	// Returns true if every cell the forEach methods don't list is alive
+	boolean isBackgroundAlive();
+
+	// Returns the rule the board runs
+	Rule getRule();
+}
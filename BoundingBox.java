@@ -0,0 +1,120 @@
+public class BoundingBox {
+
+	/*
+	 * Bounding box of a set of cells, kept up to date one birth or death at a time.
+	 *
+	 * Besides the four extremes it counts how many cells lie on each edge of the box. A
+	 * cell added outside the box moves that edge out to it, and a cell added on an edge adds
+	 * one to its count. A cell removed from an edge takes one away, and the box only has to
+	 * shrink when the last cell on an edge goes. How far it shrinks isn't known then, so the
+	 * box is marked stale, and whoever owns the cells recomputes it by adding them all to a
+	 * cleared box the next time it's asked for. A glider moves its edges a cell every few
+	 * generations, a still life or a soup's interior never.
+	 *
+	 **/
+
+	private int xLow, xHigh, yLow, yHigh;
+	private long onXLow, onXHigh, onYLow, onYHigh;
+	private long cells;
+	private boolean stale;
+
+	public void clear() {
+		/*
+		 * Forgets every cell, leaving an empty box that isn't stale
+		 *
+		 **/
+
+		cells = 0;
+		stale = false;
+	}
+
+	public void markStale() {
+		/*
+		 * Says the box no longer matches the cells, for when they changed in bulk
+		 *
+		 **/
+
+		stale = true;
+	}
+
+	public boolean isStale() {
+		/*
+		 * Returns true if the box has to be recomputed before get() means anything
+		 *
+		 **/
+
+		return stale;
+	}
+
+	public void add(int x, int y) {
+		/*
+		 * Adds a cell that wasn't in the set
+		 *
+		 **/
+
+		if (stale) {
+			return;
+		}
+		if (cells++ == 0) {
+			xLow = xHigh = x;
+			yLow = yHigh = y;
+			onXLow = onXHigh = onYLow = onYHigh = 1;
+			return;
+		}
+		if (x < xLow) {
+			xLow = x;
+			onXLow = 1;
+		}
+		else if (x == xLow) {
+			onXLow++;
+		}
+		if (x > xHigh) {
+			xHigh = x;
+			onXHigh = 1;
+		}
+		else if (x == xHigh) {
+			onXHigh++;
+		}
+		if (y < yLow) {
+			yLow = y;
+			onYLow = 1;
+		}
+		else if (y == yLow) {
+			onYLow++;
+		}
+		if (y > yHigh) {
+			yHigh = y;
+			onYHigh = 1;
+		}
+		else if (y == yHigh) {
+			onYHigh++;
+		}
+	}
+
+	public void remove(int x, int y) {
+		/*
+		 * Removes a cell that was in the set, marking the box stale if it was the last one on an edge
+		 *
+		 **/
+
+		if (stale) {
+			return;
+		}
+		if (--cells == 0) {
+			return;
+		}
+		if ((x == xLow && --onXLow == 0) | (x == xHigh && --onXHigh == 0)
+				| (y == yLow && --onYLow == 0) | (y == yHigh && --onYHigh == 0)) {
+			stale = true;
+		}
+	}
+
+	public int[] get() {
+		/*
+		 * Returns {xLow, xHigh, yLow, yHigh} (inclusive), or null if there are no cells
+		 *
+		 **/
+
+		return cells == 0 ? null : new int[] {xLow, xHigh, yLow, yHigh};
+	}
+}
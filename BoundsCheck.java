@@ -0,0 +1,106 @@
+import java.util.Arrays;
+import java.util.Random;
+
+public class BoundsCheck {
+
+	/*
+	 * Checks the population and bounding box the boards keep up to date against a full
+	 * scan of their cells.
+	 *
+	 * Random soups are stepped under several rules, on both backends, serial and parallel,
+	 * away from the origin as well as around it. After every generation getPopulation() and
+	 * getBounds() have to match what forEachAliveCell() lists. Every few generations cells
+	 * on the edges of the box are edited, which is when a box may have to be recomputed, and
+	 * a snapshot has to report the same numbers as its game. A Hashlife advance and clear()
+	 * are checked the same way. The first mismatch throws.
+	 *
+	 *     java BoundsCheck [generations]
+	 *
+	 **/
+
+	private static final String[] RULES = {"B3/S23", "B36/S23", "B2/S", "B0/S8", "B3678/S34678"};
+	private static final int[] OFFSETS = {0, 5000, -7000};
+
+	public static void main(String[] args) {
+		int generations = args.length > 0 ? Integer.parseInt(args[0]) : 150;
+		long seed = 1;
+		int runs = 0;
+		for (String name : RULES) {
+			for (InfiniteGameOfLife.Backend backend : InfiniteGameOfLife.Backend.values()) {
+				for (int threads = 1; threads <= 2; threads++) {
+					for (int offset : OFFSETS) {
+						run(name + " " + backend + " x" + threads + " at " + offset, backend, Rule.parse(name), threads, offset, generations, seed++);
+						runs++;
+					}
+				}
+			}
+		}
+		InfiniteGameOfLife game = new InfiniteGameOfLife(InfiniteGameOfLife.Backend.TILED);
+		Patterns.load(game, Patterns.named("gosper"));
+		game.advance(5000);
+		check("gosper after advance(5000)", game);
+		System.out.println(runs + " soups of " + generations + " generations and a Hashlife advance agree with full scans");
+	}
+
+	private static void run(String name, InfiniteGameOfLife.Backend backend, Rule rule, int threads, int offset, int generations, long seed) {
+		/*
+		 * Steps one soup, checking it after every generation and edit
+		 *
+		 **/
+
+		Random random = new Random(seed);
+		InfiniteGameOfLife game = new InfiniteGameOfLife(backend);
+		game.setParallelism(threads);
+		game.setRule(rule);
+		for (int i = 0; i < 600; i++) {
+			game.addAliveCell(offset + random.nextInt(40), offset / 2 + random.nextInt(40));
+		}
+		for (int gen = 0; gen < generations; gen++) {
+			check(name + ", generation " + gen, game);
+			if (gen % 17 == 5) {
+				// the corners of the box, and a cell just outside it
+				int[] bounds = game.getBounds();
+				if (bounds != null) {
+					game.changeState(bounds[0], bounds[2]);
+					game.changeState(bounds[1], bounds[3]);
+					game.changeState(bounds[1] + 3, bounds[2] - 2);
+				}
+				check(name + ", edit at generation " + gen, game);
+				BoardSnapshot snapshot = game.snapshot();
+				if (snapshot.getPopulation() != game.getPopulation() || !Arrays.equals(snapshot.getBounds(), game.getBounds())) {
+					throw new IllegalStateException(name + ": snapshot at generation " + gen + " differs from its game");
+				}
+			}
+			game.nextGen();
+		}
+		check(name + ", generation " + generations, game);
+		game.clear();
+		check(name + ", cleared", game);
+	}
+
+	private static void check(String name, InfiniteGameOfLife game) {
+		/*
+		 * Throws if the game's population or bounds differ from a scan of its cells
+		 *
+		 **/
+
+		final long[] population = {0};
+		final int[] bounds = {Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE};
+		game.forEachAliveCell(new CellVisitor() {
+			public void visit(int x, int y) {
+				population[0]++;
+				bounds[0] = Math.min(bounds[0], x);
+				bounds[1] = Math.max(bounds[1], x);
+				bounds[2] = Math.min(bounds[2], y);
+				bounds[3] = Math.max(bounds[3], y);
+			}
+		});
+		if (population[0] != game.getPopulation()) {
+			throw new IllegalStateException(name + ": population " + game.getPopulation() + ", scan counts " + population[0]);
+		}
+		int[] expected = population[0] == 0 ? null : bounds;
+		if (!Arrays.equals(expected, game.getBounds())) {
+			throw new IllegalStateException(name + ": bounds " + Arrays.toString(game.getBounds()) + ", scan gives " + Arrays.toString(expected));
+		}
+	}
+}
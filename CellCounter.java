@@ -0,0 +1,203 @@
+import java.util.Arrays;
+
+public class CellCounter {
+
+	/*
+	 * Map from packed cell (see CellSet.pack) to a small count, used by nextGen()
+	 * to accumulate neighbor counts in one pass over the live cells.
+	 *
+	 * Same layout as CellSet: a primitive open-addressing table with linear probing,
+	 * with the (0, 0) cell, whose packed form is the EMPTY marker, kept on the side.
+	 * Nothing is ever removed from a counter, it is just cleared and reused the
+	 * next generation so the table doesn't get reallocated every step.
+	 *
+	 **/
+
+	private static final long EMPTY = 0L;
+	private static final int MIN_CAPACITY = 16;
+	private static final float MAX_LOAD = 0.5f;
+
+	private long[] keys;
+	private byte[] values;
+	private int mask;
+	private int size;
+	private int resizeAt;
+	private boolean containsEmptyKey;
+	private byte emptyKeyValue;
+
+	public CellCounter() {
+		/*
+		 * Constructs an empty CellCounter
+		 *
+		 **/
+
+		allocate(MIN_CAPACITY);
+	}
+
+	public void add(long cell, int amount) {
+		/*
+		 * Adds amount to the count stored for cell (a missing cell counts as 0)
+		 *
+		 **/
+
+		if (cell == EMPTY) {
+			if (!containsEmptyKey) {
+				containsEmptyKey = true;
+				size++;
+			}
+			emptyKeyValue += amount;
+			return;
+		}
+		int slot = CellSet.hash(cell) & mask;
+		long key;
+		while ((key = keys[slot]) != EMPTY) {
+			if (key == cell) {
+				values[slot] += amount;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = cell;
+		values[slot] = (byte) amount;
+		if (++size >= resizeAt) {
+			rehash(keys.length << 1);
+		}
+	}
+
+	public int get(long cell) {
+		/*
+		 * Returns the count stored for cell, 0 if it has none
+		 *
+		 **/
+
+		if (cell == EMPTY) {
+			return containsEmptyKey ? emptyKeyValue : 0;
+		}
+		int slot = CellSet.hash(cell) & mask;
+		long key;
+		while ((key = keys[slot]) != EMPTY) {
+			if (key == cell) {
+				return values[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return 0;
+	}
+
+	public int size() {
+		/*
+		 * Returns number of cells with a count
+		 *
+		 **/
+
+		return size;
+	}
+
+	public void clear() {
+		/*
+		 * Removes every count, keeping the current table
+		 *
+		 **/
+
+		Arrays.fill(keys, EMPTY);
+		containsEmptyKey = false;
+		emptyKeyValue = 0;
+		size = 0;
+	}
+
+	public int capacity() {
+		/*
+		 * Returns number of slots in the table, used together with slotAt() and valueAt()
+		 * to iterate without allocating
+		 *
+		 **/
+
+		return keys.length + 1;
+	}
+
+	public boolean isSlotUsed(int slot) {
+		/*
+		 * Returns true if the given slot holds a cell
+		 * The last slot stands for the (0, 0) cell that is kept outside the table
+		 *
+		 **/
+
+		if (slot == keys.length) {
+			return containsEmptyKey;
+		}
+		return keys[slot] != EMPTY;
+	}
+
+	public long slotAt(int slot) {
+		/*
+		 * Returns the cell at the given slot (only meaningful if isSlotUsed(slot))
+		 *
+		 **/
+
+		if (slot == keys.length) {
+			return EMPTY;
+		}
+		return keys[slot];
+	}
+
+	public int valueAt(int slot) {
+		/*
+		 * Returns the count at the given slot (only meaningful if isSlotUsed(slot))
+		 *
+		 **/
+
+		if (slot == keys.length) {
+			return emptyKeyValue;
+		}
+		return values[slot];
+	}
+
+	public void ensureCapacity(int expectedSize) {
+		/*
+		 * Grows the table up front so adding expectedSize cells won't rehash midway
+		 *
+		 **/
+
+		int needed = keys.length;
+		while (needed < (1 << 30) && needed * MAX_LOAD <= expectedSize) {
+			needed <<= 1;
+		}
+		if (needed != keys.length) {
+			rehash(needed);
+		}
+	}
+
+	private void rehash(int newCapacity) {
+		/*
+		 * Moves every count into a table of the given capacity
+		 *
+		 **/
+
+		long[] oldKeys = keys;
+		byte[] oldValues = values;
+		allocate(newCapacity);
+		for (int i = 0; i < oldKeys.length; i++) {
+			long key = oldKeys[i];
+			if (key != EMPTY) {
+				int slot = CellSet.hash(key) & mask;
+				while (keys[slot] != EMPTY) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = key;
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		/*
+		 * Allocates an empty table of the given (power of two) capacity
+		 *
+		 **/
+
+		keys = new long[capacity];
+		values = new byte[capacity];
+		mask = capacity - 1;
+		resizeAt = Math.max(1, (int) (capacity * MAX_LOAD));
+	}
+}
@@ -0,0 +1,326 @@
+import java.util.Arrays;
+
+public class CellSet {
+
+	/*
+	 * Set of cells stored as packed longs in a primitive open-addressing table.
+	 *
+	 * Each cell (x, y) is packed into one long, x in the high 32 bits and y in the
+	 * low 32 bits, so a lookup never has to allocate a Coordinate the way the old
+	 * HashMap<Coordinate, Integer> board did. Collisions are resolved with linear
+	 * probing and removal uses backward-shift deletion, so there are no tombstones
+	 * slowing down lookups after lots of deaths.
+	 *
+	 * A slot holding EMPTY (0) is free. Since 0 is also the packed form of (0, 0)
+	 * that one cell is kept in a separate flag instead of in the table.
+	 *
+	 * Memory is 8 bytes per slot, and with the table at most half full that works out
+	 * to 16-32 bytes per live cell versus 80-90 for the HashMap
+	 * (see CellSetMemoryComparison).
+	 *
+	 **/
+
+	private static final long EMPTY = 0L;
+	private static final int MIN_CAPACITY = 16;
+	private static final float MAX_LOAD = 0.5f;
+
+	private long[] keys;
+	private int mask;
+	private int size;
+	private int resizeAt;
+	private boolean containsEmptyKey;
+
+	public CellSet() {
+		/*
+		 * Constructs an empty CellSet
+		 *
+		 **/
+
+		this(MIN_CAPACITY);
+	}
+
+	public CellSet(int expectedSize) {
+		/*
+		 * Constructs an empty CellSet sized to hold the expected number of cells without resizing
+		 *
+		 **/
+
+		allocate(tableSizeFor(expectedSize));
+	}
+
+	public CellSet(CellSet other) {
+		/*
+		 * Constructs a copy of other, reusing its table layout so nothing has to be rehashed
+		 *
+		 **/
+
+		keys = other.keys.clone();
+		mask = other.mask;
+		size = other.size;
+		resizeAt = other.resizeAt;
+		containsEmptyKey = other.containsEmptyKey;
+	}
+
+	public static long pack(int x, int y) {
+		/*
+		 * Packs a coordinate into a single long
+		 *
+		 **/
+
+		return ((long) x << 32) | (y & 0xFFFFFFFFL);
+	}
+
+	public static int unpackX(long cell) {
+		/*
+		 * Returns x-value of a packed cell
+		 *
+		 **/
+
+		return (int) (cell >> 32);
+	}
+
+	public static int unpackY(long cell) {
+		/*
+		 * Returns y-value of a packed cell
+		 *
+		 **/
+
+		return (int) cell;
+	}
+
+	public boolean contains(long cell) {
+		/*
+		 * Returns true if cell is in the set
+		 *
+		 **/
+
+		if (cell == EMPTY) {
+			return containsEmptyKey;
+		}
+		int slot = hash(cell) & mask;
+		long key;
+		while ((key = keys[slot]) != EMPTY) {
+			if (key == cell) {
+				return true;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return false;
+	}
+
+	public boolean add(long cell) {
+		/*
+		 * Adds cell to the set, returns false if it was already there
+		 *
+		 **/
+
+		if (cell == EMPTY) {
+			if (containsEmptyKey) {
+				return false;
+			}
+			containsEmptyKey = true;
+			size++;
+			return true;
+		}
+		int slot = hash(cell) & mask;
+		long key;
+		while ((key = keys[slot]) != EMPTY) {
+			if (key == cell) {
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = cell;
+		if (++size >= resizeAt) {
+			rehash(keys.length << 1);
+		}
+		return true;
+	}
+
+	public boolean remove(long cell) {
+		/*
+		 * Removes cell from the set, returns false if it wasn't there
+		 *
+		 **/
+
+		if (cell == EMPTY) {
+			if (!containsEmptyKey) {
+				return false;
+			}
+			containsEmptyKey = false;
+			size--;
+			return true;
+		}
+		int slot = hash(cell) & mask;
+		long key;
+		while ((key = keys[slot]) != EMPTY) {
+			if (key == cell) {
+				shiftKeys(slot);
+				size--;
+				return true;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return false;
+	}
+
+	public int size() {
+		/*
+		 * Returns number of cells in the set
+		 *
+		 **/
+
+		return size;
+	}
+
+	public void clear() {
+		/*
+		 * Removes every cell, keeping the current table
+		 *
+		 **/
+
+		Arrays.fill(keys, EMPTY);
+		containsEmptyKey = false;
+		size = 0;
+	}
+
+	public long[] toArray() {
+		/*
+		 * Returns a copy of every cell in the set, in table order
+		 *
+		 **/
+
+		long[] cells = new long[size];
+		int n = 0;
+		if (containsEmptyKey) {
+			cells[n++] = EMPTY;
+		}
+		for (long key : keys) {
+			if (key != EMPTY) {
+				cells[n++] = key;
+			}
+		}
+		return cells;
+	}
+
+	public int capacity() {
+		/*
+		 * Returns number of slots in the table, used together with slotAt() to
+		 * iterate without allocating
+		 *
+		 **/
+
+		return keys.length + 1;
+	}
+
+	public boolean isSlotUsed(int slot) {
+		/*
+		 * Returns true if the given slot holds a cell
+		 * The last slot stands for the (0, 0) cell that is kept outside the table
+		 *
+		 **/
+
+		if (slot == keys.length) {
+			return containsEmptyKey;
+		}
+		return keys[slot] != EMPTY;
+	}
+
+	public long slotAt(int slot) {
+		/*
+		 * Returns the cell at the given slot (only meaningful if isSlotUsed(slot))
+		 *
+		 **/
+
+		if (slot == keys.length) {
+			return EMPTY;
+		}
+		return keys[slot];
+	}
+
+	public long memoryFootprint() {
+		/*
+		 * Returns approximate number of bytes used by the table
+		 *
+		 **/
+
+		return 16L + 8L * keys.length;
+	}
+
+	static int hash(long cell) {
+		/*
+		 * Mixes both halves of the packed cell so neighbouring cells spread across the table
+		 *
+		 **/
+
+		long h = cell * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	private void shiftKeys(int slot) {
+		/*
+		 * Backward-shift deletion: pulls later keys of the same probe chain into the
+		 * freed slot so lookups never need tombstones
+		 *
+		 **/
+
+		int last;
+		long key;
+		while (true) {
+			last = slot;
+			slot = (slot + 1) & mask;
+			while (true) {
+				if ((key = keys[slot]) == EMPTY) {
+					keys[last] = EMPTY;
+					return;
+				}
+				int home = hash(key) & mask;
+				if (last <= slot ? (last >= home || home > slot) : (last >= home && home > slot)) {
+					break;
+				}
+				slot = (slot + 1) & mask;
+			}
+			keys[last] = key;
+		}
+	}
+
+	private void rehash(int newCapacity) {
+		/*
+		 * Moves every key into a table of the given capacity
+		 *
+		 **/
+
+		long[] oldKeys = keys;
+		allocate(newCapacity);
+		for (long key : oldKeys) {
+			if (key != EMPTY) {
+				int slot = hash(key) & mask;
+				while (keys[slot] != EMPTY) {
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = key;
+			}
+		}
+	}
+
+	private void allocate(int capacity) {
+		/*
+		 * Allocates an empty table of the given (power of two) capacity
+		 *
+		 **/
+
+		keys = new long[capacity];
+		mask = capacity - 1;
+		resizeAt = Math.max(1, (int) (capacity * MAX_LOAD));
+	}
+
+	private static int tableSizeFor(int expectedSize) {
+		/*
+		 * Returns the smallest power of two table that keeps expectedSize under the max load
+		 *
+		 **/
+
+		long needed = Math.max(MIN_CAPACITY, (long) Math.ceil(expectedSize / MAX_LOAD) + 1);
+		return (int) Math.min(1 << 30, Long.highestOneBit(needed - 1) << 1);
+	}
+}
@@ -0,0 +1,819 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class CellSetBoard implements LifeBoard {
+
+	/*
+	 * Board backend that keeps every alive cell in a CellSet.
+	 *
+	 * Each (x, y) is packed into one long and kept in a primitive open-addressing table.
+	 * If a cell is in the set it is alive, otherwise it's dead. This is the default
+	 * backend, and the best one for sparse patterns spread over a huge area.
+	 *
+	 * In step(), I loop through each of my alive cells only. Each alive cell adds one to the
+	 * neighbor count of all 8 cells around it in a CellCounter, and marks itself as alive in the same
+	 * counter. The only cells that can change are the ones that end up in the counter, so after that
+	 * one pass a single sweep over the counter decides every birth and death.
+	 * This ties the complexity to the number of alive cells rather than the dimensions,
+	 * which can get very big and full of empty space. It also means an empty cell next to a crowd is
+	 * only looked at once instead of being recounted by every one of its alive neighbors
+	 * (which used to cost 64+ lookups per alive cell, now it's 9 counter updates).
+	 *
+	 * I also have willBeAlive() broken up into two, aliveToDead() and deadToAlive() since the
+	 * dead and alive cells are still decided separately. Both just look up the neighbor count
+	 * in the masks of the board's Rule.
+	 *
+	 * With a parallelism above 1 the plane is cut into horizontal stripes 64 rows tall, dealt
+	 * out round robin to several partitions, and the step runs in a ForkJoinPool in two phases.
+	 * First every partition scans its share of the CellSet table and hands each alive cell to the
+	 * partitions owning its row and the rows just above and below it. Then every partition counts
+	 * the neighbors that land in its own stripes, in its own CellCounter, and decides the births
+	 * and deaths for its own stripes. No two partitions ever write the same thing, so there are
+	 * no locks, and the births and deaths are applied afterwards. The result doesn't depend on
+	 * the scheduling at all.
+	 *
+	 * Most boards settle into still lifes and blinkers, so step() also remembers which cells
+	 * changed in the last generation and the one before, and when few enough did it only looks
+	 * at the neighborhoods around them:
+	 * - A cell with nothing around it changed last generation can't change now.
+	 * - A cell whose neighborhood is the same as two generations ago goes back to the state
+	 *   it had one generation ago, so it flips again only if it just flipped.
+	 * - Every other cell (within one cell of something that differs from two generations ago)
+	 *   gets its neighbors counted like in the full step.
+	 * Still lifes and period 2 oscillators then cost nothing at all. This needs two clean
+	 * generations of history, so after cells are added or removed by hand the next two steps
+	 * are full ones.
+	 *
+	 * On a torus the neighbors of a cell on an edge are on the opposite edge. Every step
+	 * finds a cell's neighbors with four selects (the column to the left is x - 1, or the
+	 * right edge if x is the left edge, and so on), which the JIT turns into conditional
+	 * moves. The plane is the same thing with the ends of the int range as the edges, where
+	 * x - 1 wraps around by itself anyway, so it runs the very same code. A clip rectangle
+	 * only needs a bounds check on the cells about to be born.
+	 *
+	 * The population is just the size of the CellSet. The bounding box is kept in a
+	 * BoundingBox fed with every birth and death, so it's only recomputed from all the
+	 * cells when the last cell on one of its edges died.
+	 *
+	 **/
+
+	private static final int ALIVE_FLAG = 16;
+	private static final int NEIGHBOR_COUNT_MASK = 15;
+	private static final int STRIPE_SHIFT = 6;
+	private static final int PARTITIONS_PER_THREAD = 4;
+	// the active step is used while the cells around recent differences (and the recent changes) are fewer than the cells a full step counts
+	private static final int ACTIVE_NEIGHBORHOOD = 9;
+	// clear() empties a table up to this many slots (512 KB) in place, so a board cleared and refilled doesn't reallocate it
+	private static final int REUSED_CAPACITY = 1 << 16;
+	// reserve() doesn't size the set for more cells than this (a 4 GB table)
+	private static final int MAX_RESERVED_CELLS = 1 << 28;
+
+	private CellSet cells;
+	private BoundingBox bounds = new BoundingBox();
+	private Rule rule = Rule.CONWAY;
+	private int birthMask = Rule.CONWAY.getBirthMask();
+	private int survivalMask = Rule.CONWAY.getSurvivalMask();
+	private Topology topology = Topology.PLANE;
+	// the edges neighbors wrap across, the whole int range unless on a torus
+	private int wrapXLow = Integer.MIN_VALUE, wrapXHigh = Integer.MAX_VALUE, wrapYLow = Integer.MIN_VALUE, wrapYHigh = Integer.MAX_VALUE;
+	// cells can only be born at xLow + [0, xSpan] and yLow + [0, ySpan], compared unsigned
+	private int xLow = Integer.MIN_VALUE, xSpan = -1, yLow = Integer.MIN_VALUE, ySpan = -1;
+	private long[] around = new long[8];
+	private CellCounter counts;
+	private LongList births;
+	private LongList deaths;
+	private ForkJoinPool pool;
+	private StripeTask[] stripeTasks;
+
+	// cells that flipped in the last step and in the step before, valid once trackedSteps reaches 2
+	private LongList lastChanges;
+	private LongList olderChanges;
+	private LongList newChanges;
+	private int trackedSteps;
+	private CellSet differences;
+	private CellSet active;
+	private long activeCells;
+	private long stepPopulation;
+	private long stepBirths;
+
+	public CellSetBoard() {
+		/*
+		 * Constructs an empty board
+		 *
+		 **/
+
+		cells = new CellSet();
+		counts = new CellCounter();
+		births = new LongList();
+		deaths = new LongList();
+		lastChanges = new LongList();
+		olderChanges = new LongList();
+		newChanges = new LongList();
+		differences = new CellSet();
+		active = new CellSet();
+	}
+
+	public boolean isAlive(int x, int y) {
+		/*
+		 * Returns true if cell is alive at given location
+		 *
+		 **/
+
+		return cells.contains(CellSet.pack(x, y));
+	}
+
+	public boolean add(int x, int y) {
+		/*
+		 * Makes the cell at given location alive
+		 *
+		 **/
+
+		if (!cells.add(CellSet.pack(x, y))) {
+			return false;
+		}
+		bounds.add(x, y);
+		trackedSteps = 0;
+		return true;
+	}
+
+	public boolean remove(int x, int y) {
+		/*
+		 * Makes the cell at given location dead
+		 *
+		 **/
+
+		if (!cells.remove(CellSet.pack(x, y))) {
+			return false;
+		}
+		bounds.remove(x, y);
+		trackedSteps = 0;
+		return true;
+	}
+
+	public void setRow(int x, int y, long bits, long mask) {
+		/*
+		 * Sets the cells (x + i, y) for every bit i of mask to bit i of bits
+		 * The set still takes them one at a time, but only the cells that are alive
+		 *
+		 **/
+
+		for (long born = bits & mask; born != 0; born &= born - 1) {
+			add(x + Long.numberOfTrailingZeros(born), y);
+		}
+		if (cells.size() == 0) {
+			return;
+		}
+		for (long dead = mask & ~bits; dead != 0; dead &= dead - 1) {
+			remove(x + Long.numberOfTrailingZeros(dead), y);
+		}
+	}
+
+	public void reserve(long cells) {
+		/*
+		 * Sizes the set for the given number of cells, if it's empty and smaller than that
+		 *
+		 **/
+
+		if (this.cells.size() == 0 && cells > this.cells.capacity() / 2) {
+			this.cells = new CellSet((int) Math.min(cells, MAX_RESERVED_CELLS));
+		}
+	}
+
+	public void clear() {
+		/*
+		 * Kills every cell, keeping the set's table unless it grew big
+		 *
+		 **/
+
+		if (cells.capacity() <= REUSED_CAPACITY) {
+			cells.clear();
+		}
+		else {
+			cells = new CellSet();
+		}
+		bounds.clear();
+		trackedSteps = 0;
+	}
+
+	public LifeBoard copy() {
+		/*
+		 * Returns an independent board with the same alive cells
+		 *
+		 **/
+
+		CellSetBoard copy = new CellSetBoard();
+		copy.cells = new CellSet(cells);
+		copy.bounds.markStale();
+		copy.setRule(rule);
+		copy.setTopology(topology);
+		return copy;
+	}
+
+	public long getPopulation() {
+		/*
+		 * Returns how many cells are alive
+		 *
+		 **/
+
+		return cells.size();
+	}
+
+	public int[] getBounds() {
+		/*
+		 * Returns the smallest rectangle holding every alive cell, or null if there are none
+		 * Scans every cell only if the last cell on an edge died since the last call
+		 *
+		 **/
+
+		if (bounds.isStale()) {
+			bounds.clear();
+			for (int slot = 0; slot < cells.capacity(); slot++) {
+				if (cells.isSlotUsed(slot)) {
+					long cell = cells.slotAt(slot);
+					bounds.add(CellSet.unpackX(cell), CellSet.unpackY(cell));
+				}
+			}
+		}
+		return bounds.get();
+	}
+
+	public long getBirths() {
+		/*
+		 * Returns how many cells were born in the last step
+		 *
+		 **/
+
+		return stepBirths;
+	}
+
+	public DensityPyramid getDensityPyramid() {
+		/*
+		 * Returns null, a CellSet has no tiles to count (drawing it zoomed out goes over its cells)
+		 *
+		 **/
+
+		return null;
+	}
+
+	public double getTableLoad() {
+		/*
+		 * Returns how full the CellSet is, entries per slot
+		 *
+		 **/
+
+		return (double) cells.size() / cells.capacity();
+	}
+
+	public long getActiveCells() {
+		/*
+		 * Returns how many cells the last step looked at
+		 *
+		 **/
+
+		return activeCells;
+	}
+
+	public long getStepPopulation() {
+		/*
+		 * Returns how many cells were alive going into the last step
+		 *
+		 **/
+
+		return stepPopulation;
+	}
+
+	public void forEachChangedCell(CellVisitor visitor) {
+		/*
+		 * Calls visitor for every cell born or killed by the last step
+		 * Those are exactly the changes the active step keeps around anyway
+		 *
+		 **/
+
+		for (int i = 0; i < lastChanges.size(); i++) {
+			long cell = lastChanges.get(i);
+			visitor.visit(CellSet.unpackX(cell), CellSet.unpackY(cell));
+		}
+	}
+
+	public void forEachAliveCell(CellVisitor visitor) {
+		/*
+		 * Calls visitor for every alive cell
+		 *
+		 **/
+
+		for (int slot = 0; slot < cells.capacity(); slot++) {
+			if (cells.isSlotUsed(slot)) {
+				long cell = cells.slotAt(slot);
+				visitor.visit(CellSet.unpackX(cell), CellSet.unpackY(cell));
+			}
+		}
+	}
+
+	public void forEachAliveCellIn(int xLow, int xHigh, int yLow, int yHigh, CellVisitor visitor) {
+		/*
+		 * Calls visitor for every alive cell inside the given bounds
+		 * A CellSet has no spatial order, so this either looks up every cell of the window or
+		 * scans every alive cell, whichever is fewer. Use the TILED backend to get a real index.
+		 *
+		 **/
+
+		if (xLow > xHigh || yLow > yHigh) {
+			return;
+		}
+		long area = ((long) xHigh - xLow + 1) * ((long) yHigh - yLow + 1);
+		if (area <= cells.size()) {
+			for (int y = yLow; y <= yHigh; y++) {
+				for (int x = xLow; x <= xHigh; x++) {
+					if (cells.contains(CellSet.pack(x, y))) {
+						visitor.visit(x, y);
+					}
+				}
+			}
+			return;
+		}
+		for (int slot = 0; slot < cells.capacity(); slot++) {
+			if (cells.isSlotUsed(slot)) {
+				long cell = cells.slotAt(slot);
+				int x = CellSet.unpackX(cell);
+				int y = CellSet.unpackY(cell);
+				if (x >= xLow && x <= xHigh && y >= yLow && y <= yHigh) {
+					visitor.visit(x, y);
+				}
+			}
+		}
+	}
+
+	private boolean deadToAlive(int neighbors) {
+		/*
+		 * Returns true if dead cell with given number of neighbors will be alive in the next generation
+		 *
+		 **/
+
+		return ((birthMask >>> neighbors) & 1) != 0;
+	}
+
+	private boolean aliveToDead(int neighbors) {
+		/*
+		 * Returns true if alive cell with given number of neighbors will be dead in the next generation
+		 *
+		 **/
+
+		return ((survivalMask >>> neighbors) & 1) == 0;
+	}
+
+	public void setRule(Rule rule) {
+		/*
+		 * Sets the rule step() uses
+		 * The changes remembered so far came from the old rule, so the next two steps are full ones
+		 *
+		 **/
+
+		if (rule.hasB0()) {
+			throw new IllegalArgumentException("A board can't step " + rule + " by itself, see Rule.forBackground()");
+		}
+		if (rule.equals(this.rule)) {
+			return;
+		}
+		this.rule = rule;
+		birthMask = rule.getBirthMask();
+		survivalMask = rule.getSurvivalMask();
+		trackedSteps = 0;
+	}
+
+	public void setTopology(Topology topology) {
+		/*
+		 * Sets the topology step() wraps or clips the board to
+		 * The changes remembered so far came from the old one, so the next two steps are full ones
+		 *
+		 **/
+
+		this.topology = topology;
+		int[] bounds = topology.getBounds();
+		boolean torus = topology.getKind() == Topology.Kind.TORUS;
+		wrapXLow = torus ? bounds[0] : Integer.MIN_VALUE;
+		wrapXHigh = torus ? bounds[1] : Integer.MAX_VALUE;
+		wrapYLow = torus ? bounds[2] : Integer.MIN_VALUE;
+		wrapYHigh = torus ? bounds[3] : Integer.MAX_VALUE;
+		xLow = bounds[0];
+		xSpan = bounds[1] - bounds[0];
+		yLow = bounds[2];
+		ySpan = bounds[3] - bounds[2];
+		trackedSteps = 0;
+	}
+
+	private int leftOf(int x) {
+		/*
+		 * Returns the column to the left of x, wrapping around the edges of a torus
+		 *
+		 **/
+
+		return x == wrapXLow ? wrapXHigh : x - 1;
+	}
+
+	private int rightOf(int x) {
+		/*
+		 * Returns the column to the right of x, wrapping around the edges of a torus
+		 *
+		 **/
+
+		return x == wrapXHigh ? wrapXLow : x + 1;
+	}
+
+	private int aboveOf(int y) {
+		/*
+		 * Returns the row above y, wrapping around the edges of a torus
+		 *
+		 **/
+
+		return y == wrapYLow ? wrapYHigh : y - 1;
+	}
+
+	private int belowOf(int y) {
+		/*
+		 * Returns the row below y, wrapping around the edges of a torus
+		 *
+		 **/
+
+		return y == wrapYHigh ? wrapYLow : y + 1;
+	}
+
+	private void fillNeighbors(int x, int y, long[] around) {
+		/*
+		 * Fills around with the 8 cells next to (x, y), packed
+		 *
+		 **/
+
+		int left = leftOf(x);
+		int right = rightOf(x);
+		int up = aboveOf(y);
+		int down = belowOf(y);
+		around[0] = CellSet.pack(left, up);
+		around[1] = CellSet.pack(x, up);
+		around[2] = CellSet.pack(right, up);
+		around[3] = CellSet.pack(left, y);
+		around[4] = CellSet.pack(right, y);
+		around[5] = CellSet.pack(left, down);
+		around[6] = CellSet.pack(x, down);
+		around[7] = CellSet.pack(right, down);
+	}
+
+	private boolean canBeBorn(long cell) {
+		/*
+		 * Returns false if the cell is outside a clip rectangle, true everywhere else
+		 *
+		 **/
+
+		return Integer.compareUnsigned(CellSet.unpackX(cell) - xLow, xSpan) <= 0
+				&& Integer.compareUnsigned(CellSet.unpackY(cell) - yLow, ySpan) <= 0;
+	}
+
+	public void setParallelism(int parallelism) {
+		/*
+		 * Sets how many threads step() may use
+		 *
+		 **/
+
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1, got " + parallelism);
+		}
+		if (pool != null) {
+			pool.shutdown();
+		}
+		if (parallelism == 1) {
+			pool = null;
+			stripeTasks = null;
+			return;
+		}
+		pool = new ForkJoinPool(parallelism);
+		stripeTasks = new StripeTask[parallelism * PARTITIONS_PER_THREAD];
+		for (int i = 0; i < stripeTasks.length; i++) {
+			stripeTasks[i] = new StripeTask(i, stripeTasks.length);
+		}
+	}
+
+	public void step() {
+		/*
+		 * Updates board to the next generation
+		 * See comments at the top of the class for more details
+		 *
+		 **/
+
+		stepPopulation = cells.size();
+		stepBirths = 0;
+		newChanges.clear();
+		if (trackedSteps >= 2 && lastChanges.size() + olderChanges.size() <= (long) ACTIVE_NEIGHBORHOOD * cells.size() && findDifferences()) {
+			stepActive();
+		}
+		else if (pool != null) {
+			stepInStripes();
+		}
+		else {
+			stepAll();
+		}
+		LongList recycled = olderChanges;
+		olderChanges = lastChanges;
+		lastChanges = newChanges;
+		newChanges = recycled;
+		trackedSteps = Math.min(trackedSteps + 1, 2);
+	}
+
+	private void stepAll() {
+		/*
+		 * Updates board to the next generation with the single accumulation pass
+		 *
+		 **/
+
+		counts.clear();
+		counts.ensureCapacity(cells.size() * 3);
+		for (int slot = 0; slot < cells.capacity(); slot++) {
+			if (!cells.isSlotUsed(slot)) {
+				continue;
+			}
+			long key = cells.slotAt(slot);
+			counts.add(key, ALIVE_FLAG);
+			fillNeighbors(CellSet.unpackX(key), CellSet.unpackY(key), around);
+			for (long neighbor : around) {
+				counts.add(neighbor, 1);
+			}
+		}
+		births.clear();
+		deaths.clear();
+		decide(counts, births, deaths);
+		apply(births, deaths);
+		activeCells = counts.size();
+	}
+
+	private boolean findDifferences() {
+		/*
+		 * Collects the cells that differ from two generations ago into differences
+		 * Returns false if there are too many for the active step to pay off
+		 *
+		 **/
+
+		differences.clear();
+		for (int i = 0; i < olderChanges.size(); i++) {
+			differences.add(olderChanges.get(i));
+		}
+		for (int i = 0; i < lastChanges.size(); i++) {
+			long cell = lastChanges.get(i);
+			if (!differences.add(cell)) {
+				differences.remove(cell);
+			}
+		}
+		return (long) ACTIVE_NEIGHBORHOOD * differences.size() <= cells.size();
+	}
+
+	private void stepActive() {
+		/*
+		 * Updates board to the next generation looking only around the cells that changed lately
+		 * See comments at the top of the class for more details
+		 *
+		 **/
+
+		active.clear();
+		for (int slot = 0; slot < differences.capacity(); slot++) {
+			if (!differences.isSlotUsed(slot)) {
+				continue;
+			}
+			long cell = differences.slotAt(slot);
+			active.add(cell);
+			fillNeighbors(CellSet.unpackX(cell), CellSet.unpackY(cell), around);
+			for (long neighbor : around) {
+				active.add(neighbor);
+			}
+		}
+
+		births.clear();
+		deaths.clear();
+		// cells that just flipped but whose neighborhood repeats flip back
+		for (int i = 0; i < lastChanges.size(); i++) {
+			long cell = lastChanges.get(i);
+			if (!active.contains(cell)) {
+				if (cells.contains(cell)) {
+					deaths.add(cell);
+				}
+				else {
+					births.add(cell);
+				}
+			}
+		}
+		for (int slot = 0; slot < active.capacity(); slot++) {
+			if (!active.isSlotUsed(slot)) {
+				continue;
+			}
+			long cell = active.slotAt(slot);
+			fillNeighbors(CellSet.unpackX(cell), CellSet.unpackY(cell), around);
+			int neighbors = 0;
+			for (long neighbor : around) {
+				if (cells.contains(neighbor)) {
+					neighbors++;
+				}
+			}
+			if (cells.contains(cell)) {
+				if (aliveToDead(neighbors)) {
+					deaths.add(cell);
+				}
+			}
+			else if (deadToAlive(neighbors) && canBeBorn(cell)) {
+				births.add(cell);
+			}
+		}
+		apply(births, deaths);
+		activeCells = active.size() + lastChanges.size();
+	}
+
+	private void stepInStripes() {
+		/*
+		 * Updates board to the next generation with every partition counting its own stripes in parallel
+		 *
+		 **/
+
+		runPhase(true);
+		runPhase(false);
+		activeCells = 0;
+		for (StripeTask task : stripeTasks) {
+			apply(task.births, task.deaths);
+			activeCells += task.counts.size();
+		}
+	}
+
+	private void runPhase(boolean sorting) {
+		/*
+		 * Runs every StripeTask in the pool, either sorting cells into stripes or counting them
+		 *
+		 **/
+
+		final StripeTask[] tasks = stripeTasks;
+		for (StripeTask task : tasks) {
+			task.reinitialize();
+			task.sorting = sorting;
+		}
+		pool.invoke(new RecursiveAction() {
+			private static final long serialVersionUID = 1L;
+
+			protected void compute() {
+				invokeAll(tasks);
+			}
+		});
+	}
+
+	private int owner(int y) {
+		/*
+		 * Returns the partition that owns row y
+		 *
+		 **/
+
+		return Math.floorMod(y >> STRIPE_SHIFT, stripeTasks.length);
+	}
+
+	private void decide(CellCounter counts, LongList births, LongList deaths) {
+		/*
+		 * Sweeps the counter once and lists every cell that is born or dies
+		 *
+		 **/
+
+		for (int slot = 0; slot < counts.capacity(); slot++) {
+			if (!counts.isSlotUsed(slot)) {
+				continue;
+			}
+			int value = counts.valueAt(slot);
+			int neighbors = value & NEIGHBOR_COUNT_MASK;
+			if ((value & ALIVE_FLAG) != 0) {
+				if (aliveToDead(neighbors)) {
+					deaths.add(counts.slotAt(slot));
+				}
+			}
+			else if (deadToAlive(neighbors) && canBeBorn(counts.slotAt(slot))) {
+				births.add(counts.slotAt(slot));
+			}
+		}
+	}
+
+	private void apply(LongList births, LongList deaths) {
+		/*
+		 * Adds the born cells and removes the dead ones, remembering both as changes
+		 *
+		 **/
+
+		stepBirths += births.size();
+		for (int i = 0; i < births.size(); i++) {
+			long cell = births.get(i);
+			cells.add(cell);
+			newChanges.add(cell);
+			bounds.add(CellSet.unpackX(cell), CellSet.unpackY(cell));
+		}
+		for (int i = 0; i < deaths.size(); i++) {
+			long cell = deaths.get(i);
+			cells.remove(cell);
+			newChanges.add(cell);
+			bounds.remove(CellSet.unpackX(cell), CellSet.unpackY(cell));
+		}
+	}
+
+	private class StripeTask extends RecursiveAction {
+
+		/*
+		 * One partition of a parallel step
+		 * While sorting it hands the cells in its share of the table to the partitions that need them,
+		 * otherwise it counts neighbors and decides births and deaths for its own stripes
+		 *
+		 **/
+
+		private static final long serialVersionUID = 1L;
+
+		private final int partition;
+		private final LongList[] handedOut;
+		private final CellCounter counts = new CellCounter();
+		private final LongList births = new LongList();
+		private final LongList deaths = new LongList();
+		private boolean sorting;
+
+		StripeTask(int partition, int partitions) {
+			this.partition = partition;
+			handedOut = new LongList[partitions];
+			for (int i = 0; i < partitions; i++) {
+				handedOut[i] = new LongList();
+			}
+		}
+
+		protected void compute() {
+			if (sorting) {
+				sort();
+			}
+			else {
+				count();
+			}
+		}
+
+		private void sort() {
+			/*
+			 * Hands every alive cell in this partition's share of the table to the owners of
+			 * its row and the rows around it
+			 *
+			 **/
+
+			for (LongList list : handedOut) {
+				list.clear();
+			}
+			int partitions = handedOut.length;
+			int from = (int) ((long) cells.capacity() * partition / partitions);
+			int to = (int) ((long) cells.capacity() * (partition + 1) / partitions);
+			for (int slot = from; slot < to; slot++) {
+				if (!cells.isSlotUsed(slot)) {
+					continue;
+				}
+				long key = cells.slotAt(slot);
+				int y = CellSet.unpackY(key);
+				int own = owner(y);
+				int above = owner(aboveOf(y));
+				int below = owner(belowOf(y));
+				handedOut[own].add(key);
+				if (above != own) {
+					handedOut[above].add(key);
+				}
+				if (below != own && below != above) {
+					handedOut[below].add(key);
+				}
+			}
+		}
+
+		private void count() {
+			/*
+			 * Counts neighbors landing in this partition's stripes and decides births and deaths there
+			 *
+			 **/
+
+			counts.clear();
+			births.clear();
+			deaths.clear();
+			for (StripeTask task : stripeTasks) {
+				LongList given = task.handedOut[partition];
+				for (int i = 0; i < given.size(); i++) {
+					long key = given.get(i);
+					int x = CellSet.unpackX(key);
+					int y = CellSet.unpackY(key);
+					int left = leftOf(x);
+					int right = rightOf(x);
+					int up = aboveOf(y);
+					int down = belowOf(y);
+					if (owner(up) == partition) {
+						counts.add(CellSet.pack(left, up), 1);
+						counts.add(CellSet.pack(x, up), 1);
+						counts.add(CellSet.pack(right, up), 1);
+					}
+					if (owner(y) == partition) {
+						counts.add(CellSet.pack(left, y), 1);
+						counts.add(key, ALIVE_FLAG);
+						counts.add(CellSet.pack(right, y), 1);
+					}
+					if (owner(down) == partition) {
+						counts.add(CellSet.pack(left, down), 1);
+						counts.add(CellSet.pack(x, down), 1);
+						counts.add(CellSet.pack(right, down), 1);
+					}
+				}
+			}
+			decide(counts, births, deaths);
+		}
+	}
+}
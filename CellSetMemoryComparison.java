@@ -0,0 +1,77 @@
+import java.util.HashMap;
+import java.util.Random;
+
+public class CellSetMemoryComparison {
+
+	/*
+	 * Compares the memory used per live cell by the old HashMap<Coordinate, Integer>
+	 * board, the CellSet that replaced it and the 64x64 tiles of TiledBoard.
+	 *
+	 * Fills each one with the same random soup and measures how much the used heap grows.
+	 * Run with a fixed heap so the collector doesn't get in the way, for example
+	 *     java -Xms2g -Xmx2g CellSetMemoryComparison 1000000
+	 *
+	 **/
+
+	public static void main(String[] args) {
+		int cells = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		int side = (int) Math.ceil(Math.sqrt(cells * 2.0));
+		long[] soup = randomSoup(cells, side, 42);
+
+		long before = usedHeap();
+		HashMap<Coordinate, Integer> map = new HashMap<Coordinate, Integer>();
+		for (long cell : soup) {
+			map.put(new Coordinate(CellSet.unpackX(cell), CellSet.unpackY(cell)), 1);
+		}
+		long hashMapBytes = usedHeap() - before;
+		int mapSize = map.size();
+		map = null;
+
+		before = usedHeap();
+		CellSet set = new CellSet();
+		for (long cell : soup) {
+			set.add(cell);
+		}
+		long cellSetBytes = usedHeap() - before;
+		set = null;
+
+		before = usedHeap();
+		TiledBoard tiled = new TiledBoard();
+		for (long cell : soup) {
+			tiled.add(CellSet.unpackX(cell), CellSet.unpackY(cell));
+		}
+		long tiledBytes = usedHeap() - before;
+
+		System.out.println("live cells:                 " + mapSize);
+		System.out.printf("HashMap<Coordinate, Integer> %8.1f bytes/cell%n", (double) hashMapBytes / mapSize);
+		System.out.printf("CellSet                      %8.1f bytes/cell%n", (double) cellSetBytes / mapSize);
+		System.out.printf("TiledBoard                   %8.1f bytes/cell%n", (double) tiledBytes / mapSize);
+	}
+
+	private static long[] randomSoup(int cells, int side, long seed) {
+		/*
+		 * Returns distinct random cells inside a side x side square
+		 *
+		 **/
+
+		Random random = new Random(seed);
+		CellSet distinct = new CellSet(cells);
+		while (distinct.size() < cells) {
+			distinct.add(CellSet.pack(random.nextInt(side) - side / 2, random.nextInt(side) - side / 2));
+		}
+		return distinct.toArray();
+	}
+
+	private static long usedHeap() {
+		/*
+		 * Returns used heap after a few rounds of garbage collection
+		 *
+		 **/
+
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 4; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
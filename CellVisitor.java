@@ -0,0 +1,9 @@
+public interface CellVisitor {
+
+	/*
+	 * Callback used to walk over alive cells without building a list of Coordinates
+	 *
+	 **/
+
+	void visit(int x, int y);
+}
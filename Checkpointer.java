@@ -0,0 +1,106 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+public class Checkpointer {
+
+	/*
+	 * Saves a game to a SnapshotFile every K generations without holding up the simulation.
+	 *
+	 * The thread that steps the game calls afterGeneration() after every nextGen(). On a
+	 * checkpoint generation that thread only takes a BoardSnapshot, which is a plain copy of
+	 * the board, and a background thread encodes and writes it. If the previous checkpoint
+	 * is still being written, the new one is skipped rather than queued, so a slow disk
+	 * can't pile up copies of the board in memory.
+	 *
+	 * Every checkpoint is written to a temporary file next to the target and then moved
+	 * over it, so a crash halfway through a write leaves the previous checkpoint intact.
+	 *
+	 **/
+
+	private final Path file;
+	private final long every;
+	private final ExecutorService writer;
+	private Future<?> pending;
+	private volatile long lastSavedGen = -1;
+
+	public Checkpointer(Path file, long every) {
+		/*
+		 * Constructs a checkpointer saving to file every given number of generations
+		 *
+		 **/
+
+		if (every <= 0) {
+			throw new IllegalArgumentException("Checkpoint interval must be positive, got " + every);
+		}
+		this.file = file.toAbsolutePath();
+		this.every = every;
+		this.writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "life-checkpoint");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	public void afterGeneration(InfiniteGameOfLife game) {
+		/*
+		 * Starts a checkpoint if the game just reached a multiple of the interval
+		 * Must be called on the thread that steps the game
+		 *
+		 **/
+
+		if (game.getGen() % every != 0 || (pending != null && !pending.isDone())) {
+			return;
+		}
+		final BoardSnapshot snapshot = game.snapshot();
+		pending = writer.submit(new Runnable() {
+			public void run() {
+				try {
+					write(snapshot);
+				}
+				catch (IOException e) {
+					System.err.println("Checkpoint of generation " + snapshot.getGen() + " to " + file + " failed: " + e);
+				}
+			}
+		});
+	}
+
+	public long getLastSavedGen() {
+		/*
+		 * Returns the generation of the last checkpoint that made it to disk, -1 if none did yet
+		 *
+		 **/
+
+		return lastSavedGen;
+	}
+
+	public void close() throws InterruptedException {
+		/*
+		 * Waits for a checkpoint being written to finish and stops the background thread
+		 *
+		 **/
+
+		writer.shutdown();
+		writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+	}
+
+	private void write(BoardSnapshot snapshot) throws IOException {
+		/*
+		 * Saves snapshot next to the target, then moves it into place
+		 *
+		 **/
+
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		SnapshotFile.save(snapshot, temporary);
+		Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		lastSavedGen = snapshot.getGen();
+	}
+}
@@ -0,0 +1,103 @@
+public final class Cycle {
+
+	/*
+	 * A repeat found by CycleDetector: the board at generation gen is the board at
+	 * generation gen - period, moved by (dx, dy).
+	 *
+	 * Since every generation follows from the one before, the board keeps repeating the
+	 * same way forever after that, so there is no point in stepping it any further.
+	 *
+	 **/
+
+	public enum Kind {
+		STILL_LIFE,
+		OSCILLATOR,
+		SPACESHIP
+	}
+
+	private final long gen;
+	private final long period;
+	private final long dx, dy;
+	private final long population;
+
+	Cycle(long gen, long period, long dx, long dy, long population) {
+		/*
+		 * Constructs a cycle found at gen
+		 *
+		 **/
+
+		this.gen = gen;
+		this.period = period;
+		this.dx = dx;
+		this.dy = dy;
+		this.population = population;
+	}
+
+	public Kind getKind() {
+		/*
+		 * Returns STILL_LIFE for period 1, SPACESHIP if the board moves, OSCILLATOR otherwise
+		 * (an empty board counts as a still life)
+		 *
+		 **/
+
+		if (dx != 0 || dy != 0) {
+			return Kind.SPACESHIP;
+		}
+		return period == 1 ? Kind.STILL_LIFE : Kind.OSCILLATOR;
+	}
+
+	public long getGen() {
+		/*
+		 * Returns the generation the repeat was found at
+		 *
+		 **/
+
+		return gen;
+	}
+
+	public long getPeriod() {
+		/*
+		 * Returns how many generations one cycle takes
+		 *
+		 **/
+
+		return period;
+	}
+
+	public long getDx() {
+		/*
+		 * Returns how far the board moves right every period
+		 *
+		 **/
+
+		return dx;
+	}
+
+	public long getDy() {
+		/*
+		 * Returns how far the board moves down every period
+		 *
+		 **/
+
+		return dy;
+	}
+
+	public long getPopulation() {
+		/*
+		 * Returns the number of alive cells at gen
+		 *
+		 **/
+
+		return population;
+	}
+
+	public String toString() {
+		/*
+		 * Returns e.g. "OSCILLATOR period 2" or "SPACESHIP period 4 moving (1, 1)"
+		 *
+		 **/
+
+		String kind = getKind() + " period " + period;
+		return getKind() == Kind.SPACESHIP ? kind + " moving (" + dx + ", " + dy + ")" : kind;
+	}
+}
@@ -0,0 +1,234 @@
+public class CycleDetector {
+
+	/*
+	 * Notices when a board starts repeating itself, in place or moving.
+	 *
+	 * The board is summed up by its population, the sums of its x and y coordinates and a
+	 * hash H = sum of a^x * b^y over the alive cells, modulo the prime p = 2^61 - 1. All four
+	 * are sums over cells, so a birth adds its cell's term and a death takes it away, and
+	 * update() only looks at the cells that flipped in the last step instead of rehashing
+	 * the whole board every generation.
+	 *
+	 * Moving every cell by (dx, dy) multiplies H by a^dx * b^dy, which is what makes the
+	 * hash translation aware. The last few generations are kept in a small ring, and a new
+	 * generation is compared with them newest first:
+	 * - same population, coordinate sums and hash: the board is back where it was, so it's
+	 *   a still life (period 1) or an oscillator.
+	 * - same population, and the coordinate sums moved by population * (dx, dy) for whole
+	 *   numbers dx and dy: if H also got multiplied by a^dx * b^dy it's a spaceship (or any
+	 *   pattern that repeats while moving, like a puffer that has burned out).
+	 * Two different boards match only if their hashes collide, about 1 in 2^61. Under a rule
+	 * with B0 the cells hashed are the ones that differ from the background, so boards only
+	 * match if their backgrounds do too.
+	 *
+	 * a^x is looked up in two tables of 65536 powers each (low and high 16 bits of x), so a
+	 * term costs three modular multiplications. x is offset by 2^31 first, which scales every
+	 * term by the same constant and so keeps the translation property.
+	 *
+	 **/
+
+	private static final long P = (1L << 61) - 1;
+	private static final long A = 0x1D3F6B2A89C4E57L % P;
+	private static final long B = 0x0B5E27C1D94A3F1L % P;
+	private static final int TABLE_BITS = 16;
+	private static final int TABLE_SIZE = 1 << TABLE_BITS;
+	private static final int TABLE_MASK = TABLE_SIZE - 1;
+
+	private final int window;
+	private final long[] gens, hashes, populations, sumsX, sumsY;
+	private final boolean[] backgrounds;
+	private int recorded;
+	private int next;
+
+	private long hash;
+	private long population;
+	private long sumX;
+	private long sumY;
+
+	public CycleDetector(int window) {
+		/*
+		 * Constructs a detector that remembers the last window generations, so it finds
+		 * cycles with a period up to window
+		 *
+		 **/
+
+		if (window < 1) {
+			throw new IllegalArgumentException("Cycle detection needs a window of at least 1 generation, got " + window);
+		}
+		this.window = window;
+		gens = new long[window];
+		hashes = new long[window];
+		populations = new long[window];
+		sumsX = new long[window];
+		sumsY = new long[window];
+		backgrounds = new boolean[window];
+	}
+
+	public int getWindow() {
+		/*
+		 * Returns the longest period that can be found
+		 *
+		 **/
+
+		return window;
+	}
+
+	public long getHash() {
+		/*
+		 * Returns the translation aware hash of the board as of the last reset() or update()
+		 *
+		 **/
+
+		return hash;
+	}
+
+	public void reset(LifeBoard board) {
+		/*
+		 * Hashes the whole board from scratch and forgets the generations seen so far
+		 * Needed whenever the board changed in some other way than a step
+		 *
+		 **/
+
+		hash = 0;
+		population = 0;
+		sumX = 0;
+		sumY = 0;
+		board.forEachAliveCell(new CellVisitor() {
+			public void visit(int x, int y) {
+				add(x, y, 1);
+			}
+		});
+		recorded = 0;
+		next = 0;
+	}
+
+	public void update(final LifeBoard board) {
+		/*
+		 * Adds the births and takes away the deaths of the step the board just made
+		 *
+		 **/
+
+		board.forEachChangedCell(new CellVisitor() {
+			public void visit(int x, int y) {
+				add(x, y, board.isAlive(x, y) ? 1 : -1);
+			}
+		});
+	}
+
+	public Cycle check(long gen, boolean backgroundAlive) {
+		/*
+		 * Remembers the board as generation gen and returns how it repeats one of the
+		 * remembered generations, or null if it doesn't
+		 * backgroundAlive says if the cells hashed are the dead ones (see Rule.hasB0())
+		 *
+		 **/
+
+		Cycle cycle = null;
+		for (int i = 1; i <= recorded && cycle == null; i++) {
+			int slot = (next - i + window) % window;
+			if (populations[slot] != population || backgrounds[slot] != backgroundAlive) {
+				continue;
+			}
+			if (hashes[slot] == hash && sumsX[slot] == sumX && sumsY[slot] == sumY) {
+				cycle = new Cycle(gen, gen - gens[slot], 0, 0, population);
+			}
+			else if (population > 0 && (sumX - sumsX[slot]) % population == 0 && (sumY - sumsY[slot]) % population == 0) {
+				long dx = (sumX - sumsX[slot]) / population;
+				long dy = (sumY - sumsY[slot]) / population;
+				if (mul(hashes[slot], mul(power(A, dx), power(B, dy))) == hash) {
+					cycle = new Cycle(gen, gen - gens[slot], dx, dy, population);
+				}
+			}
+		}
+		gens[next] = gen;
+		hashes[next] = hash;
+		populations[next] = population;
+		sumsX[next] = sumX;
+		sumsY[next] = sumY;
+		backgrounds[next] = backgroundAlive;
+		next = (next + 1) % window;
+		recorded = Math.min(recorded + 1, window);
+		return cycle;
+	}
+
+	private void add(int x, int y, int sign) {
+		/*
+		 * Adds (sign 1) or takes away (sign -1) the terms of one cell
+		 *
+		 **/
+
+		long u = (x ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+		long v = (y ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+		long[][] powers = Powers.TABLES;
+		long term = mul(mul(powers[0][(int) (u & TABLE_MASK)], powers[1][(int) (u >>> TABLE_BITS)]),
+				mul(powers[2][(int) (v & TABLE_MASK)], powers[3][(int) (v >>> TABLE_BITS)]));
+		hash = sign > 0 ? addMod(hash, term) : addMod(hash, P - term);
+		population += sign;
+		sumX += sign * (long) x;
+		sumY += sign * (long) y;
+	}
+
+	private static long addMod(long a, long b) {
+		/*
+		 * Returns (a + b) mod P for a, b < P
+		 *
+		 **/
+
+		long sum = a + b;
+		return sum >= P ? sum - P : sum;
+	}
+
+	private static long mul(long a, long b) {
+		/*
+		 * Returns (a * b) mod P for a, b < P, using 2^61 = 1 (mod P) to fold the 122 bit product
+		 *
+		 **/
+
+		long low = a * b;
+		long high = Math.multiplyHigh(a, b);
+		long folded = (low & P) + ((high << 3) | (low >>> 61));
+		return folded >= P ? folded - P : folded;
+	}
+
+	private static long power(long base, long exponent) {
+		/*
+		 * Returns base^exponent mod P, negative exponents use the inverse base^(P - 2)
+		 *
+		 **/
+
+		if (exponent < 0) {
+			base = power(base, P - 2);
+			exponent = -exponent;
+		}
+		long result = 1;
+		while (exponent != 0) {
+			if ((exponent & 1) != 0) {
+				result = mul(result, base);
+			}
+			base = mul(base, base);
+			exponent >>>= 1;
+		}
+		return result;
+	}
+
+	private static class Powers {
+
+		/*
+		 * A^i, A^(65536 i), B^i and B^(65536 i) for i < 65536, built the first time a
+		 * detector hashes a cell (2 MB)
+		 *
+		 **/
+
+		static final long[][] TABLES = {table(A, 1), table(A, TABLE_SIZE), table(B, 1), table(B, TABLE_SIZE)};
+
+		private static long[] table(long base, long stride) {
+			long step = power(base, stride);
+			long[] table = new long[TABLE_SIZE];
+			table[0] = 1;
+			for (int i = 1; i < TABLE_SIZE; i++) {
+				table[i] = mul(table[i - 1], step);
+			}
+			return table;
+		}
+	}
+}
@@ -0,0 +1,235 @@
+import java.util.Arrays;
+
+public class DensityPyramid {
+
+	/*
+	 * How many cells are alive in every Tile and every 2x2, 4x4, ... block of tiles, for
+	 * drawing a board zoomed far out without looking at its cells.
+	 *
+	 * Level 0 holds the population of each 64x64 tile, level l the population of each block
+	 * of 2^l x 2^l tiles, the block (bx, by) covering the tiles (bx 2^l + i, by 2^l + j). A
+	 * pixel of 2^(6 + l) x 2^(6 + l) cells lined up with the blocks is then one entry of
+	 * level l, so a frame at any zoom out to RasterRenderer.MAX_SHIFT costs at most one
+	 * lookup per pixel, however many cells it covers (see countBlocks()).
+	 *
+	 * Every level is a primitive open-addressing table from the packed block (see
+	 * CellSet.pack()) to its population, like CellSet with a value next to each key. Blocks
+	 * with nothing alive are removed, with backward-shift deletion, so a slot is free when
+	 * its count is 0 and a block only costs anything while something lives in it.
+	 *
+	 * A board keeps its pyramid up to date by adding the change of each tile's population,
+	 * which updates one block per level (see TiledBoard.getDensityPyramid()). Tiles that
+	 * didn't change cost nothing, so stepping a huge, mostly still universe keeps nearly
+	 * all of the pyramid from one generation to the next.
+	 *
+	 **/
+
+	public static final int LEVELS = RasterRenderer.MAX_SHIFT - Tile.SHIFT + 1;
+
+	private static final int MIN_CAPACITY = 16;
+
+	private final long[][] keys = new long[LEVELS][];
+	private final long[][] counts = new long[LEVELS][];
+	private final int[] sizes = new int[LEVELS];
+
+	public DensityPyramid() {
+		/*
+		 * Constructs an empty pyramid
+		 *
+		 **/
+
+		for (int level = 0; level < LEVELS; level++) {
+			keys[level] = new long[MIN_CAPACITY];
+			counts[level] = new long[MIN_CAPACITY];
+		}
+	}
+
+	public DensityPyramid copy() {
+		/*
+		 * Returns an independent pyramid with the same counts
+		 *
+		 **/
+
+		DensityPyramid copy = new DensityPyramid();
+		for (int level = 0; level < LEVELS; level++) {
+			copy.keys[level] = keys[level].clone();
+			copy.counts[level] = counts[level].clone();
+			copy.sizes[level] = sizes[level];
+		}
+		return copy;
+	}
+
+	public void add(int tileX, int tileY, long delta) {
+		/*
+		 * Adds delta alive cells to the tile at the given tile coordinates and every block above it
+		 *
+		 **/
+
+		if (delta == 0) {
+			return;
+		}
+		for (int level = 0; level < LEVELS; level++) {
+			add(level, CellSet.pack(tileX >> level, tileY >> level), delta);
+		}
+	}
+
+	public static DensityPyramid of(Tile[] tiles) {
+		/*
+		 * Returns the pyramid of the given tiles, building each level from the one below
+		 * (which has at least as many blocks) rather than going up from every tile
+		 *
+		 **/
+
+		DensityPyramid pyramid = new DensityPyramid();
+		for (Tile tile : tiles) {
+			if (tile.population != 0) {
+				pyramid.add(0, tile.key, tile.population);
+			}
+		}
+		for (int level = 1; level < LEVELS; level++) {
+			long[] below = pyramid.keys[level - 1];
+			long[] belowCounts = pyramid.counts[level - 1];
+			for (int slot = 0; slot < below.length; slot++) {
+				if (belowCounts[slot] != 0) {
+					long block = below[slot];
+					pyramid.add(level, CellSet.pack(CellSet.unpackX(block) >> 1, CellSet.unpackY(block) >> 1), belowCounts[slot]);
+				}
+			}
+		}
+		return pyramid;
+	}
+
+	public long get(int level, int blockX, int blockY) {
+		/*
+		 * Returns how many cells are alive in the given block of the given level
+		 *
+		 **/
+
+		long[] keys = this.keys[level];
+		long[] counts = this.counts[level];
+		int mask = keys.length - 1;
+		long key = CellSet.pack(blockX, blockY);
+		for (int slot = CellSet.hash(key) & mask; counts[slot] != 0; slot = (slot + 1) & mask) {
+			if (keys[slot] == key) {
+				return counts[slot];
+			}
+		}
+		return 0;
+	}
+
+	public int size(int level) {
+		/*
+		 * Returns how many blocks of the given level have anything alive
+		 *
+		 **/
+
+		return sizes[level];
+	}
+
+	public void countBlocks(int level, int blockX, int blockY, int width, int height, long[] out) {
+		/*
+		 * Writes the populations of the width x height blocks of the given level starting at
+		 * (blockX, blockY) into out, row by row. Costs the smaller of one lookup per block and
+		 * one pass over the level's blocks
+		 *
+		 **/
+
+		int area = width * height;
+		Arrays.fill(out, 0, area, 0);
+		if (sizes[level] < area) {
+			long[] keys = this.keys[level];
+			long[] counts = this.counts[level];
+			for (int slot = 0; slot < keys.length; slot++) {
+				if (counts[slot] != 0) {
+					long x = (long) CellSet.unpackX(keys[slot]) - blockX;
+					long y = (long) CellSet.unpackY(keys[slot]) - blockY;
+					if (x >= 0 && x < width && y >= 0 && y < height) {
+						out[(int) y * width + (int) x] = counts[slot];
+					}
+				}
+			}
+			return;
+		}
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				out[y * width + x] = get(level, blockX + x, blockY + y);
+			}
+		}
+	}
+
+	private void add(int level, long key, long delta) {
+		/*
+		 * Adds delta to the count of the given block, removing it once the count gets to 0
+		 *
+		 **/
+
+		long[] keys = this.keys[level];
+		long[] counts = this.counts[level];
+		int mask = keys.length - 1;
+		int slot = CellSet.hash(key) & mask;
+		while (counts[slot] != 0) {
+			if (keys[slot] == key) {
+				counts[slot] += delta;
+				if (counts[slot] == 0) {
+					shiftKeys(level, slot);
+					sizes[level]--;
+				}
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		counts[slot] = delta;
+		if (++sizes[level] > keys.length >> 1) {
+			rehash(level, keys.length << 1);
+		}
+	}
+
+	private void shiftKeys(int level, int slot) {
+		/*
+		 * Backward-shift deletion, same as CellSet: pulls later blocks of the same probe chain
+		 * into the freed slot
+		 *
+		 **/
+
+		long[] keys = this.keys[level];
+		long[] counts = this.counts[level];
+		int mask = keys.length - 1;
+		int last;
+		while (true) {
+			last = slot;
+			slot = (slot + 1) & mask;
+			while (true) {
+				if (counts[slot] == 0) {
+					counts[last] = 0;
+					return;
+				}
+				int home = CellSet.hash(keys[slot]) & mask;
+				if (last <= slot ? (last >= home || home > slot) : (last >= home && home > slot)) {
+					break;
+				}
+				slot = (slot + 1) & mask;
+			}
+			keys[last] = keys[slot];
+			counts[last] = counts[slot];
+		}
+	}
+
+	private void rehash(int level, int capacity) {
+		/*
+		 * Moves every block of the level into a table of the given capacity
+		 *
+		 **/
+
+		long[] oldKeys = keys[level];
+		long[] oldCounts = counts[level];
+		keys[level] = new long[capacity];
+		counts[level] = new long[capacity];
+		sizes[level] = 0;
+		for (int slot = 0; slot < oldKeys.length; slot++) {
+			if (oldCounts[slot] != 0) {
+				add(level, oldKeys[slot], oldCounts[slot]);
+			}
+		}
+	}
+}
@@ -0,0 +1,43 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("life.Generation")
+@Label("Generation")
+@Category("Game of Life")
+@Description("One InfiniteGameOfLife.nextGen(), its duration is the time the board took to step")
+@StackTrace(false)
+public class GenerationEvent extends jdk.jfr.Event {
+
+	/*
+	 * A Flight Recorder event per generation.
+	 *
+	 * Committed by every nextGen() of a game with metrics (see InfiniteGameOfLife.setMetrics())
+	 * while Flight Recorder is recording, for example with
+	 * -XX:StartFlightRecording:filename=life.jfr
+	 * Without a recording that is only a shouldCommit() check. With one, the events line up
+	 * with the GC pauses and allocation samples of the same recording in JDK Mission Control,
+	 * and life.Generation#enabled=false leaves them out. A game without metrics never loads
+	 * this class, which spares short runs the few hundred milliseconds Flight Recorder takes
+	 * to start up the first time an event is created.
+	 *
+	 **/
+
+	@Label("Generation")
+	long gen;
+
+	@Label("Births")
+	long births;
+
+	@Label("Deaths")
+	long deaths;
+
+	@Label("Population")
+	long population;
+
+	@Label("Active Cells")
+	@Description("Cells the step actually looked at")
+	long activeCells;
+}
@@ -0,0 +1,361 @@
+public class GenerationHistory {
+
+	/*
+	 * Recent generations of an InfiniteGameOfLife, kept so the board can be rewound.
+	 *
+	 * A whole copy of the board per generation would be far too big, so most generations
+	 * are stored as a delta: the packed cells (see CellSet.pack) that flipped on the way
+	 * from the generation before, which LifeBoard.forEachChangedCell() hands over for free.
+	 * A flip is its own inverse, so the same delta moves the board one generation forward
+	 * or one generation back.
+	 *
+	 * Every so often a generation also gets a keyframe, the full list of its alive cells,
+	 * so going back a long way doesn't mean walking through every delta in between. A new
+	 * keyframe is taken once the deltas since the last one add up to its size, or after
+	 * MAX_SEGMENT_FRAMES generations, or when the board was edited by hand (the edit isn't
+	 * a step, so there's no delta for it). seekTo() then either flips its way from the
+	 * current generation or starts over from the closest keyframe, whichever touches fewer
+	 * cells.
+	 *
+	 * The frames sit in a ring buffer, oldest first, one per generation with no gaps. When
+	 * they take more than the memory cap the oldest keyframe goes together with all the
+	 * deltas after it (they can't be used without it), so the history always starts at a
+	 * keyframe. The newest keyframe and its deltas are always kept, even over the cap.
+	 *
+	 * The cells are the ones the board holds, so under a rule with B0 they are the ones that
+	 * differ from the background, and every frame also remembers whether that was alive.
+	 *
+	 **/
+
+	private static final int MAX_SEGMENT_FRAMES = 4096;
+	// rough size of a Frame and its array headers, on top of 8 bytes per cell
+	private static final int FRAME_OVERHEAD_BYTES = 64;
+	private static final int MIN_CAPACITY = 16;
+
+	private long maxBytes;
+	private Frame[] ring = new Frame[MIN_CAPACITY];
+	private int head;
+	private int size;
+	private long firstGen;
+	private long bytes;
+	// flips and frames since the newest keyframe
+	private long segmentCells;
+	private int segmentFrames;
+	private long lastKeyframeCells;
+
+	public GenerationHistory(long maxBytes) {
+		/*
+		 * Constructs an empty history that keeps about maxBytes of frames
+		 *
+		 **/
+
+		setMaxBytes(maxBytes);
+	}
+
+	public void setMaxBytes(long maxBytes) {
+		/*
+		 * Sets the memory cap, evicting old frames right away if they are over it
+		 *
+		 **/
+
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("History needs a positive memory cap, got " + maxBytes);
+		}
+		this.maxBytes = maxBytes;
+		evict();
+	}
+
+	public long getMaxBytes() {
+		/*
+		 * Returns the memory cap
+		 *
+		 **/
+
+		return maxBytes;
+	}
+
+	public long getBytes() {
+		/*
+		 * Returns roughly how much memory the frames take
+		 *
+		 **/
+
+		return bytes;
+	}
+
+	public boolean isEmpty() {
+		/*
+		 * Returns true if no generation is recorded
+		 *
+		 **/
+
+		return size == 0;
+	}
+
+	public long getOldestGen() {
+		/*
+		 * Returns the oldest recorded generation, only meaningful if the history isn't empty
+		 *
+		 **/
+
+		return firstGen;
+	}
+
+	public long getNewestGen() {
+		/*
+		 * Returns the newest recorded generation, only meaningful if the history isn't empty
+		 *
+		 **/
+
+		return firstGen + size - 1;
+	}
+
+	public boolean contains(long gen) {
+		/*
+		 * Returns true if the given generation can be sought to
+		 *
+		 **/
+
+		return size > 0 && gen >= firstGen && gen <= getNewestGen();
+	}
+
+	public void clear() {
+		/*
+		 * Forgets every frame
+		 *
+		 **/
+
+		ring = new Frame[MIN_CAPACITY];
+		head = 0;
+		size = 0;
+		bytes = 0;
+		segmentCells = 0;
+		segmentFrames = 0;
+	}
+
+	void recordKeyframe(LifeBoard board, long gen, boolean backgroundAlive) {
+		/*
+		 * Records the whole board as generation gen, dropping anything recorded from gen on
+		 * If that leaves a gap before gen the older frames are dropped too
+		 *
+		 **/
+
+		truncateFrom(gen);
+		if (size > 0 && getNewestGen() != gen - 1) {
+			clear();
+		}
+		append(gen, null, cellsOf(board), backgroundAlive);
+	}
+
+	void recordStep(LifeBoard board, long gen, boolean backgroundAlive) {
+		/*
+		 * Records generation gen, which the board just stepped to from the newest frame
+		 * Must be called right after LifeBoard.step(), while its changes are still valid
+		 *
+		 **/
+
+		if (size == 0 || getNewestGen() != gen - 1) {
+			recordKeyframe(board, gen, backgroundAlive);
+			return;
+		}
+		final LongList flips = new LongList();
+		board.forEachChangedCell(new CellVisitor() {
+			public void visit(int x, int y) {
+				flips.add(CellSet.pack(x, y));
+			}
+		});
+		long[] delta = flips.toArray();
+		boolean keyframe = segmentFrames >= MAX_SEGMENT_FRAMES || segmentCells + delta.length >= lastKeyframeCells;
+		append(gen, delta, keyframe ? cellsOf(board) : null, backgroundAlive);
+	}
+
+	boolean seekTo(LifeBoard board, long from, long to) {
+		/*
+		 * Changes the board to recorded generation to
+		 * from is the recorded generation the board is at now, or -1 if it matches none
+		 * Returns whether the background of generation to is alive
+		 *
+		 **/
+
+		if (!contains(to)) {
+			throw new IllegalArgumentException("Generation " + to + " isn't in the history, it holds "
+					+ (size == 0 ? "nothing" : firstGen + " to " + getNewestGen()));
+		}
+		int current = contains(from) ? (int) (from - firstGen) : -1;
+		int target = (int) (to - firstGen);
+		int keyframe = target;
+		while (frame(keyframe).keyframe == null) {
+			keyframe--;
+		}
+
+		// cells touched going straight there, or starting over from the keyframe
+		long direct = current < 0 ? Long.MAX_VALUE : deltaCells(Math.min(current, target) + 1, Math.max(current, target) + 1);
+		long fromKeyframe = frame(keyframe).keyframe.length + deltaCells(keyframe + 1, target + 1);
+		if (direct > fromKeyframe) {
+			board.clear();
+			for (long cell : frame(keyframe).keyframe) {
+				board.add(CellSet.unpackX(cell), CellSet.unpackY(cell));
+			}
+			current = keyframe;
+		}
+		for (; current < target; current++) {
+			flip(board, frame(current + 1).delta);
+		}
+		for (; current > target; current--) {
+			flip(board, frame(current).delta);
+		}
+		return frame(target).backgroundAlive;
+	}
+
+	private long deltaCells(int from, int to) {
+		/*
+		 * Returns how many flips frames [from, to) hold, or Long.MAX_VALUE if one has no delta
+		 *
+		 **/
+
+		long cells = 0;
+		for (int i = from; i < to; i++) {
+			long[] delta = frame(i).delta;
+			if (delta == null) {
+				return Long.MAX_VALUE;
+			}
+			cells += delta.length;
+		}
+		return cells;
+	}
+
+	private static void flip(LifeBoard board, long[] delta) {
+		/*
+		 * Toggles every cell in delta
+		 *
+		 **/
+
+		for (long cell : delta) {
+			int x = CellSet.unpackX(cell);
+			int y = CellSet.unpackY(cell);
+			if (!board.remove(x, y)) {
+				board.add(x, y);
+			}
+		}
+	}
+
+	private static long[] cellsOf(LifeBoard board) {
+		/*
+		 * Returns every alive cell of the board, packed
+		 *
+		 **/
+
+		final LongList cells = new LongList();
+		board.forEachAliveCell(new CellVisitor() {
+			public void visit(int x, int y) {
+				cells.add(CellSet.pack(x, y));
+			}
+		});
+		return cells.toArray();
+	}
+
+	private void append(long gen, long[] delta, long[] keyframe, boolean backgroundAlive) {
+		/*
+		 * Adds a frame for gen after the newest one and evicts old frames if over the cap
+		 *
+		 **/
+
+		if (size == ring.length) {
+			Frame[] bigger = new Frame[ring.length * 2];
+			for (int i = 0; i < size; i++) {
+				bigger[i] = frame(i);
+			}
+			ring = bigger;
+			head = 0;
+		}
+		if (size == 0) {
+			firstGen = gen;
+		}
+		Frame frame = new Frame(delta, keyframe, backgroundAlive);
+		ring[(head + size) & (ring.length - 1)] = frame;
+		size++;
+		bytes += frame.bytes;
+		if (keyframe != null) {
+			segmentCells = 0;
+			segmentFrames = 0;
+			lastKeyframeCells = keyframe.length;
+		}
+		else {
+			segmentCells += delta.length;
+			segmentFrames++;
+		}
+		evict();
+	}
+
+	private void truncateFrom(long gen) {
+		/*
+		 * Drops the frames for gen and everything after it
+		 *
+		 **/
+
+		while (size > 0 && getNewestGen() >= gen) {
+			int last = (head + size - 1) & (ring.length - 1);
+			bytes -= ring[last].bytes;
+			ring[last] = null;
+			size--;
+		}
+		// the segment counters only steer when to take the next keyframe, and the caller adds one now
+		segmentCells = 0;
+		segmentFrames = 0;
+	}
+
+	private void evict() {
+		/*
+		 * Drops the oldest keyframe and its deltas until the frames fit the cap
+		 * or only the newest keyframe is left
+		 *
+		 **/
+
+		while (bytes > maxBytes) {
+			int next = 1;
+			while (next < size && frame(next).keyframe == null) {
+				next++;
+			}
+			if (next == size) {
+				return;
+			}
+			for (int i = 0; i < next; i++) {
+				bytes -= ring[head].bytes;
+				ring[head] = null;
+				head = (head + 1) & (ring.length - 1);
+			}
+			size -= next;
+			firstGen += next;
+		}
+	}
+
+	private Frame frame(int index) {
+		/*
+		 * Returns the frame index generations after the oldest one
+		 *
+		 **/
+
+		return ring[(head + index) & (ring.length - 1)];
+	}
+
+	private static class Frame {
+
+		/*
+		 * One recorded generation: the flips from the generation before (null right after
+		 * an edit or at the start) and, for keyframes, every alive cell
+		 *
+		 **/
+
+		final long[] delta;
+		final long[] keyframe;
+		final boolean backgroundAlive;
+		final long bytes;
+
+		Frame(long[] delta, long[] keyframe, boolean backgroundAlive) {
+			this.delta = delta;
+			this.keyframe = keyframe;
+			this.backgroundAlive = backgroundAlive;
+			bytes = FRAME_OVERHEAD_BYTES + 8L * ((delta == null ? 0 : delta.length) + (keyframe == null ? 0 : keyframe.length));
+		}
+	}
+}
@@ -0,0 +1,491 @@
+public class Hashlife {
+
+	/*
+	 * Hashlife engine used by InfiniteGameOfLife.advance() to skip huge numbers of generations.
+	 *
+	 * The board is turned into a quadtree: a node of level k is a 2^k x 2^k square made of
+	 * four level k-1 children, down to single cells at level 0. Nodes are canonicalized
+	 * through a hash table, so every distinct square exists only once however often it
+	 * shows up on the board, and every node memoizes its RESULT: the middle half of the
+	 * square moved forward in time. Since a result is cached on the square itself, the
+	 * same square anywhere on the board or at any later generation is never computed twice,
+	 * which is what lets periodic and slowly evolving patterns jump ahead exponentially.
+	 *
+	 * step(node, j) returns the middle half of node advanced 2^j generations (j <= level - 2).
+	 * It splits node into 9 overlapping squares half its size, advances those, glues their
+	 * results into 4 squares, advances those and glues the 4 results back together. When
+	 * j is the largest allowed step both rounds advance time, otherwise the first round just
+	 * takes the centers. A 4x4 square is stepped directly.
+	 *
+	 * advance() writes the number of generations in binary and does one step(root, j) for
+	 * every bit j, growing the root first so the pattern can't reach its edge in 2^j steps.
+	 *
+	 * The node table is bounded. When it holds more than maxNodes nodes after a step the tree
+	 * is copied into a fresh table without any of the memoized results (the old nodes are then
+	 * garbage), and if a single step overflows it by twice as much the table is just dropped,
+	 * which loses sharing but never correctness since a result only depends on the square.
+	 *
+	 * A result also depends on the rule, so every engine is built for one Rule. Rules with B0
+	 * would fill the empty squares around the pattern and can't be run here at all.
+	 *
+	 **/
+
+	public static final int DEFAULT_MAX_NODES = 1 << 21;
+
+	private static final int BASE_LEVEL = 2;
+
+	private final Rule rule;
+	private final Node dead = new Node(0);
+	private final Node alive = new Node(1);
+	private Node[] emptyNodes = new Node[128];
+
+	private Node[] table;
+	private int size;
+	private int maxNodes;
+	private long evictions;
+
+	static class Node {
+
+		/*
+		 * Canonical quadtree node, see the comments at the top of Hashlife
+		 *
+		 **/
+
+		final Node nw, ne, sw, se;
+		final int level;
+		final long population;
+		final int hash;
+		Node chain;
+		Node next;
+		int nextStep = -1;
+
+		Node(int population) {
+			// the two level 0 nodes, a dead and an alive cell
+			this.nw = this.ne = this.sw = this.se = null;
+			this.level = 0;
+			this.population = population;
+			this.hash = population;
+		}
+
+		Node(Node nw, Node ne, Node sw, Node se) {
+			this.nw = nw;
+			this.ne = ne;
+			this.sw = sw;
+			this.se = se;
+			this.level = nw.level + 1;
+			this.population = nw.population + ne.population + sw.population + se.population;
+			this.hash = hash(nw, ne, sw, se);
+		}
+	}
+
+	public Hashlife() {
+		/*
+		 * Constructs a Hashlife engine for Conway's rule with the default node limit
+		 *
+		 **/
+
+		this(DEFAULT_MAX_NODES, Rule.CONWAY);
+	}
+
+	public Hashlife(int maxNodes, Rule rule) {
+		/*
+		 * Constructs a Hashlife engine for the given rule that keeps about maxNodes canonical nodes at most
+		 *
+		 **/
+
+		if (rule.hasB0()) {
+			throw new IllegalArgumentException("Hashlife can't run " + rule + ", empty space would come alive");
+		}
+		this.rule = rule;
+		setMaxNodes(maxNodes);
+		table = new Node[1 << 10];
+	}
+
+	public void setMaxNodes(int maxNodes) {
+		/*
+		 * Sets how many nodes the table may hold before it gets cleaned out
+		 *
+		 **/
+
+		if (maxNodes < 1024) {
+			throw new IllegalArgumentException("Hashlife needs room for at least 1024 nodes, got " + maxNodes);
+		}
+		this.maxNodes = maxNodes;
+	}
+
+	public int getNodeCount() {
+		/*
+		 * Returns number of nodes currently in the table
+		 *
+		 **/
+
+		return size;
+	}
+
+	public long getEvictions() {
+		/*
+		 * Returns how many times the table has been cleaned out
+		 *
+		 **/
+
+		return evictions;
+	}
+
+	public void advance(LifeBoard board, long generations) {
+		/*
+		 * Moves board forward the given number of generations
+		 *
+		 **/
+
+		if (generations < 0) {
+			throw new IllegalArgumentException("Can't advance a negative number of generations: " + generations);
+		}
+		Node root = build(board);
+		for (int j = 62; j >= 0; j--) {
+			if ((generations & (1L << j)) == 0) {
+				continue;
+			}
+			root = expandFor(root, j);
+			root = step(root, j);
+			if (size > maxNodes) {
+				root = collect(root);
+			}
+		}
+		board.clear();
+		long half = root.level == 0 ? 0 : 1L << (root.level - 1);
+		write(board, root, -half, -half);
+	}
+
+	private Node build(LifeBoard board) {
+		/*
+		 * Returns a root node centered on the origin that holds every alive cell of board
+		 *
+		 **/
+
+		final LongList cells = new LongList();
+		final long[] reach = new long[1];
+		board.forEachAliveCell(new CellVisitor() {
+			public void visit(int x, int y) {
+				cells.add(CellSet.pack(x, y));
+				reach[0] = Math.max(reach[0], Math.max(Math.abs((long) x), Math.abs((long) y)));
+			}
+		});
+		int level = BASE_LEVEL;
+		while ((1L << (level - 1)) <= reach[0] + 1L) {
+			level++;
+		}
+		long half = 1L << (level - 1);
+		return build(cells.toArray(), 0, cells.size(), level, -half, -half);
+	}
+
+	private Node build(long[] cells, int from, int to, int level, long x0, long y0) {
+		/*
+		 * Returns the node of the given level whose top-left corner is (x0, y0)
+		 * cells[from, to) are exactly the cells inside it, and get reordered by quadrant
+		 *
+		 **/
+
+		if (from == to) {
+			return empty(level);
+		}
+		if (level == 0) {
+			return alive;
+		}
+		long half = 1L << (level - 1);
+		// split into top and bottom, then each of those into left and right
+		int bottom = partition(cells, from, to, false, y0 + half);
+		int topRight = partition(cells, from, bottom, true, x0 + half);
+		int bottomRight = partition(cells, bottom, to, true, x0 + half);
+		return join(build(cells, from, topRight, level - 1, x0, y0),
+				build(cells, topRight, bottom, level - 1, x0 + half, y0),
+				build(cells, bottom, bottomRight, level - 1, x0, y0 + half),
+				build(cells, bottomRight, to, level - 1, x0 + half, y0 + half));
+	}
+
+	private static int partition(long[] cells, int from, int to, boolean byX, long split) {
+		/*
+		 * Moves the cells below split (in x or y) to the front, returns where the rest start
+		 *
+		 **/
+
+		int i = from;
+		for (int k = from; k < to; k++) {
+			long cell = cells[k];
+			long value = byX ? CellSet.unpackX(cell) : CellSet.unpackY(cell);
+			if (value < split) {
+				cells[k] = cells[i];
+				cells[i++] = cell;
+			}
+		}
+		return i;
+	}
+
+	private void write(LifeBoard board, Node node, long x0, long y0) {
+		/*
+		 * Adds every alive cell of node, whose top-left corner is (x0, y0), to board
+		 *
+		 **/
+
+		if (node.population == 0) {
+			return;
+		}
+		if (node.level == 0) {
+			if (x0 < Integer.MIN_VALUE || x0 > Integer.MAX_VALUE || y0 < Integer.MIN_VALUE || y0 > Integer.MAX_VALUE) {
+				throw new IllegalStateException("Pattern grew past the int coordinate range at (" + x0 + ", " + y0 + ")");
+			}
+			board.add((int) x0, (int) y0);
+			return;
+		}
+		long half = 1L << (node.level - 1);
+		write(board, node.nw, x0, y0);
+		write(board, node.ne, x0 + half, y0);
+		write(board, node.sw, x0, y0 + half);
+		write(board, node.se, x0 + half, y0 + half);
+	}
+
+	private Node expandFor(Node root, int j) {
+		/*
+		 * Grows root until it is big enough to step 2^j generations and the pattern sits
+		 * in its middle quarter, so nothing can reach the part step() cuts off
+		 *
+		 **/
+
+		while (root.level < j + 3 || !centered(root)) {
+			root = expand(root);
+		}
+		return root;
+	}
+
+	private static boolean centered(Node root) {
+		/*
+		 * Returns true if all of root's population is in its middle quarter
+		 *
+		 **/
+
+		return root.population == root.nw.se.se.population + root.ne.sw.sw.population
+				+ root.sw.ne.ne.population + root.se.nw.nw.population;
+	}
+
+	private Node expand(Node node) {
+		/*
+		 * Returns a node twice as big with node in its middle
+		 *
+		 **/
+
+		Node border = empty(node.level - 1);
+		return join(join(border, border, border, node.nw),
+				join(border, border, node.ne, border),
+				join(border, node.sw, border, border),
+				join(node.se, border, border, border));
+	}
+
+	private Node collect(Node root) {
+		/*
+		 * Starts a new table with just the nodes of root, dropping every memoized result
+		 *
+		 **/
+
+		evictions++;
+		table = new Node[table.length];
+		size = 0;
+		emptyNodes = new Node[emptyNodes.length];
+		return copy(root);
+	}
+
+	private Node copy(Node node) {
+		/*
+		 * Returns node interned into the current table
+		 *
+		 **/
+
+		if (node.level == 0) {
+			return node;
+		}
+		if (node.population == 0) {
+			return empty(node.level);
+		}
+		return join(copy(node.nw), copy(node.ne), copy(node.sw), copy(node.se));
+	}
+
+	private Node step(Node node, int j) {
+		/*
+		 * Returns the middle half of node advanced 2^j generations, see the top of the class
+		 *
+		 **/
+
+		if (node.population == 0) {
+			return empty(node.level - 1);
+		}
+		if (node.nextStep == j) {
+			return node.next;
+		}
+		Node result;
+		if (node.level == BASE_LEVEL) {
+			result = stepBase(node);
+		}
+		else {
+			Node n00 = node.nw, n01 = centerTop(node), n02 = node.ne;
+			Node n10 = centerLeft(node), n11 = center(node), n12 = centerRight(node);
+			Node n20 = node.sw, n21 = centerBottom(node), n22 = node.se;
+
+			boolean fullSpeed = j == node.level - 2;
+			Node r00 = fullSpeed ? step(n00, j - 1) : center(n00);
+			Node r01 = fullSpeed ? step(n01, j - 1) : center(n01);
+			Node r02 = fullSpeed ? step(n02, j - 1) : center(n02);
+			Node r10 = fullSpeed ? step(n10, j - 1) : center(n10);
+			Node r11 = fullSpeed ? step(n11, j - 1) : center(n11);
+			Node r12 = fullSpeed ? step(n12, j - 1) : center(n12);
+			Node r20 = fullSpeed ? step(n20, j - 1) : center(n20);
+			Node r21 = fullSpeed ? step(n21, j - 1) : center(n21);
+			Node r22 = fullSpeed ? step(n22, j - 1) : center(n22);
+
+			int second = fullSpeed ? j - 1 : j;
+			result = join(step(join(r00, r01, r10, r11), second),
+					step(join(r01, r02, r11, r12), second),
+					step(join(r10, r11, r20, r21), second),
+					step(join(r11, r12, r21, r22), second));
+		}
+		node.nextStep = j;
+		node.next = result;
+		return result;
+	}
+
+	private Node stepBase(Node node) {
+		/*
+		 * Returns the middle 2x2 of a 4x4 node after one generation
+		 *
+		 **/
+
+		// bit (4 * y + x) of the 4x4 square
+		int bits = 0;
+		for (int y = 0; y < 4; y++) {
+			for (int x = 0; x < 4; x++) {
+				Node quadrant = y < 2 ? (x < 2 ? node.nw : node.ne) : (x < 2 ? node.sw : node.se);
+				Node cell = (y & 1) == 0 ? ((x & 1) == 0 ? quadrant.nw : quadrant.ne) : ((x & 1) == 0 ? quadrant.sw : quadrant.se);
+				if (cell == alive) {
+					bits |= 1 << (4 * y + x);
+				}
+			}
+		}
+		return join(nextCell(bits, 1, 1), nextCell(bits, 2, 1), nextCell(bits, 1, 2), nextCell(bits, 2, 2));
+	}
+
+	private Node nextCell(int bits, int x, int y) {
+		/*
+		 * Returns the next state of cell (x, y) of a 4x4 square under the rule
+		 *
+		 **/
+
+		int neighborhood = 0;
+		for (int dy = -1; dy <= 1; dy++) {
+			for (int dx = -1; dx <= 1; dx++) {
+				if ((bits & (1 << (4 * (y + dy) + x + dx))) != 0) {
+					neighborhood |= 1 << (3 * (dy + 1) + dx + 1);
+				}
+			}
+		}
+		return rule.next(neighborhood) ? alive : dead;
+	}
+
+	private Node center(Node node) {
+		return join(node.nw.se, node.ne.sw, node.sw.ne, node.se.nw);
+	}
+
+	private Node centerTop(Node node) {
+		return join(node.nw.ne, node.ne.nw, node.nw.se, node.ne.sw);
+	}
+
+	private Node centerBottom(Node node) {
+		return join(node.sw.ne, node.se.nw, node.sw.se, node.se.sw);
+	}
+
+	private Node centerLeft(Node node) {
+		return join(node.nw.sw, node.nw.se, node.sw.nw, node.sw.ne);
+	}
+
+	private Node centerRight(Node node) {
+		return join(node.ne.sw, node.ne.se, node.se.nw, node.se.ne);
+	}
+
+	private Node empty(int level) {
+		/*
+		 * Returns the canonical empty node of the given level
+		 *
+		 **/
+
+		if (level == 0) {
+			return dead;
+		}
+		Node node = emptyNodes[level];
+		if (node == null) {
+			Node child = empty(level - 1);
+			node = join(child, child, child, child);
+			emptyNodes[level] = node;
+		}
+		return node;
+	}
+
+	private Node join(Node nw, Node ne, Node sw, Node se) {
+		/*
+		 * Returns the canonical node made of the four given children
+		 *
+		 **/
+
+		int hash = hash(nw, ne, sw, se);
+		int slot = hash & (table.length - 1);
+		for (Node node = table[slot]; node != null; node = node.chain) {
+			if (node.hash == hash && node.nw == nw && node.ne == ne && node.sw == sw && node.se == se) {
+				return node;
+			}
+		}
+		Node node = new Node(nw, ne, sw, se);
+		if (size >= 2 * maxNodes) {
+			// a single step overflowed the table, drop it and keep going without sharing the old nodes
+			evictions++;
+			table = new Node[table.length];
+			size = 0;
+			emptyNodes = new Node[emptyNodes.length];
+			slot = hash & (table.length - 1);
+		}
+		node.chain = table[slot];
+		table[slot] = node;
+		if (++size > table.length) {
+			rehash();
+		}
+		return node;
+	}
+
+	private void rehash() {
+		/*
+		 * Doubles the number of buckets in the table
+		 *
+		 **/
+
+		Node[] oldTable = table;
+		table = new Node[oldTable.length * 2];
+		for (Node head : oldTable) {
+			Node node = head;
+			while (node != null) {
+				Node chain = node.chain;
+				int slot = node.hash & (table.length - 1);
+				node.chain = table[slot];
+				table[slot] = node;
+				node = chain;
+			}
+		}
+	}
+
+	private static int hash(Node nw, Node ne, Node sw, Node se) {
+		/*
+		 * Combines the hashes of four children
+		 *
+		 **/
+
+		int h = nw.hash;
+		h = h * 0x9E3779B1 + ne.hash;
+		h = h * 0x9E3779B1 + sw.hash;
+		h = h * 0x9E3779B1 + se.hash;
+		h = h * 0x85EBCA6B + nw.level;
+		return h ^ (h >>> 16);
+	}
+}
@@ -1,6 +1,7 @@
 import java.awt.Color;
 import java.awt.Graphics;
-import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
 import javax.swing.JPanel;
 
 /*
@@ -20,8 +21,13 @@ public class InfiniteBoardPanel extends JPanel{
 	 */
 	
 	private InfiniteGameOfLife game;
+	private Simulation simulation;
 	private int[] bounds;
-	private boolean canZoomOut = true;
+	private final RasterRenderer renderer = new RasterRenderer();
+	private LifeMetrics metrics;
+	// sequence number of the snapshot the renderer's image shows, 0 for none
+	private long paintedSequence;
+	private static final long[] NO_CHANGES = new long[0];
 	
 	public InfiniteBoardPanel(InfiniteGameOfLife g){
 		game = g;
@@ -30,6 +36,16 @@ public class InfiniteBoardPanel extends JPanel{
 		bounds = new int[] {-20, 20, -20, 20};
 	}
 	
+	public InfiniteBoardPanel(Simulation s){
+		/* 
+		 * Shows the newest snapshot of a game running on its own thread
+		 * instead of reading the game directly
+		 * 
+		 **/
+		simulation = s;
+		bounds = new int[] {-20, 20, -20, 20};
+	}
+	
 	public void setBoundaries(int[] bounds) {
 		/* 
 		 * Updates boundaries to display
@@ -52,10 +68,17 @@ public class InfiniteBoardPanel extends JPanel{
 		 * 
 		 **/
 		
-		int numSquaresX = bounds[1] - bounds[0] + 1;
-		int numSquaresY = bounds[3] - bounds[2] + 1;
 		int panelWidth = getWidth();
 		int panelHeight = getHeight();
+		int shift = zoomShift(panelWidth, panelHeight);
+		if (shift >= 0) {
+			int originX = zoomedOutOrigin(bounds[0], bounds[1], panelWidth, shift);
+			int originY = zoomedOutOrigin(bounds[2], bounds[3], panelHeight, shift);
+			return new int[] {originX, (int) Math.min(Integer.MAX_VALUE, originX + ((long) panelWidth << shift) - 1),
+					originY, (int) Math.min(Integer.MAX_VALUE, originY + ((long) panelHeight << shift) - 1)};
+		}
+		int numSquaresX = bounds[1] - bounds[0] + 1;
+		int numSquaresY = bounds[3] - bounds[2] + 1;
 		int squareSideX = panelWidth / numSquaresX;
 		int squareSideY = panelHeight / numSquaresY;
 		int BoundedWindowWidth = numSquaresX * squareSideX; 
@@ -67,55 +90,219 @@ public class InfiniteBoardPanel extends JPanel{
 	
 	public boolean canZoomOut() {
 		/* 
-		 * Returns false if dimensions of each cell are too small to zoom out
+		 * Returns false once each pixel already covers as many cells as the renderer allows
+		 * 
+		 **/
+
+		return zoomShift(getWidth(), getHeight()) < RasterRenderer.MAX_SHIFT;
+	}
+
+	public int[] toCellDistance(int pixelsX, int pixelsY) {
+		/* 
+		 * Returns how many cells {across, down} the given distance in pixels covers
+		 * 
+		 **/
+
+		int panelWidth = getWidth();
+		int panelHeight = getHeight();
+		int shift = zoomShift(panelWidth, panelHeight);
+		if (shift >= 0) {
+			shift = Math.min(shift, RasterRenderer.MAX_SHIFT);
+			return new int[] {pixelsX << shift, pixelsY << shift};
+		}
+		int squareSideX = panelWidth / (bounds[1] - bounds[0] + 1);
+		int squareSideY = panelHeight / (bounds[3] - bounds[2] + 1);
+		return new int[] {pixelsX / squareSideX, pixelsY / squareSideY};
+	}
+
+	public void setMetrics(LifeMetrics metrics) {
+		/* 
+		 * Records how long every paint takes into metrics, or stops if metrics is null
+		 * 
+		 **/
+
+		this.metrics = metrics;
+	}
+
+	public void setDensityShading(boolean densityShading) {
+		/* 
+		 * Chooses how pixels covering several cells are shaded: by the fraction of them
+		 * that are alive, or white as soon as any of them is
+		 * 
+		 **/
+
+		renderer.setDensityShading(densityShading);
+	}
+
+	public boolean isDensityShading() {
+		/* 
+		 * Returns true if pixels covering several cells are shaded by density
+		 * 
+		 **/
+
+		return renderer.isDensityShading();
+	}
+
+	public void repaintChanged() {
+		/* 
+		 * Repaints what changed between the snapshot painted last and the newest one, or
+		 * everything if that isn't known (see BoardSnapshot.getChangedBlocks())
+		 * 
+		 **/
+
+		int panelWidth = getWidth();
+		int panelHeight = getHeight();
+		BoardSnapshot snapshot = simulation == null ? null : simulation.peek();
+		if (snapshot == null || snapshot.getSequence() != paintedSequence + 1 || zoomShift(panelWidth, panelHeight) >= 0) {
+			repaint();
+			return;
+		}
+		long[] changes = snapshot.getChangedBlocks();
+		if (changes == null) {
+			repaint();
+			return;
+		}
+		int[] cells = zoomedInCells(panelWidth, panelHeight);
+		Rectangle dirty = null;
+		for (long block : changes) {
+			long left = (((long) CellSet.unpackX(block) << BoardSnapshot.BLOCK_SHIFT) - cells[0]) * cells[2];
+			long top = (((long) CellSet.unpackY(block) << BoardSnapshot.BLOCK_SHIFT) - cells[1]) * cells[3];
+			long right = Math.min(left + (long) BoardSnapshot.BLOCK_SIZE * cells[2], panelWidth);
+			long bottom = Math.min(top + (long) BoardSnapshot.BLOCK_SIZE * cells[3], panelHeight);
+			left = Math.max(left, 0);
+			top = Math.max(top, 0);
+			if (left < right && top < bottom) {
+				Rectangle pixels = new Rectangle((int) left, (int) top, (int) (right - left), (int) (bottom - top));
+				dirty = dirty == null ? pixels : dirty.union(pixels);
+			}
+		}
+		if (dirty != null) {
+			repaint(dirty);
+		}
+		else {
+			// nothing visible changed, but painting still takes the snapshot and asks for the next one
+			repaint(0, 0, 1, 1);
+		}
+	}
+
+	private int[] zoomedInCells(int panelWidth, int panelHeight) {
+		/* 
+		 * Returns {first cell across, first cell down, pixels per cell across, pixels per
+		 * cell down} when every cell of the bounds gets at least one pixel
 		 * 
 		 **/
 
-		return canZoomOut;
+		int numSquaresX = bounds[1] - bounds[0] + 1;
+		int numSquaresY = bounds[3] - bounds[2] + 1;
+		int squareSideX = panelWidth / numSquaresX;
+		int squareSideY = panelHeight / numSquaresY;
+		int BoundedWindowWidth = numSquaresX * squareSideX; 
+		int BoundedWindowHeight = numSquaresY * squareSideY; 
+		int numSquaresLeftOverX = (panelWidth - BoundedWindowWidth) / squareSideX;
+		int numSquaresLeftOverY = (panelHeight - BoundedWindowHeight) / squareSideY;
+		return new int[] {bounds[0] - numSquaresLeftOverX / 2, bounds[2] - numSquaresLeftOverY / 2, squareSideX, squareSideY};
 	}
+
+	private int zoomShift(int panelWidth, int panelHeight) {
+		/* 
+		 * Returns -1 if every cell of the bounds gets at least one pixel, otherwise the
+		 * smallest k such that 2^k x 2^k cells per pixel fit the bounds on the panel
+		 * 
+		 **/
+
+		long numSquaresX = (long) bounds[1] - bounds[0] + 1;
+		long numSquaresY = (long) bounds[3] - bounds[2] + 1;
+		if (panelWidth <= 0 || panelHeight <= 0 || (numSquaresX <= panelWidth && numSquaresY <= panelHeight)) {
+			return -1;
+		}
+		long cellsPerPixel = Math.max((numSquaresX + panelWidth - 1) / panelWidth, (numSquaresY + panelHeight - 1) / panelHeight);
+		return 64 - Long.numberOfLeadingZeros(cellsPerPixel - 1);
+	}
+
+	private static int zoomedOutOrigin(int low, int high, int pixels, int shift) {
+		/* 
+		 * Returns the first cell shown when pixels pixels of 2^shift cells each are
+		 * centered on low..high
+		 * 
+		 **/
+
+		long center = ((long) low + high) / 2;
+		long origin = center - ((long) pixels << shift) / 2;
+		return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, origin));
+	}
+
 	/**
 	 * Paints the current state of the Game of Life board onto
 	 * this panel. This method is invoked for you each time you
 	 * call repaint() on either this object or on the JFrame upon
 	 * which this panel is placed.
+	 * 
+	 * The alive cells in the window are written straight into the pixels
+	 * of an image that is then drawn in one go, so the time this takes
+	 * depends on how many alive cells are visible rather than on how many
+	 * cells fit in the window. Once the bounds no longer fit with one pixel
+	 * per cell every pixel covers 2^k x 2^k cells instead.
+	 * 
+	 * When showing a Simulation this draws whatever snapshot is newest,
+	 * so generations published between two paints are skipped. Zoomed in,
+	 * a snapshot that directly follows the one painted before only has
+	 * its changed blocks redrawn into the image kept from that paint, and
+	 * a pan only the cells that came into view (see RasterRenderer.renderChanges()).
 	 */
 	public void paintComponent(Graphics g){
-		Graphics2D g2 = (Graphics2D)g;
-		// TODO this is where you need to draw the current state of the board
-		int numSquaresX = bounds[1] - bounds[0] + 1;
-		int numSquaresY = bounds[3] - bounds[2] + 1;
+		if (metrics == null) {
+			paintBoard(g);
+			return;
+		}
+		long start = System.nanoTime();
+		paintBoard(g);
+		metrics.recordFrame(System.nanoTime() - start);
+	}
+
+	private void paintBoard(Graphics g){
 		int panelWidth = getWidth();
 		int panelHeight = getHeight();
-		int squareSideX = panelWidth / numSquaresX;
-		int squareSideY = panelHeight / numSquaresY;
-		if (canZoomOut == false && squareSideX > 2 && squareSideY > 2) {
-			canZoomOut = true;
+		if (panelWidth <= 0 || panelHeight <= 0) {
+			return;
 		}
-		if (squareSideX < 2) {
-			squareSideX = 2;
-			canZoomOut = false;
+		BoardView game = simulation != null ? simulation.latest() : this.game;
+		if (game == null) {
+			// nothing published yet
+			g.setColor(Color.BLACK);
+			g.fillRect(0, 0, panelWidth, panelHeight);
+			return;
 		}
-		if (squareSideY < 2) {
-			squareSideY = 2;
-			canZoomOut = false;
+		BufferedImage image;
+		int shift = zoomShift(panelWidth, panelHeight);
+		if (shift >= 0) {
+			shift = Math.min(shift, RasterRenderer.MAX_SHIFT);
+			int originX = zoomedOutOrigin(bounds[0], bounds[1], panelWidth, shift);
+			int originY = zoomedOutOrigin(bounds[2], bounds[3], panelHeight, shift);
+			image = renderer.renderZoomedOut(game, panelWidth, panelHeight, originX, originY, shift);
 		}
-		int BoundedWindowWidth = numSquaresX * squareSideX; 
-		int BoundedWindowHeight = numSquaresY * squareSideY; 
-		int numSquaresLeftOverX = (panelWidth - BoundedWindowWidth) / squareSideX;
-		int numSquaresLeftOverY = (panelHeight - BoundedWindowHeight) / squareSideY;
-		for (int i = bounds[2] - numSquaresLeftOverY / 2; i < bounds[3] + numSquaresLeftOverY / 2; i++) {
-			for (int j = bounds[0] - numSquaresLeftOverX / 2; j < bounds[1]  + numSquaresLeftOverX / 2; j++) {
-				if (game.isAlive(j, i)) {
-					g2.setColor(Color.WHITE);
-				}
-				else {
-					g2.setColor(Color.BLACK);
-				}
-				g2.fillRect((j - bounds[0] + numSquaresLeftOverX / 2) * squareSideX, (i - bounds[2] + numSquaresLeftOverY / 2) * squareSideY, squareSideX, squareSideY);
-				g2.setColor(Color.BLACK);
-				g2.drawRect((j - bounds[0] + numSquaresLeftOverX / 2) * squareSideX, (i - bounds[2] + numSquaresLeftOverY / 2) * squareSideY, squareSideX, squareSideY);
-				
+		else if (game instanceof BoardSnapshot) {
+			int[] cells = zoomedInCells(panelWidth, panelHeight);
+			BoardSnapshot snapshot = (BoardSnapshot) game;
+			long[] changes = null;
+			if (snapshot.getSequence() == paintedSequence) {
+				changes = NO_CHANGES;
+			}
+			else if (snapshot.getSequence() == paintedSequence + 1) {
+				changes = snapshot.getChangedBlocks();
 			}
+			image = renderer.renderChanges(snapshot, panelWidth, panelHeight, cells[0], cells[1], cells[2], cells[3], changes);
+		}
+		else {
+			int[] cells = zoomedInCells(panelWidth, panelHeight);
+			image = renderer.render(game, panelWidth, panelHeight, cells[0], cells[1], cells[2], cells[3]);
+		}
+		paintedSequence = game instanceof BoardSnapshot ? ((BoardSnapshot) game).getSequence() : 0;
+		// the image changed outside of what this paint shows, so show the rest too
+		Rectangle dirty = renderer.getDirtyBounds();
+		Rectangle clip = g.getClipBounds();
+		if (dirty != null && clip != null && !clip.contains(dirty)) {
+			repaint(dirty);
 		}
+		g.drawImage(image, 0, 0, null);
 	}
 }
@@ -1,63 +1,111 @@
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
-public class InfiniteGameOfLife {
+public class InfiniteGameOfLife implements BoardView {
 	/* 
 	 * Infinite Game of Life Engine
 	 * 
-	 * My implementation of this is pretty simple. I use a hashmap to 
-	 * store all alive cells. It maps a coordinate (separate class I made) 
-	 * to an Integer that represents state. Obviously the only possible state is ALIVE (1).
-	 * If I access the hashmap for a coordinate that is alive, it returns 1. If I access it
-	 * for a coordinate that's dead, it returns null because the coordinate is not in it.
+	 * My implementation of this is pretty simple. The alive cells are stored in a
+	 * LifeBoard, and only the alive cells are stored, so a cell that isn't on the board is dead.
+	 * This ties the complexity of my program to the number of alive cells rather than the
+	 * dimensions, which can get very big and full of empty space.
 	 * 
-	 * Many of the methods are the same as in GameOfLife, however, there is one major difference
-	 * in the way I use countLivingNeighbors(). 
-	 * In my nextGen(), I loop through each of my alive cells. However, I can't simply just count
-	 * neighbors for each alive cell. I also have to check if the dead neighbors can
-	 * be revived. This is crucial because I am significantly reducing the amount of dead cells I check versus
-	 * just looping through all of the dead cells. This also ties the complexity of my program to 
-	 * the number of alive cells rather than the dimensions, which can get very big and full of empty space. 
-	 * For each of the dead cells I then use the original countLivingNeighbors().
+	 * Originally this was a HashMap<Coordinate, Integer>, but that allocates a Coordinate on every
+	 * lookup and costs around 90 bytes per cell. There are now two backends to pick from when
+	 * constructing the game (see Backend):
+	 * CELL_SET packs each cell into a long in a primitive hash set (CellSetBoard), which is best
+	 * for sparse patterns spread out over a huge area, and TILED splits the plane into 64x64
+	 * bit-packed tiles (TiledBoard), which is much smaller and faster for dense patterns.
+	 * See those classes for how each one computes nextGen().
 	 * 
-	 * I also have willBeAlive() broken up into two, aliveToDead() and deadToAlive() since I am now checking the
-	 * dead and alive cells separately.
+	 * To jump far ahead, advance() hands the board to a Hashlife engine, which can skip
+	 * huge powers of two of generations at once (see Hashlife). Short jumps just call nextGen().
+	 * 
+	 * With setHistory() the game also keeps recent generations as deltas and keyframes in a
+	 * GenerationHistory, so seekTo() can step backwards or scrub to any recorded generation.
+	 * The rule is Conway's B3/S23 unless setRule() picks another Life-like Rule. Rules with
+	 * B0 make the empty background come alive, so then the board holds the cells that
+	 * differ from the background and every step uses the Rule rewritten for it
+	 * (see Rule.forBackground()).
+	 * 
+	 * With setCycleDetection() every nextGen() also checks if the board went back to one of
+	 * the last few generations, maybe moved, and getCycle() says how (see CycleDetector).
+	 * 
+	 * setTopology() can also bound the board, wrapping it into a torus or clipping it to a
+	 * rectangle (see Topology), so a runaway pattern can't take more than a known amount
+	 * of memory. Coordinates on a torus wrap around, so (width, 0) is the same cell as (0, 0).
+	 * 
+	 * setMetrics() makes every nextGen() time itself and record its births, deaths and
+	 * allocations in a LifeMetrics, which can be watched over JMX, and also commit a
+	 * GenerationEvent whenever Flight Recorder is recording. Without metrics nextGen()
+	 * doesn't read the clock or touch Flight Recorder at all.
 	 * 
 	 * 
 	 **/
 
-	private HashMap<Coordinate, Integer> board;
-	private int ALIVE = 1;
-	private int gen;
-	private static final int LONELINESS_UPPER_THRESHOLD = 1;
-	private static final int BIRTH_VALUE = 3;
-	private static final int OVERCROWDING_LOWER_THRESHOLD = 4;
+	public enum Backend {
+		CELL_SET,
+		TILED
+	}
+
+	private LifeBoard board;
+	private Backend backend;
+	private Hashlife hashlife;
+	private int hashlifeMaxNodes = Hashlife.DEFAULT_MAX_NODES;
+	private long gen;
+	private Rule rule = Rule.CONWAY;
+	private Topology topology = Topology.PLANE;
+	private boolean backgroundAlive;
+	private GenerationHistory history;
+	// true when the board was changed by hand since it last matched a recorded generation
+	private boolean edited;
+	private CycleDetector cycles;
+	private Cycle cycle;
+	// true when the board changed in some other way than a step since the cycle detector last hashed it
+	private boolean rehash;
+	private LifeMetrics metrics;
+	private BoardSnapshot lastSnapshot;
+	private long snapshots;
+	// blocks with a cell born or killed by a step since the last snapshot, null until a snapshot's changes are used
+	private CellSet changedBlocks;
+	// true when the board changed in some other way than a step (or too much) since the last snapshot
+	private boolean allChanged = true;
+	private final CellVisitor markChanged = new CellVisitor() {
+		public void visit(int x, int y) {
+			changedBlocks.add(CellSet.pack(x >> BoardSnapshot.BLOCK_SHIFT, y >> BoardSnapshot.BLOCK_SHIFT));
+		}
+	};
+	private int parallelism = 1;
+	private static final int HASHLIFE_MIN_GENERATIONS = 256;
 	private static final int[][] NEIGHBORS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}, {-1, -1}, {1, 1}, {1, -1}, {-1, 1}};
 
 	
 	public String toString() {
 		/* 
 		 * Returns a string representation of the board
+		 * Appends to one builder sized up front, so this is linear in the size of the board
+		 * (use PatternWriter to save big boards without building a string at all)
 		 *  
 		 **/
 
 		int[] bounds = getBounds();
-		String toReturn = "";
+		if (bounds == null) {
+			return "";
+		}
+		long width = (long) bounds[1] - bounds[0] + 1;
+		long height = (long) bounds[3] - bounds[2] + 1;
+		StringBuilder toReturn = new StringBuilder((int) Math.min(Integer.MAX_VALUE - 8, (2 * width + 1) * height));
 		for (int y = bounds[2]; y <= bounds[3]; y++) {
 			for (int x = bounds[0]; x <= bounds[1]; x++) {
-				if (board.get(new Coordinate(x, y)) != null) {
-					toReturn += "1 ";
+				if (isAlive(x, y)) {
+					toReturn.append("1 ");
 				}
 				else {
-					toReturn += "0 ";
+					toReturn.append("0 ");
 				}
 			}
-			toReturn += "\n";
+			toReturn.append('\n');
 		}
-		return toReturn;
+		return toReturn.toString();
 	}
 	
 	public InfiniteGameOfLife() {
@@ -67,17 +115,113 @@ public class InfiniteGameOfLife {
 		 * 
 		 **/
 		
-		board = new HashMap<Coordinate, Integer>();	
+		this(Backend.CELL_SET);
+	}
+
+	public InfiniteGameOfLife(Backend backend) {
+		/* 
+		 *
+		 * Constructs a new Infinite Game of Life stored in the given backend
+		 * 
+		 **/
+		
+		this.backend = backend;
+		board = newBoard(backend);
 		gen = 0;
 	}
+
+	private static LifeBoard newBoard(Backend backend) {
+		/* 
+		 * Returns an empty board of the given backend
+		 * 
+		 **/
+
+		if (backend == Backend.TILED) {
+			return new TiledBoard();
+		}
+		return new CellSetBoard();
+	}
+
+	public long getActiveCells() {
+		/* 
+		 * Returns how many cells the last nextGen() actually looked at
+		 * Boards that settled into still lifes and blinkers skip most of their cells,
+		 * compare with getStepPopulation() to see how much
+		 * 
+		 **/
+
+		return board.getActiveCells();
+	}
+
+	public long getBirths() {
+		/* 
+		 * Returns how many cells were born in the last nextGen()
+		 * Under a rule with B0 these are the cells that started to differ from the background
+		 * 
+		 **/
+
+		return board.getBirths();
+	}
+
+	public long getDeaths() {
+		/* 
+		 * Returns how many cells died in the last nextGen()
+		 * 
+		 **/
+
+		return board.getBirths() + board.getStepPopulation() - board.getPopulation();
+	}
+
+	public long getStepPopulation() {
+		/* 
+		 * Returns how many cells were alive going into the last nextGen()
+		 * 
+		 **/
+
+		return board.getStepPopulation();
+	}
+
+	public void setParallelism(int parallelism) {
+		/* 
+		 * Sets how many threads nextGen() may use (1 by default)
+		 * The generations are exactly the same whatever the parallelism
+		 * 
+		 **/
+
+		board.setParallelism(parallelism);
+		this.parallelism = parallelism;
+	}
+
+	public Backend getBackend() {
+		/* 
+		 * Returns the backend the board is stored in
+		 * 
+		 **/
+
+		return backend;
+	}
 	
 	public void addAliveCell(int x, int y) {
 		/* 
 		 * Adds a new Alive Cell at given coordinates
+		 * Does nothing outside a clip rectangle, where cells are always dead
 		 * 
 		 **/
 
-		board.put(new Coordinate(x, y), ALIVE);
+		if (topology.isOutside(x, y)) {
+			return;
+		}
+		x = topology.wrapX(x);
+		y = topology.wrapY(y);
+		if (backgroundAlive) {
+			board.remove(x, y);
+		}
+		else {
+			board.add(x, y);
+		}
+		edited = true;
+		rehash = true;
+		allChanged = true;
 	}
 	
 	public void clear() {
@@ -87,47 +231,114 @@ public class InfiniteGameOfLife {
 		 * 
 		 **/
 
-		board = new HashMap<Coordinate, Integer>();
+		board.clear();
+		backgroundAlive = false;
 		this.gen = 0;
+		edited = true;
+		rehash = true;
+		allChanged = true;
+		cycle = null;
 	}
 
-	private int[] getBounds() {
+	public int[] getBounds() {
 		/* 		 
-		 * Returns bounds for the smallest window that shows all alive cells
-		 * Used in toString()
+		 * Returns bounds {xLow, xHigh, yLow, yHigh} for the smallest window that shows all alive
+		 * cells (the dead ones if isBackgroundAlive()), or null if there are none
+		 * The board keeps them up to date as cells are born and die, so this is O(1) unless
+		 * the last cell on one of the edges just died
 		 * 
 		 **/
 
-		int largestY = 0;
-		int largestX = 0;
-		int smallestY = 0;
-		int smallestX = 0;
-		for (Coordinate c : board.keySet()) {
-			if (c.getY() > largestY) {
-				largestY = c.getY();
-			}
-			if (c.getX() > largestX) {
-				largestX = c.getX();
-			}
-			if (c.getY() < smallestY) {
-				smallestY = c.getY();
-			}
-			if (c.getX() < smallestX) {
-				smallestX = c.getX();
-			}
-		}
-		
-		return new int[] {smallestX, largestX, smallestY, largestY};
+		return board.getBounds();
+	}
+
+	public long getPopulation() {
+		/* 		 
+		 * Returns how many cells are alive (dead if isBackgroundAlive()), without counting them
+		 * 
+		 **/
+
+		return board.getPopulation();
 	}
 		
 	
+	public void forEachAliveCell(CellVisitor visitor) {
+		/* 
+		 * Calls visitor once for every alive cell, in no particular order
+		 * (every dead cell instead if isBackgroundAlive())
+		 * 
+		 **/
+
+		board.forEachAliveCell(visitor);
+	}
+	
+	public void forEachAliveCellIn(int[] bounds, CellVisitor visitor) {
+		/* 
+		 * Calls visitor once for every alive cell inside the given bounds {xLow, xHigh, yLow, yHigh}
+		 * (inclusive, same as randomSetup()). Used by the display to draw only the alive cells
+		 * Lists the dead cells instead if isBackgroundAlive()
+		 * 
+		 **/
+
+		board.forEachAliveCellIn(bounds[0], bounds[1], bounds[2], bounds[3], visitor);
+	}
+	
+	public BoardSnapshot snapshot() {
+		/* 
+		 * Returns an immutable copy of the current generation that other threads can read
+		 * while this game keeps changing
+		 * 
+		 **/
+
+		// the last snapshot was drawn zoomed out, so keep a pyramid up to date here, cloning it beats building one per copy
+		if (lastSnapshot != null && lastSnapshot.isPyramidWanted()) {
+			board.getDensityPyramid();
+		}
+		// the last snapshot was redrawn where it changed, so start listing changes for the ones to come
+		if (changedBlocks == null && lastSnapshot != null && lastSnapshot.isChangesWanted()) {
+			changedBlocks = new CellSet();
+			allChanged = true;
+		}
+		long[] changes = changedBlocks == null || allChanged ? null : changedBlocks.toArray();
+		lastSnapshot = new BoardSnapshot(board.copy(), gen, backgroundAlive, rule, topology, board.getPopulation(), board.getBounds(), ++snapshots, changes);
+		if (changedBlocks != null) {
+			changedBlocks.clear();
+			allChanged = false;
+		}
+		return lastSnapshot;
+	}
+
+	public DensityPyramid getDensityPyramid() {
+		/* 
+		 * Returns the populations of 64x64 tiles and blocks of them for drawing zoomed out
+		 * (see DensityPyramid), or null with the CELL_SET backend. Once asked for, the board
+		 * keeps them up to date as it steps
+		 * 
+		 **/
+
+		return board.getDensityPyramid();
+	}
+	
 	public void removeAliveCell(int x, int y) {
 		/* 
 		 * Removes alive cell at given location (if already dead does nothing)
 		 * 
 		 **/
 
-		board.remove(new Coordinate(x, y));
+		if (topology.isOutside(x, y)) {
+			return;
+		}
+		x = topology.wrapX(x);
+		y = topology.wrapY(y);
+		if (backgroundAlive) {
+			board.add(x, y);
+		}
+		else {
+			board.remove(x, y);
+		}
+		edited = true;
+		rehash = true;
+		allChanged = true;
 	}
 	
 	public boolean isAlive(int x, int y) {
@@ -135,32 +346,198 @@ public class InfiniteGameOfLife {
 		 * Returns true if cell is alive at given location
 		 * 
 		 **/
-		return (board.get(new Coordinate(x, y)) != null);
+		if (topology.isOutside(x, y)) {
+			return backgroundAlive;
+		}
+		return board.isAlive(topology.wrapX(x), topology.wrapY(y)) != backgroundAlive;
 	}
 	
 	public void randomSetup(int[] bounds) {
 		/* 
 		 * Randomizes a section of the board defined by inputed bounds
+		 * Every call gives a different soup, see the overload below for one that can be repeated
 		 * 
 		 **/
 
-		int xLow = bounds[0];
-		int xHigh = bounds[1];
-		int yLow = bounds[2];
-		int yHigh = bounds[3];
-		for (int i = yLow; i <= yHigh; i++) {
-			for (int j = xLow; j <= xHigh; j++) {
-				int randomState = (int)(Math.random() * 2);
-				if (randomState == 1) {
-					addAliveCell(j, i);						
-				}
-				else if (randomState == 0) {
-					removeAliveCell(j, i);
-				}
+		randomSetup(bounds, 0.5, ThreadLocalRandom.current().nextLong());
+	}
+
+	public void randomSetup(int[] bounds, double density, long seed) {
+		/* 
+		 * Replaces the section of the board defined by inputed bounds with a RandomSoup,
+		 * each cell alive with the given probability, and starts counting generations over
+		 * The same seed always gives the same soup. With a parallelism above 1 the soup is
+		 * generated on that many threads first, otherwise a band of rows at a time
+		 * 
+		 **/
+
+		RandomSoup soup = new RandomSoup(regionSize(bounds[0], bounds[1]), regionSize(bounds[2], bounds[3]), density, seed);
+		int words = soup.getWords();
+		if (parallelism > 1) {
+			setCells(bounds[0], bounds[2], soup.getWidth(), soup.getHeight(), soup.fill(parallelism), 0);
+		}
+		else {
+			long[] band = new long[RandomSoup.BAND_ROWS * words];
+			for (int i = 0; i < soup.getBands(); i++) {
+				soup.fillBand(i, band, 0);
+				int rows = Math.min(RandomSoup.BAND_ROWS, soup.getHeight() - i * RandomSoup.BAND_ROWS);
+				setCells(bounds[0], bounds[2] + i * RandomSoup.BAND_ROWS, soup.getWidth(), rows, band, 0);
 			}
 		}
 		this.gen = 0;
 	}
+
+	public void setCells(int x, int y, int width, int height, long[] bitmap) {
+		/* 
+		 * Replaces the width x height section of the board with its corner at (x, y) with a
+		 * bitmap, row after row of (width + 63) / 64 words, where bit i of word w of row r is
+		 * the cell (x + 64 w + i, y + r). The words go into the board 64 cells at a time
+		 * 
+		 **/
+
+		if (width < 0 || height < 0) {
+			throw new IllegalArgumentException("A bitmap can't have a negative size, got " + width + "x" + height);
+		}
+		if ((long) x + width - 1 > Integer.MAX_VALUE || (long) y + height - 1 > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("A " + width + "x" + height + " bitmap at (" + x + ", " + y + ") runs off the board");
+		}
+		if ((long) height * ((width + 63) >>> 6) > bitmap.length) {
+			throw new IllegalArgumentException("A " + width + "x" + height + " bitmap takes " + (long) height * ((width + 63) >>> 6) + " words, got " + bitmap.length);
+		}
+		setCells(x, y, width, height, bitmap, 0);
+	}
+
+	public void addCells(long[] cells) {
+		/* 
+		 * Makes every given cell alive, packed with CellSet.pack()
+		 * 
+		 **/
+
+		for (long cell : cells) {
+			setCell(CellSet.unpackX(cell), CellSet.unpackY(cell), true);
+		}
+		edited = true;
+		rehash = true;
+		allChanged = true;
+	}
+
+	public void reserve(long cells) {
+		/* 
+		 * Makes room for the given number of alive cells on an empty board, so loading them
+		 * doesn't grow the board's tables over and over. Only a hint, it changes no cells
+		 * 
+		 **/
+
+		board.reserve(cells);
+	}
+
+	public void addRuns(int[] runs) {
+		/* 
+		 * Makes rows of cells alive, given as triples x, y, length: the cells (x, y) to
+		 * (x + length - 1, y). Each run goes into the board 64 cells at a time
+		 * 
+		 **/
+
+		addRuns(runs, runs.length);
+	}
+
+	public void addRuns(int[] runs, int count) {
+		/* 
+		 * Same as addRuns(int[]) with only the first count numbers of runs, so a loader can
+		 * reuse one array for every batch of runs
+		 * 
+		 **/
+
+		if (count % 3 != 0 || count < 0 || count > runs.length) {
+			throw new IllegalArgumentException("Runs come as x, y, length triples, got " + count + " numbers");
+		}
+		for (int i = 0; i < count; i += 3) {
+			int x = runs[i];
+			int y = runs[i + 1];
+			int length = runs[i + 2];
+			if (length < 0 || (long) x + length - 1 > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Run of " + length + " cells at (" + x + ", " + y + ") doesn't fit the board");
+			}
+			for (int done = 0; done < length; done += 64) {
+				setRow(x + done, y, -1L, -1L >>> Math.max(0, 64 - (length - done)));
+			}
+		}
+		edited = true;
+		rehash = true;
+		allChanged = true;
+	}
+
+	private void setCells(int x, int y, int width, int height, long[] bitmap, int offset) {
+		/* 
+		 * Writes height rows of a width wide bitmap starting at offset into the board
+		 * 
+		 **/
+
+		int words = (width + 63) >>> 6;
+		long lastWordMask = -1L >>> (-width & 63);
+		for (int r = 0; r < height; r++) {
+			int row = offset + r * words;
+			for (int w = 0; w < words; w++) {
+				setRow(x + (w << 6), y + r, bitmap[row + w], w == words - 1 ? lastWordMask : -1L);
+			}
+		}
+		edited = true;
+		rehash = true;
+		allChanged = true;
+	}
+
+	private void setRow(int x, int y, long bits, long mask) {
+		/* 
+		 * Sets the cells (x + i, y) for every bit i of mask, alive if bit i of bits is set
+		 * A word that isn't all inside a bounded topology goes a cell at a time, wrapped or clipped
+		 * 
+		 **/
+
+		if (mask == 0) {
+			return;
+		}
+		if (topology.isBounded() && !(topology.contains(x + Long.numberOfTrailingZeros(mask), y)
+				&& topology.contains(x + 63 - Long.numberOfLeadingZeros(mask), y))) {
+			for (long m = mask; m != 0; m &= m - 1) {
+				int i = Long.numberOfTrailingZeros(m);
+				setCell(x + i, y, ((bits >>> i) & 1) != 0);
+			}
+			return;
+		}
+		board.setRow(x, y, backgroundAlive ? ~bits : bits, mask);
+	}
+
+	private void setCell(int x, int y, boolean alive) {
+		/* 
+		 * Makes the cell at given location alive or dead, wrapped or clipped by the topology
+		 * 
+		 **/
+
+		if (topology.isOutside(x, y)) {
+			return;
+		}
+		x = topology.wrapX(x);
+		y = topology.wrapY(y);
+		if (alive != backgroundAlive) {
+			board.add(x, y);
+		}
+		else {
+			board.remove(x, y);
+		}
+	}
+
+	private static int regionSize(int low, int high) {
+		/* 
+		 * Returns how many cells low..high (inclusive) holds
+		 * 
+		 **/
+
+		long size = (long) high - low + 1;
+		if (size < 1 || size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Can't fill " + low + ".." + high + ", it has to hold 1 to " + Integer.MAX_VALUE + " cells");
+		}
+		return (int) size;
+	}
 	
 	public void changeState(int x, int y) {
 		/* 
@@ -168,7 +545,7 @@ public class InfiniteGameOfLife {
 		 * 
 		 **/
 
-		if (board.get(new Coordinate(x, y)) != null) {
+		if (isAlive(x, y)) {
 			removeAliveCell(x, y);
 		}
 		else {
@@ -184,7 +561,7 @@ public class InfiniteGameOfLife {
 
 		int neighbors = 0;
 		for (int[] shift : NEIGHBORS) {
-			if (board.get(new Coordinate(x + shift[0], y + shift[1])) != null) {
+			if (isAlive(x + shift[0], y + shift[1])) {
 				neighbors++;
 			}
 		}
@@ -192,73 +569,328 @@ public class InfiniteGameOfLife {
 	}
 	
 
-	private boolean deadToAlive(Coordinate key) {
+	public void nextGen() {
 		/* 
-		 * Returns true if dead cell at given coordinate will be alive in the next generation
+		 * Updates board to the next generation
+		 * See comments at the top of the class for more details
 		 *  
 		 **/
 
-		int neighbors = this.countLivingNeighbors(key.getX(), key.getY());
-		
-		if (neighbors != BIRTH_VALUE) {
-			return false;
+		if (history != null && edited) {
+			history.recordKeyframe(board, gen, backgroundAlive);
+			edited = false;
+		}
+		board.setRule(rule.forBackground(backgroundAlive));
+		if (metrics == null) {
+			board.step();
+		}
+		else {
+			stepMeasured();
+		}
+		boolean backgroundWasAlive = backgroundAlive;
+		backgroundAlive = rule.nextBackground(backgroundAlive);
+		this.gen++;
+		if (changedBlocks != null && !allChanged) {
+			trackChanges(backgroundAlive != backgroundWasAlive);
+		}
+		// stepping from a recorded generation to one that's already recorded gives the same board again
+		if (history != null && !history.contains(gen)) {
+			history.recordStep(board, gen, backgroundAlive);
+		}
+		if (cycles != null) {
+			if (rehash) {
+				cycles.reset(board);
+				rehash = false;
+			}
+			else {
+				cycles.update(board);
+			}
+			cycle = cycles.check(gen, backgroundAlive);
 		}
-		return true;
 	}
-
 	
-	private boolean aliveToDead(int neighbors) {
+	private void trackChanges(boolean backgroundFlipped) {
 		/* 
-		 * Returns true if alive cell at given coordinate will be dead in the next generation
+		 * Adds the blocks the last step changed to the ones the next snapshot will list, or
+		 * gives up on listing them if that's everything or more than it's worth
 		 *  
 		 **/
 
-		if (neighbors >= OVERCROWDING_LOWER_THRESHOLD || neighbors <= LONELINESS_UPPER_THRESHOLD) {
-			return true;
+		long changes = board.getBirths() + getDeaths();
+		if (backgroundFlipped || changes > BoardSnapshot.MAX_CHANGED_CELLS) {
+			allChanged = true;
+			changedBlocks.clear();
+			return;
+		}
+		board.forEachChangedCell(markChanged);
+		if (changedBlocks.size() > BoardSnapshot.MAX_CHANGED_BLOCKS) {
+			allChanged = true;
+			changedBlocks.clear();
 		}
-		return false;
-		
 	}
-	
 
-	public void nextGen() {
+	private void stepMeasured() {
 		/* 
-		 * Updates board to the next generation
-		 * See comments at the top of the class for more details
+		 * Steps the board while timing it and counting its allocations into the metrics,
+		 * and commits a GenerationEvent if Flight Recorder is recording
 		 *  
 		 **/
 
-    	ArrayList<Coordinate> toKill = new ArrayList<Coordinate>();
-    	ArrayList<Coordinate> toRevive = new ArrayList<Coordinate>();
-		for (Coordinate key : new ArrayList<Coordinate>(board.keySet())) {
-	    	int neighbors = 0;
-			for (int[] shift : NEIGHBORS) {
-				if (board.get(new Coordinate(key.getX() + shift[0], key.getY() + shift[1])) != null) {
-					neighbors++;
-				}
-				else if (deadToAlive(new Coordinate(key.getX() + shift[0], key.getY() + shift[1]))) {
-					toRevive.add(new Coordinate(key.getX() + shift[0], key.getY() + shift[1]));
+		GenerationEvent event = new GenerationEvent();
+		event.begin();
+		long allocated = LifeMetrics.allocatedBytes();
+		long start = System.nanoTime();
+		board.step();
+		long nanos = System.nanoTime() - start;
+		event.end();
+		allocated = allocated < 0 ? -1 : LifeMetrics.allocatedBytes() - allocated;
+		metrics.recordStep(nanos, allocated, getBirths(), getDeaths(), board.getPopulation(), board.getActiveCells(), board.getTableLoad());
+		if (event.shouldCommit()) {
+			event.gen = gen + 1;
+			event.births = getBirths();
+			event.deaths = getDeaths();
+			event.population = board.getPopulation();
+			event.activeCells = board.getActiveCells();
+			event.commit();
+		}
+	}
+
+	public void advance(long generations) {
+		/* 
+		 * Moves the board forward the given number of generations
+		 * Gives exactly the same board as calling nextGen() that many times
+		 *  
+		 **/
+
+		if (generations < 0) {
+			throw new IllegalArgumentException("Can't advance a negative number of generations: " + generations);
+		}
+		// Hashlife only knows a dead background on the plane
+		if (generations < HASHLIFE_MIN_GENERATIONS || rule.hasB0() || backgroundAlive || topology.isBounded()) {
+			for (long i = 0; i < generations; i++) {
+				nextGen();
+			}
+			return;
+		}
+		if (hashlife == null) {
+			hashlife = new Hashlife(hashlifeMaxNodes, rule);
+		}
+		hashlife.advance(board, generations);
+		this.gen += generations;
+		// the generations jumped over were never seen, so the history starts over from here
+		if (history != null) {
+			history.clear();
+			edited = true;
+		}
+		rehash = true;
+		allChanged = true;
+		cycle = null;
+	}
+
+	public void setCycleDetection(int window) {
+		/* 
+		 * Starts checking after every nextGen() if the board repeats one of the last window
+		 * generations, or stops checking if window is 0
+		 *  
+		 **/
+
+		cycles = window == 0 ? null : new CycleDetector(window);
+		cycle = null;
+		rehash = true;
+	}
+
+	public void setMetrics(LifeMetrics metrics) {
+		/* 
+		 * Starts recording how every nextGen() went into metrics, or stops if metrics is null
+		 *  
+		 **/
+
+		this.metrics = metrics;
+	}
+
+	public LifeMetrics getMetrics() {
+		/* 
+		 * Returns the metrics nextGen() records into, or null if setMetrics() wasn't called
+		 *  
+		 **/
+
+		return metrics;
+	}
+
+	public Cycle getCycle() {
+		/* 
+		 * Returns how the board repeated itself in the last nextGen(), or null if it didn't
+		 * (or cycle detection is off). Once a board repeats it does so forever, so a batch
+		 * run can stop as soon as this isn't null
+		 *  
+		 **/
+
+		return cycle;
+	}
+
+	public void setHistory(long maxBytes) {
+		/* 
+		 * Starts recording every generation stepped to with nextGen(), in about maxBytes of memory
+		 * at most (see GenerationHistory), or stops recording and forgets them if maxBytes is 0
+		 *  
+		 **/
+
+		if (maxBytes == 0) {
+			history = null;
+			return;
+		}
+		if (history == null) {
+			history = new GenerationHistory(maxBytes);
+			// so the current generation gets recorded too
+			edited = true;
+		}
+		else {
+			history.setMaxBytes(maxBytes);
+		}
+	}
+
+	public GenerationHistory getHistory() {
+		/* 
+		 * Returns the recorded generations, or null if setHistory() wasn't called
+		 *  
+		 **/
+
+		return history;
+	}
+
+	public void seekTo(long gen) {
+		/* 
+		 * Changes the board to the given recorded generation, before or after the current one
+		 * Cells edited by hand since the last step are recorded first, so seeking back to this
+		 * generation brings them back. Like stepping on from an edited board, that forgets
+		 * whatever was recorded after this generation.
+		 *  
+		 **/
+
+		if (history == null) {
+			throw new IllegalStateException("No history is being recorded, see setHistory()");
+		}
+		if (edited) {
+			history.recordKeyframe(board, this.gen, backgroundAlive);
+			edited = false;
+		}
+		backgroundAlive = history.seekTo(board, this.gen, gen);
+		this.gen = gen;
+		rehash = true;
+		allChanged = true;
+		cycle = null;
+	}
+
+	public void setRule(Rule rule) {
+		/* 
+		 * Sets the rule for the next generations, the board itself stays as it is
+		 *  
+		 **/
+
+		if (rule.equals(this.rule)) {
+			return;
+		}
+		this.rule = rule;
+		// results cached under the old rule are no good anymore
+		hashlife = null;
+		rehash = true;
+		allChanged = true;
+		cycle = null;
+	}
+
+	public void setTopology(final Topology topology) {
+		/* 
+		 * Sets the shape of the universe for the next generations (see Topology)
+		 * Cells outside a torus move to where they wrap around to, cells outside a clip
+		 * rectangle die
+		 *  
+		 **/
+
+		if (topology.equals(this.topology)) {
+			return;
+		}
+		final LongList outside = new LongList();
+		board.forEachAliveCell(new CellVisitor() {
+			public void visit(int x, int y) {
+				if (!topology.contains(x, y)) {
+					outside.add(CellSet.pack(x, y));
 				}
 			}
-			if (aliveToDead(neighbors)) {
-				toKill.add(key);
+		});
+		for (int i = 0; i < outside.size(); i++) {
+			int x = CellSet.unpackX(outside.get(i));
+			int y = CellSet.unpackY(outside.get(i));
+			board.remove(x, y);
+			if (topology.getKind() == Topology.Kind.TORUS) {
+				board.add(topology.wrapX(x), topology.wrapY(y));
 			}
 		}
-	    
-		
-	    for (Coordinate birthCell : toRevive) {
-	    	if(board.get(birthCell) == null) {
-	    		addAliveCell(birthCell.getX(), birthCell.getY());
-	    	}
-	    }
-	    for (Coordinate dyingCell : toKill) {
-	    	removeAliveCell(dyingCell.getX(), dyingCell.getY());
-	    }
-	    
-	    this.gen++;
+		board.setTopology(topology);
+		this.topology = topology;
+		edited = true;
+		rehash = true;
+		allChanged = true;
+		cycle = null;
+	}
+
+	public Topology getTopology() {
+		/* 
+		 * Returns the shape of the universe, Topology.PLANE unless setTopology() changed it
+		 *  
+		 **/
+
+		return topology;
+	}
+
+	public Rule getRule() {
+		/* 
+		 * Returns the rule the board runs
+		 *  
+		 **/
+
+		return rule;
+	}
+
+	void setBackgroundAlive(boolean backgroundAlive) {
+		/* 
+		 * Says whether the cells on the board are the dead ones, for loading a saved board
+		 * (see SnapshotFile), without changing the cells themselves
+		 *  
+		 **/
+
+		this.backgroundAlive = backgroundAlive;
+		edited = true;
+		rehash = true;
+		allChanged = true;
+	}
+
+	public boolean isBackgroundAlive() {
+		/* 
+		 * Returns true if every cell not listed by forEachAliveCell() is alive, which only
+		 * happens under rules with B0
+		 *  
+		 **/
+
+		return backgroundAlive;
+	}
+
+	public void setHashlifeMaxNodes(int maxNodes) {
+		/* 
+		 * Sets how many nodes advance() may keep cached between calls
+		 * More nodes make repeated jumps faster but use more memory (roughly 60 bytes a node)
+		 *  
+		 **/
+
+		if (hashlife != null) {
+			hashlife.setMaxNodes(maxNodes);
+		}
+		else if (maxNodes < 1024) {
+			throw new IllegalArgumentException("Hashlife needs room for at least 1024 nodes, got " + maxNodes);
+		}
+		hashlifeMaxNodes = maxNodes;
 	}
 	
-	public int getGen() {
+	public long getGen() {
 		/* 
 		 * Returns current generation
 		 *  
@@ -266,4 +898,19 @@ public class InfiniteGameOfLife {
 
 		return this.gen;
 	}
+	
+	public void setGen(long gen) {
+		/* 
+		 * Sets the generation counter, for restoring a saved board (see SnapshotFile)
+		 *  
+		 **/
+
+		if (gen < 0) {
+			throw new IllegalArgumentException("Generation can't be negative: " + gen);
+		}
+		this.gen = gen;
+		edited = true;
+		rehash = true;
+		allChanged = true;
+	}
 }
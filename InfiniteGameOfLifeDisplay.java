@@ -8,20 +8,21 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.util.Arrays;
 
+import javax.swing.JComboBox;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JViewport;
 import javax.swing.SwingUtilities;
 import javax.swing.border.EmptyBorder;
 import javax.swing.JButton;
-import javax.swing.Timer;
 
 /*
  * Displays generations of John Conway's Game of Life.
  * Allows a user of the program to step through one generation
- * at a time or to run the generations based on a timer.
+ * at a time or to run the generations on their own thread.
  */
 public class InfiniteGameOfLifeDisplay extends JFrame {
 
@@ -36,12 +37,22 @@ public class InfiniteGameOfLifeDisplay extends JFrame {
 	 * The two biggest features I added, however, are the zoom and pan functionality
 	 * The user can zoom in and out of their current window to view more/less cells at once.
 	 * Additionally, they can pan throughout the board to view a specific part of it.
+	 * Fit jumps straight to a window around the whole pattern, from the bounding box the
+	 * game keeps up to date anyway.
+	 * Metrics shows how long the last step and paint took, its births and deaths and
+	 * the like under the generation (see LifeMetrics). They are also published over JMX.
 	 * 
 	 * */
 	
+	private static final int MAX_RANDOM_SIDE = 2048;
+	private static final long HISTORY_BYTES = 64L << 20;
+	private static final String[] RULES = {"B3/S23", "B36/S23", "B3678/S34678", "B2/S", "B3/S012345678", "B1357/S1357"};
+
 	private JPanel contentPane;
 	private JLabel txtGeneration = new JLabel();
+	private JLabel txtMetrics = new JLabel();
 	private JPanel boardPanel;
+	private Simulation simulation;
 
 	/**
 	 * Launch the application.
@@ -64,7 +75,12 @@ public class InfiniteGameOfLifeDisplay extends JFrame {
 	 * initializes the usage of each button.
 	 */
 	public InfiniteGameOfLifeDisplay() {
-		InfiniteGameOfLife g = new InfiniteGameOfLife();// call an appropriate constructor
+		// the tiled backend doubles as a spatial index for drawing just the visible cells
+		InfiniteGameOfLife g = new InfiniteGameOfLife(InfiniteGameOfLife.Backend.TILED);
+		g.setHistory(HISTORY_BYTES);
+		LifeMetrics metrics = new LifeMetrics();
+		g.setMetrics(metrics);
+		metrics.register("display");
 		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 		setBounds(100, 100, 600, 400);
 		contentPane = new JPanel();
@@ -73,17 +89,30 @@ public class InfiniteGameOfLifeDisplay extends JFrame {
 		setContentPane(contentPane);
 		
 		/*
-		 * creates a Timer and defines what will occur when
-		 * it is run when the user clicks the "start" button
+		 * runs the game on its own thread, so a slow generation never
+		 * freezes the buttons, zooming or panning. Every time it has a
+		 * new snapshot the label and the board are refreshed on the EDT
 		 */
-		Timer timer = new Timer(10, new ActionListener(){
+		Runnable showLatest = new Runnable(){
 
 			@Override
-			public void actionPerformed(ActionEvent arg0) {
-				// TODO what should happen each time the Timer is fired off
-				g.nextGen();
-				txtGeneration.setText("Generation: " + g.getGen());
-				repaint();
+			public void run() {
+				BoardSnapshot snapshot = simulation.peek();
+				if (snapshot != null) {
+					txtGeneration.setText("Generation: " + snapshot.getGen() + "    Population: " + snapshot.getPopulation());
+				}
+				if (txtMetrics.isVisible()) {
+					txtMetrics.setText(metrics.summary());
+				}
+				((InfiniteBoardPanel) boardPanel).repaintChanged();
+			}
+			
+		};
+		simulation = new Simulation(g, new Runnable(){
+
+			@Override
+			public void run() {
+				EventQueue.invokeLater(showLatest);
 			}
 			
 		});
@@ -104,16 +133,21 @@ public class InfiniteGameOfLifeDisplay extends JFrame {
 
 			@Override
 			public void actionPerformed(ActionEvent e) {
-				// TODO generate and display the next generation
-				g.nextGen();
-				repaint();
+				simulation.submit(new Runnable(){
+
+					@Override
+					public void run() {
+						g.nextGen();
+					}
+					
+				});
 			}
 			
 		});
 		
 		/*
 		 * creates a button that allows the game to run on 
-		 * a timer. The label toggles between "Start" and "Stop"
+		 * its own. The label toggles between "Start" and "Stop"
 		 */
 		JButton startStopButton = new JButton("Start");
 		buttonPanel.add(startStopButton);
@@ -123,19 +157,59 @@ public class InfiniteGameOfLifeDisplay extends JFrame {
 			public void actionPerformed(ActionEvent arg0) {
 				if(startStopButton.getText().equals("Start")){
 					startStopButton.setText("Stop");
-					// TODO start the generations 
-					timer.start();
+					simulation.setRunning(true);
 				}
 				else{
 					startStopButton.setText("Start");
-					// TODO stop the generations
-					timer.stop();
+					simulation.setRunning(false);
 				}
 				
 			}
 			
 		});
 
+		/*
+		 * adds a button which steps back one generation, as far
+		 * back as the game's history goes
+		 */
+		JButton prevGenButton = new JButton("Prev Gen");
+		buttonPanel.add(prevGenButton, 0);
+		prevGenButton.addActionListener(new ActionListener(){
+
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				simulation.setRunning(false);
+				startStopButton.setText("Start");
+				simulation.submit(new Runnable(){
+
+					@Override
+					public void run() {
+						if (g.getHistory().contains(g.getGen() - 1)) {
+							g.seekTo(g.getGen() - 1);
+						}
+					}
+					
+				});
+			}
+			
+		});
+		
+		/*
+		 * adds a button that toggles between one generation every
+		 * few milliseconds and as many generations as the CPU can do
+		 */
+		JButton maxSpeedButton = new JButton("Max Speed");
+		buttonPanel.add(maxSpeedButton);
+		maxSpeedButton.addActionListener(new ActionListener(){
+
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				simulation.setMaxSpeed(!simulation.isMaxSpeed());
+				maxSpeedButton.setText(simulation.isMaxSpeed() ? "Normal Speed" : "Max Speed");
+			}
+			
+		});
+
 		JButton zoomOutButton = new JButton("Zoom Out");
 		buttonPanel.add(zoomOutButton);
 		zoomOutButton.addActionListener(new ActionListener(){
@@ -176,38 +250,154 @@ public class InfiniteGameOfLifeDisplay extends JFrame {
 			
 		});
 
+		/*
+		 * adds a button that zooms and pans so the whole pattern
+		 * just fits, with a little room around it
+		 */
+		JButton fitButton = new JButton("Fit");
+		buttonPanel.add(fitButton);
+		fitButton.addActionListener(new ActionListener(){
+
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				BoardSnapshot snapshot = simulation.peek();
+				int[] patternBounds = snapshot == null ? null : snapshot.getBounds();
+				if (patternBounds != null) {
+					((InfiniteBoardPanel) boardPanel).setBoundaries(withMargin(patternBounds));
+					repaint();
+				}
+			}
+			
+			private int[] withMargin(int[] bounds) {
+				long marginX = ((long) bounds[1] - bounds[0]) / 20 + 2;
+				long marginY = ((long) bounds[3] - bounds[2]) / 20 + 2;
+				return new int[] {(int) Math.max(Integer.MIN_VALUE, bounds[0] - marginX), (int) Math.min(Integer.MAX_VALUE, bounds[1] + marginX),
+						(int) Math.max(Integer.MIN_VALUE, bounds[2] - marginY), (int) Math.min(Integer.MAX_VALUE, bounds[3] + marginY)};
+			}
+			
+		});
+
 		JButton randomSetupButton = new JButton("Random Set-up");
 		buttonPanel.add(randomSetupButton);
 		randomSetupButton.addActionListener(new ActionListener(){
 
 			@Override
 			public void actionPerformed(ActionEvent e) {
-				int[] currentBounds = ((InfiniteBoardPanel) boardPanel).getSeenBoundaries();
-				g.clear();
-				g.randomSetup(currentBounds);
-				if (timer.isRunning()) {
-					timer.stop();
-					startStopButton.setText("Start");
+				int[] currentBounds = limitRandomSetup(((InfiniteBoardPanel) boardPanel).getSeenBoundaries());
+				simulation.setRunning(false);
+				startStopButton.setText("Start");
+				simulation.submit(new Runnable(){
+
+					@Override
+					public void run() {
+						g.clear();
+						g.randomSetup(currentBounds);
+					}
+					
+				});
+			}
+			
+			private int[] limitRandomSetup(int[] bounds) {
+				// zoomed far out the window can hold billions of cells, so only fill its middle
+				int[] limited = bounds.clone();
+				for (int i = 0; i < 4; i += 2) {
+					if ((long) bounds[i + 1] - bounds[i] + 1 > MAX_RANDOM_SIDE) {
+						int center = (int) (((long) bounds[i] + bounds[i + 1]) / 2);
+						limited[i] = center - MAX_RANDOM_SIDE / 2;
+						limited[i + 1] = center + MAX_RANDOM_SIDE / 2 - 1;
+					}
 				}
-				txtGeneration.setText("Generation: " + g.getGen());
+				return limited;
+			}
+			
+		});
+
+		/*
+		 * adds a button that toggles how zoomed out pixels are shaded:
+		 * white if any of their cells is alive, or gray by how many are
+		 */
+		JButton shadingButton = new JButton("Shading: Any");
+		buttonPanel.add(shadingButton);
+		shadingButton.addActionListener(new ActionListener(){
+
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				InfiniteBoardPanel panel = (InfiniteBoardPanel) boardPanel;
+				panel.setDensityShading(!panel.isDensityShading());
+				shadingButton.setText(panel.isDensityShading() ? "Shading: Density" : "Shading: Any");
 				repaint();
 			}
 			
 		});
 
+		/*
+		 * adds a button that shows or hides the step and paint
+		 * metrics under the generation number
+		 */
+		JButton metricsButton = new JButton("Metrics");
+		buttonPanel.add(metricsButton);
+		metricsButton.addActionListener(new ActionListener(){
+
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				txtMetrics.setText(metrics.summary());
+				txtMetrics.setVisible(!txtMetrics.isVisible());
+				contentPane.revalidate();
+			}
+			
+		});
+
+		/*
+		 * adds a box to pick the rule from a few well known ones
+		 * (Life, HighLife, Day & Night, Seeds, Life without Death,
+		 * Replicator) or to type any other in B/S notation
+		 */
+		JComboBox<String> ruleBox = new JComboBox<String>(RULES);
+		ruleBox.setEditable(true);
+		buttonPanel.add(ruleBox);
+		ruleBox.addActionListener(new ActionListener(){
+
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				Rule rule;
+				try {
+					rule = Rule.parse(String.valueOf(ruleBox.getSelectedItem()));
+				}
+				catch (IllegalArgumentException ex) {
+					JOptionPane.showMessageDialog(InfiniteGameOfLifeDisplay.this, ex.getMessage());
+					return;
+				}
+				simulation.submit(new Runnable(){
+
+					@Override
+					public void run() {
+						g.setRule(rule);
+					}
+					
+				});
+			}
+			
+		});
 		
 		/*
-		 * displays the generation number
+		 * displays the generation number, and the metrics
+		 * under it while they are switched on
 		 */
-		txtGeneration.setText("Generation: 0");
-		contentPane.add(txtGeneration, BorderLayout.NORTH);
+		JPanel labelPanel = new JPanel(new BorderLayout(0, 0));
+		contentPane.add(labelPanel, BorderLayout.NORTH);
+		txtGeneration.setText("Generation: 0    Population: 0");
+		labelPanel.add(txtGeneration, BorderLayout.NORTH);
 		txtGeneration.setHorizontalAlignment(JLabel.CENTER);
+		labelPanel.add(txtMetrics, BorderLayout.SOUTH);
+		txtMetrics.setHorizontalAlignment(JLabel.CENTER);
+		txtMetrics.setVisible(false);
 		
 		/*
 		 * adds the panel which displays the Game of Life
 		 * board. See the BoardPanel class for details.
 		 */
-		boardPanel = new InfiniteBoardPanel(g);
+		boardPanel = new InfiniteBoardPanel(simulation);
+		((InfiniteBoardPanel) boardPanel).setMetrics(metrics);
 		contentPane.add(boardPanel, BorderLayout.CENTER);
         MouseAdapter ma = new MouseAdapter() {
 
@@ -228,15 +418,9 @@ public class InfiniteGameOfLifeDisplay extends JFrame {
             public void mouseDragged(MouseEvent e) {
             	
                 if (origin != null) {
-            		int numSquaresX = currentBounds[1] - currentBounds[0] + 1;
-            		int numSquaresY = currentBounds[3] - currentBounds[2] + 1;
-            		int panelWidth = boardPanel.getWidth();
-            		int panelHeight = boardPanel.getHeight();
-            		int squareSideY, squareSideX;
-            		squareSideX = panelWidth / numSquaresX;
-            		squareSideY = panelHeight / numSquaresY;
-                	int deltaX = (origin.x - e.getX()) / squareSideX;
-                    int deltaY = (origin.y - e.getY()) / squareSideY;
+            		int[] delta = ((InfiniteBoardPanel)boardPanel).toCellDistance(origin.x - e.getX(), origin.y - e.getY());
+                	int deltaX = delta[0];
+                    int deltaY = delta[1];
                     ((InfiniteBoardPanel)boardPanel).setBoundaries(new int[] {currentBounds[0] + deltaX, currentBounds[1] + deltaX, currentBounds[2] + deltaY, currentBounds[3] + deltaY});
                     repaint();
                 }
@@ -252,14 +436,16 @@ public class InfiniteGameOfLifeDisplay extends JFrame {
 
 			@Override
 			public void actionPerformed(ActionEvent e) {
-				// TODO generate and display the next generation
-				g.clear();
-				if (timer.isRunning()) {
-					timer.stop();
-					startStopButton.setText("Start");
-				}
-				txtGeneration.setText("Generation: " + g.getGen());
-				repaint();
+				simulation.setRunning(false);
+				startStopButton.setText("Start");
+				simulation.submit(new Runnable(){
+
+					@Override
+					public void run() {
+						g.clear();
+					}
+					
+				});
 			}
 			
 		});
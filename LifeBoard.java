@@ -0,0 +1,81 @@
+public interface LifeBoard {
+
+	/*
+	 * Storage backend for InfiniteGameOfLife.
+	 *
+	 * A LifeBoard holds the alive cells of an infinite board and knows how to step
+	 * them to the next generation. InfiniteGameOfLife picks one at construction time
+	 * (see InfiniteGameOfLife.Backend) and forwards its public API to it, so the
+	 * display never has to know which one it is talking to.
+	 *
+	 **/
+
+	// Returns true if cell is alive at given location
+	boolean isAlive(int x, int y);
+
+	// Makes the cell at given location alive, returns false if it already was
+	boolean add(int x, int y);
+
+	// Makes the cell at given location dead, returns false if it already was
+	boolean remove(int x, int y);
+
+	// Sets the cells (x + i, y) for every bit i of mask, alive if bit i of bits is set
+	// and dead otherwise, 64 cells at a time. x + 63 can't overflow for a bit in mask
+	void setRow(int x, int y, long bits, long mask);
+
+	// Kills every cell
+	void clear();
+
+	// Makes room for the given number of alive cells on an empty board, so loading them
+	// doesn't grow its tables over and over. Only a hint, a board may ignore it
+	void reserve(long cells);
+
+	// Returns an independent board with the same alive cells
+	LifeBoard copy();
+
+	// Sets the rule step() uses (Conway's by default), which can't have B0
+	void setRule(Rule rule);
+
+	// Sets the topology step() wraps or clips the board to (the plane by default),
+	// every alive cell has to be inside its bounds already
+	void setTopology(Topology topology);
+
+	// Updates the board to the next generation
+	void step();
+
+	// Calls visitor once for every cell that was born or died in the last step(),
+	// only valid until the board is edited
+	void forEachChangedCell(CellVisitor visitor);
+
+	// Calls visitor once for every alive cell, in no particular order
+	void forEachAliveCell(CellVisitor visitor);
+
+	// Calls visitor once for every alive cell with xLow <= x <= xHigh and yLow <= y <= yHigh
+	void forEachAliveCellIn(int xLow, int xHigh, int yLow, int yHigh, CellVisitor visitor);
+
+	// Returns how many cells are alive
+	long getPopulation();
+
+	// Returns {xLow, xHigh, yLow, yHigh} of the smallest rectangle holding every alive cell,
+	// or null if there are none
+	int[] getBounds();
+
+	// Returns the populations of the board's tiles and blocks of tiles (see DensityPyramid),
+	// or null if it has no tiles
+	DensityPyramid getDensityPyramid();
+
+	// Returns how many cells were born in the last step()
+	long getBirths();
+
+	// Returns how full the board's hash table is, entries per slot
+	double getTableLoad();
+
+	// Returns how many cells the last step() actually had to look at
+	long getActiveCells();
+
+	// Returns how many cells were alive going into the last step()
+	long getStepPopulation();
+
+	// Sets how many threads step() may use, 1 steps on the calling thread only
+	void setParallelism(int parallelism);
+}
@@ -0,0 +1,249 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class LifeMetrics implements LifeMetricsMBean {
+
+	/*
+	 * Per generation numbers of a running InfiniteGameOfLife: how long each step took and
+	 * how much it allocated, births, deaths, population, how many cells it looked at and
+	 * how full the board's hash table is, plus how long the display took to paint a frame.
+	 *
+	 * The game only measures anything once it was given one of these with setMetrics(), so
+	 * a game without metrics doesn't even read the clock. With metrics a step costs two
+	 * System.nanoTime() calls and, where the JVM can count it, two reads of the thread's
+	 * allocated bytes, which is nothing next to stepping even a small board.
+	 *
+	 * Step times go into a histogram of powers of two, bucket b counting the steps that
+	 * took less than 2^b but at least 2^(b - 1) nanoseconds. That is 64 counters whatever
+	 * the run length, and the percentiles read from it are the top of their bucket, so
+	 * within a factor of two, plenty to tell a 1 ms step from a 30 ms one.
+	 *
+	 * Every field has a single writer (the thread stepping the game, or the one painting
+	 * for the frame times) and is volatile, so getters can be called from any thread, JMX
+	 * included, and see recent values without locking anything. register() publishes them
+	 * as an MBean, and GenerationEvent records the same numbers in Flight Recorder.
+	 *
+	 **/
+
+	private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+	private static final boolean ALLOCATIONS = THREADS instanceof com.sun.management.ThreadMXBean
+			&& ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemorySupported()
+			&& ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemoryEnabled();
+
+	private final AtomicLongArray stepHistogram = new AtomicLongArray(64);
+	private volatile long generations;
+	private volatile long lastStepNanos;
+	private volatile long totalStepNanos;
+	private volatile long maxStepNanos;
+	private volatile long lastAllocatedBytes;
+	private volatile long totalAllocatedBytes;
+	private volatile long lastBirths;
+	private volatile long lastDeaths;
+	private volatile long population;
+	private volatile long activeCells;
+	private volatile double tableLoad;
+	private volatile long frames;
+	private volatile long lastFrameNanos;
+	private volatile long totalFrameNanos;
+
+	public static long allocatedBytes() {
+		/*
+		 * Returns how many bytes the current thread allocated so far, or -1 if the JVM
+		 * doesn't count them
+		 *
+		 **/
+
+		return ALLOCATIONS ? ((com.sun.management.ThreadMXBean) THREADS).getCurrentThreadAllocatedBytes() : -1;
+	}
+
+	public void recordStep(long nanos, long allocated, long births, long deaths, long population, long activeCells, double tableLoad) {
+		/*
+		 * Adds one generation, allocated is -1 if it isn't known
+		 *
+		 **/
+
+		stepHistogram.incrementAndGet(64 - Long.numberOfLeadingZeros(nanos));
+		lastStepNanos = nanos;
+		totalStepNanos += nanos;
+		if (nanos > maxStepNanos) {
+			maxStepNanos = nanos;
+		}
+		lastAllocatedBytes = allocated;
+		if (allocated > 0) {
+			totalAllocatedBytes += allocated;
+		}
+		lastBirths = births;
+		lastDeaths = deaths;
+		this.population = population;
+		this.activeCells = activeCells;
+		this.tableLoad = tableLoad;
+		generations++;
+	}
+
+	public void recordFrame(long nanos) {
+		/*
+		 * Adds one painted frame
+		 *
+		 **/
+
+		lastFrameNanos = nanos;
+		totalFrameNanos += nanos;
+		frames++;
+	}
+
+	public void reset() {
+		/*
+		 * Forgets every generation and frame recorded so far
+		 *
+		 **/
+
+		for (int i = 0; i < stepHistogram.length(); i++) {
+			stepHistogram.set(i, 0);
+		}
+		generations = 0;
+		totalStepNanos = 0;
+		maxStepNanos = 0;
+		totalAllocatedBytes = 0;
+		frames = 0;
+		totalFrameNanos = 0;
+	}
+
+	public void register(String name) {
+		/*
+		 * Publishes these metrics over JMX as life:type=LifeMetrics,name=name
+		 * Registering the same name again replaces the metrics registered before
+		 *
+		 **/
+
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName objectName = new ObjectName("life:type=LifeMetrics,name=" + ObjectName.quote(name));
+			if (server.isRegistered(objectName)) {
+				server.unregisterMBean(objectName);
+			}
+			server.registerMBean(this, objectName);
+		}
+		catch (JMException e) {
+			throw new IllegalArgumentException("Can't register metrics as " + name, e);
+		}
+	}
+
+	public long getGenerations() {
+		return generations;
+	}
+
+	public long getLastStepNanos() {
+		return lastStepNanos;
+	}
+
+	public long getMeanStepNanos() {
+		long generations = this.generations;
+		return generations == 0 ? 0 : totalStepNanos / generations;
+	}
+
+	public long getMaxStepNanos() {
+		return maxStepNanos;
+	}
+
+	public long getStepNanosP50() {
+		return getStepNanosPercentile(50);
+	}
+
+	public long getStepNanosP90() {
+		return getStepNanosPercentile(90);
+	}
+
+	public long getStepNanosP99() {
+		return getStepNanosPercentile(99);
+	}
+
+	public long getStepNanosPercentile(double percentile) {
+		/*
+		 * Returns the power of two that at least percentile % of the steps took less than,
+		 * or 0 before the first step
+		 *
+		 **/
+
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("Percentile must be between 0 and 100, got " + percentile);
+		}
+		long[] counts = new long[stepHistogram.length()];
+		long total = 0;
+		for (int b = 0; b < counts.length; b++) {
+			counts[b] = stepHistogram.get(b);
+			total += counts[b];
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long wanted = (long) Math.ceil(total * percentile / 100);
+		long seen = 0;
+		for (int b = 0; b < counts.length; b++) {
+			seen += counts[b];
+			if (seen >= wanted && seen > 0) {
+				return b == 63 ? Long.MAX_VALUE : 1L << b;
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+
+	public long getLastAllocatedBytes() {
+		return lastAllocatedBytes;
+	}
+
+	public long getMeanAllocatedBytes() {
+		long generations = this.generations;
+		return generations == 0 || !ALLOCATIONS ? -1 : totalAllocatedBytes / generations;
+	}
+
+	public long getLastBirths() {
+		return lastBirths;
+	}
+
+	public long getLastDeaths() {
+		return lastDeaths;
+	}
+
+	public long getPopulation() {
+		return population;
+	}
+
+	public long getActiveCells() {
+		return activeCells;
+	}
+
+	public double getTableLoad() {
+		return tableLoad;
+	}
+
+	public long getFrames() {
+		return frames;
+	}
+
+	public long getLastFrameNanos() {
+		return lastFrameNanos;
+	}
+
+	public long getMeanFrameNanos() {
+		long frames = this.frames;
+		return frames == 0 ? 0 : totalFrameNanos / frames;
+	}
+
+	public String summary() {
+		/*
+		 * Returns the latest numbers on one line, for an overlay or a log
+		 *
+		 **/
+
+		long allocated = lastAllocatedBytes;
+		return String.format(Locale.ROOT, "step %.2f ms (p99 %.2f ms)  +%d -%d  active %d  load %.2f  alloc %s  paint %.2f ms",
+				lastStepNanos / 1e6, getStepNanosP99() / 1e6, lastBirths, lastDeaths, activeCells, tableLoad,
+				allocated < 0 ? "n/a" : (allocated >> 10) + " KB", lastFrameNanos / 1e6);
+	}
+}
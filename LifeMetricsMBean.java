@@ -0,0 +1,43 @@
+public interface LifeMetricsMBean {
+
+	/*
+	 * What LifeMetrics shows over JMX, in jconsole or VisualVM under "life"
+	 *
+	 **/
+
+	long getGenerations();
+
+	long getLastStepNanos();
+
+	long getMeanStepNanos();
+
+	long getMaxStepNanos();
+
+	long getStepNanosP50();
+
+	long getStepNanosP90();
+
+	long getStepNanosP99();
+
+	long getLastAllocatedBytes();
+
+	long getMeanAllocatedBytes();
+
+	long getLastBirths();
+
+	long getLastDeaths();
+
+	long getPopulation();
+
+	long getActiveCells();
+
+	double getTableLoad();
+
+	long getFrames();
+
+	long getLastFrameNanos();
+
+	long getMeanFrameNanos();
+
+	void reset();
+}
@@ -0,0 +1,73 @@
+import java.util.Arrays;
+
+public class LongList {
+
+	/*
+	 * Growable list of primitive longs, mostly used to hold packed cells
+	 * (see CellSet.pack) without boxing them.
+	 *
+	 **/
+
+	private long[] values;
+	private int size;
+
+	public LongList() {
+		/*
+		 * Constructs an empty LongList
+		 *
+		 **/
+
+		values = new long[16];
+	}
+
+	public void add(long value) {
+		/*
+		 * Adds value to the end of the list
+		 *
+		 **/
+
+		if (size == values.length) {
+			values = Arrays.copyOf(values, size * 2);
+		}
+		values[size++] = value;
+	}
+
+	public long get(int index) {
+		/*
+		 * Returns value at given index
+		 *
+		 **/
+
+		if (index >= size) {
+			throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+		}
+		return values[index];
+	}
+
+	public int size() {
+		/*
+		 * Returns number of values in the list
+		 *
+		 **/
+
+		return size;
+	}
+
+	public void clear() {
+		/*
+		 * Removes every value, keeping the current array
+		 *
+		 **/
+
+		size = 0;
+	}
+
+	public long[] toArray() {
+		/*
+		 * Returns a copy of the values in the list
+		 *
+		 **/
+
+		return Arrays.copyOf(values, size);
+	}
+}
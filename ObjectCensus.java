@@ -0,0 +1,410 @@
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ObjectCensus {
+
+	/*
+	 * Splits the alive cells of a board into objects and counts them by shape, to tell what
+	 * a settled soup left behind: so many blocks, blinkers, beehives, gliders and so on.
+	 *
+	 * An object is an island of alive cells that touch, sides or corners, and two islands
+	 * with the same shape count as the same object however they are rotated or mirrored.
+	 * Each shape is keyed by its canonical form: the island is drawn in all 8 orientations,
+	 * each one written as an RLE body (like "2o$2o!" for a block), and the smallest string
+	 * wins. Any rule for picking one of the 8 would do, since congruent islands have the
+	 * same 8 drawings. nameOf() turns the keys of common objects into their names.
+	 *
+	 * To find the islands, the cells are sorted into row order, which puts every cell's
+	 * neighbors in the row above into a short run that a pointer sweeping along that row
+	 * finds in passing, so no cell is ever looked up. Neighbors are joined in a union-find
+	 * forest (union by size, path halving), and a counting pass then lays the islands out
+	 * one after the other. Apart from the sort and the per island canonical forms that is
+	 * linear in the alive cells, about 20 bytes each, and the arrays are kept between calls,
+	 * so a census after every soup of a search doesn't allocate them again. A settled board
+	 * is mostly the same few shapes over and over, so the canonical keys are also kept, by
+	 * the island's drawing as found (up to MAX_KNOWN_SHAPES of them): an island already in
+	 * row order takes one RLE body to draw and look up, instead of 8 sorted ones.
+	 *
+	 * Two objects close enough to touch are one island, which is the usual trade-off of this
+	 * kind of census: a beacon is a single object in one phase and two in the other, and
+	 * objects that only sit close, like the two blocks of a bi-block, are counted on their own.
+	 * A still life or oscillator has the same key in every phase when its phases are rotations
+	 * of each other (a blinker) but not otherwise, so a glider shows up under two keys, both
+	 * named "glider". Under a rule with B0 and an alive background the census is of the cells
+	 * the board lists, which are the dead ones (see BoardView).
+	 *
+	 **/
+
+	private static final Map<String, String> NAMES = new HashMap<String, String>();
+	private static final int MAX_KNOWN_SHAPES = 1 << 16;
+
+	private long[] cells = new long[64];
+	private int[] parent = new int[64];
+	private int[] order = new int[64];
+	private int size;
+	private long[] shape = new long[64];
+	private final StringBuilder rle = new StringBuilder();
+	private final Map<String, String> knownShapes = new HashMap<String, String>();
+
+	static {
+		name("block", "OO", "OO");
+		name("beehive", ".OO.", "O..O", ".OO.");
+		name("loaf", ".OO.", "O..O", ".O.O", "..O.");
+		name("boat", "OO.", "O.O", ".O.");
+		name("ship", "OO.", "O.O", ".OO");
+		name("tub", ".O.", "O.O", ".O.");
+		name("pond", ".OO.", "O..O", "O..O", ".OO.");
+		name("long-boat", "OO..", "O.O.", ".O.O", "..O.");
+		name("barge", ".O..", "O.O.", ".O.O", "..O.");
+		name("mango", ".OO..", "O..O.", ".O..O", "..OO.");
+		name("blinker", "OOO");
+		name("toad", ".OOO", "OOO.");
+		name("beacon", "OO..", "OO..", "..OO", "..OO");
+		name("glider", ".O.", "..O", "OOO");
+		name("glider", "O.O", ".OO", ".O.");
+		name("lwss", ".O..O", "O....", "O...O", "OOOO.");
+		name("lwss", "..OO.", "OO.OO", "OOOO.", ".OO..");
+	}
+
+	public Map<String, Long> count(BoardView view) {
+		/*
+		 * Returns how many islands of each shape the board has, by canonical key (see canonical())
+		 *
+		 **/
+
+		collect(view);
+		Arrays.sort(cells, 0, size);
+		join();
+		return countIslands();
+	}
+
+	public static String canonical(long[] island) {
+		/*
+		 * Returns the canonical key of the shape of the given packed cells (see CellSet.pack()),
+		 * the same for every rotation and reflection of it
+		 *
+		 **/
+
+		int[] xs = new int[island.length];
+		int[] ys = new int[island.length];
+		for (int i = 0; i < island.length; i++) {
+			xs[i] = CellSet.unpackX(island[i]);
+			ys[i] = CellSet.unpackY(island[i]);
+		}
+		return canonical(xs, ys, island.length, new long[island.length], new StringBuilder());
+	}
+
+	public static String nameOf(String key) {
+		/*
+		 * Returns the name of the object with the given canonical key, or the key itself if it
+		 * has no name here
+		 *
+		 **/
+
+		String name = NAMES.get(key);
+		return name != null ? name : key;
+	}
+
+	public static void writeSummary(PrintWriter out, Map<String, Long> counts, int listed) {
+		/*
+		 * Writes how many objects there are and how many kinds, then the listed most common
+		 * ones by name, as key=value lines. Keys sharing a name (the two phases of a glider)
+		 * are added up
+		 *
+		 **/
+
+		List<Map.Entry<String, Long>> sorted = new ArrayList<Map.Entry<String, Long>>(counts.entrySet());
+		Collections.sort(sorted, new Comparator<Map.Entry<String, Long>>() {
+			public int compare(Map.Entry<String, Long> a, Map.Entry<String, Long> b) {
+				int byCount = Long.compare(b.getValue(), a.getValue());
+				return byCount != 0 ? byCount : a.getKey().compareTo(b.getKey());
+			}
+		});
+		long total = 0;
+		for (Map.Entry<String, Long> entry : sorted) {
+			total += entry.getValue();
+		}
+		out.println("objects=" + total);
+		out.println("objects_distinct=" + sorted.size());
+		Map<String, Long> named = new LinkedHashMap<String, Long>();
+		for (Map.Entry<String, Long> entry : sorted.subList(0, Math.min(listed, sorted.size()))) {
+			String name = nameOf(entry.getKey());
+			Long count = named.get(name);
+			named.put(name, count == null ? entry.getValue() : count + entry.getValue());
+		}
+		for (Map.Entry<String, Long> entry : named.entrySet()) {
+			out.println("object." + entry.getKey() + "=" + entry.getValue());
+		}
+	}
+
+	private void collect(BoardView view) {
+		/*
+		 * Puts every alive cell into cells, in row order keys (see rowKey())
+		 *
+		 **/
+
+		long population = view.getPopulation();
+		if (population > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Too many cells for a census: " + population);
+		}
+		if (population > cells.length) {
+			int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(population, (long) cells.length * 2));
+			cells = new long[capacity];
+			parent = new int[capacity];
+			order = new int[capacity];
+		}
+		size = 0;
+		view.forEachAliveCell(new CellVisitor() {
+			public void visit(int x, int y) {
+				cells[size++] = rowKey(x, y);
+			}
+		});
+	}
+
+	private void join() {
+		/*
+		 * Joins every cell with its neighbors to the left and in the row above, which, done for
+		 * every cell, joins all neighbors
+		 *
+		 **/
+
+		Arrays.fill(parent, 0, size, -1);
+		int above = 0, aboveEnd = 0;
+		int rowStart = 0;
+		int j = 0;
+		for (int i = 0; i < size; i++) {
+			long key = cells[i];
+			int y = rowY(key);
+			long x = rowX(key);
+			if (i == 0 || rowY(cells[i - 1]) != y) {
+				if (i > 0 && rowY(cells[i - 1]) == y - 1) {
+					above = rowStart;
+					aboveEnd = i;
+				}
+				else {
+					above = aboveEnd = i;
+				}
+				rowStart = i;
+				j = above;
+			}
+			else if (rowX(cells[i - 1]) == x - 1) {
+				union(i - 1, i);
+			}
+			while (j < aboveEnd && rowX(cells[j]) < x - 1) {
+				j++;
+			}
+			for (int k = j; k < aboveEnd && rowX(cells[k]) <= x + 1; k++) {
+				union(k, i);
+			}
+		}
+	}
+
+	private Map<String, Long> countIslands() {
+		/*
+		 * Lays the islands out one after the other in order and counts their canonical keys
+		 *
+		 **/
+
+		// a root's parent holds minus its island's size, swap that for minus one past where it starts
+		int offset = 0;
+		for (int i = 0; i < size; i++) {
+			if (parent[i] < 0) {
+				int islandSize = -parent[i];
+				parent[i] = -offset - 1;
+				offset += islandSize;
+			}
+		}
+		// every cell goes where its root points, moving the root on, so it ends up pointing past its island
+		for (int i = 0; i < size; i++) {
+			int root = find(i);
+			int position = -parent[root] - 1;
+			order[position] = i;
+			parent[root] = -position - 2;
+		}
+		Map<String, Long> counts = new HashMap<String, Long>();
+		int[] xs = new int[0], ys = new int[0];
+		for (int start = 0; start < size;) {
+			int end = -parent[find(order[start])] - 1;
+			int islandSize = end - start;
+			if (xs.length < islandSize) {
+				xs = new int[Math.max(islandSize, xs.length * 2)];
+				ys = new int[xs.length];
+			}
+			for (int i = 0; i < islandSize; i++) {
+				long key = cells[order[start + i]];
+				xs[i] = (int) rowX(key);
+				ys[i] = rowY(key);
+			}
+			if (shape.length < islandSize) {
+				shape = new long[Math.max(islandSize, shape.length * 2)];
+			}
+			String key = canonicalInRowOrder(xs, ys, islandSize);
+			Long count = counts.get(key);
+			counts.put(key, count == null ? 1L : count + 1);
+			start = end;
+		}
+		return counts;
+	}
+
+	private String canonicalInRowOrder(int[] xs, int[] ys, int count) {
+		/*
+		 * Returns the canonical key of the given cells, which are in row order, from the
+		 * known shapes if it's one of them
+		 *
+		 **/
+
+		int minX = Integer.MAX_VALUE;
+		for (int i = 0; i < count; i++) {
+			minX = Math.min(minX, xs[i]);
+		}
+		for (int i = 0; i < count; i++) {
+			shape[i] = ((long) ys[i] - ys[0]) << 32 | ((long) xs[i] - minX);
+		}
+		String drawn = rle(shape, count, rle);
+		String key = knownShapes.get(drawn);
+		if (key == null) {
+			key = canonical(xs, ys, count, shape, rle);
+			if (knownShapes.size() == MAX_KNOWN_SHAPES) {
+				knownShapes.clear();
+			}
+			knownShapes.put(drawn, key);
+		}
+		return key;
+	}
+
+	private int find(int cell) {
+		/*
+		 * Returns the root of the cell's tree, pointing every other cell on the way to its grandparent
+		 *
+		 **/
+
+		while (parent[cell] >= 0) {
+			int up = parent[cell];
+			if (parent[up] < 0) {
+				return up;
+			}
+			parent[cell] = parent[up];
+			cell = parent[up];
+		}
+		return cell;
+	}
+
+	private void union(int a, int b) {
+		/*
+		 * Joins the trees of two cells, hanging the smaller one under the bigger one
+		 *
+		 **/
+
+		a = find(a);
+		b = find(b);
+		if (a == b) {
+			return;
+		}
+		if (parent[a] > parent[b]) {
+			int swap = a;
+			a = b;
+			b = swap;
+		}
+		parent[a] += parent[b];
+		parent[b] = a;
+	}
+
+	private static String canonical(int[] xs, int[] ys, int count, long[] shape, StringBuilder rle) {
+		/*
+		 * Returns the smallest RLE body of the 8 orientations of the given cells, using shape
+		 * (at least count long) and rle as scratch
+		 *
+		 **/
+
+		if (count == 0) {
+			return "!";
+		}
+		int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+		for (int i = 0; i < count; i++) {
+			minX = Math.min(minX, xs[i]);
+			maxX = Math.max(maxX, xs[i]);
+			minY = Math.min(minY, ys[i]);
+			maxY = Math.max(maxY, ys[i]);
+		}
+		long width = (long) maxX - minX, height = (long) maxY - minY;
+		String best = null;
+		for (int orientation = 0; orientation < 8; orientation++) {
+			for (int i = 0; i < count; i++) {
+				long dx = (long) xs[i] - minX, dy = (long) ys[i] - minY;
+				long u = (orientation & 1) != 0 ? width - dx : dx;
+				long v = (orientation & 2) != 0 ? height - dy : dy;
+				shape[i] = (orientation & 4) != 0 ? u << 32 | v : v << 32 | u;
+			}
+			Arrays.sort(shape, 0, count);
+			String drawn = rle(shape, count, rle);
+			if (best == null || drawn.compareTo(best) < 0) {
+				best = drawn;
+			}
+		}
+		return best;
+	}
+
+	private static String rle(long[] shape, int count, StringBuilder rle) {
+		/*
+		 * Returns the RLE body of sorted cells, row in the high half of each and column in the low
+		 *
+		 **/
+
+		rle.setLength(0);
+		long row = 0, column = 0;
+		for (int i = 0; i < count;) {
+			long v = shape[i] >>> 32, u = shape[i] & 0xFFFFFFFFL;
+			if (v > row) {
+				run(rle, v - row, '$');
+				row = v;
+				column = 0;
+			}
+			if (u > column) {
+				run(rle, u - column, 'b');
+			}
+			int length = 1;
+			while (i + length < count && shape[i + length] == shape[i] + length) {
+				length++;
+			}
+			run(rle, length, 'o');
+			column = u + length;
+			i += length;
+		}
+		return rle.append('!').toString();
+	}
+
+	private static void run(StringBuilder rle, long length, char tag) {
+		if (length > 1) {
+			rle.append(length);
+		}
+		rle.append(tag);
+	}
+
+	private static void name(String name, String... rows) {
+		NAMES.put(canonical(Patterns.parse(rows)), name);
+	}
+
+	private static long rowKey(int x, int y) {
+		/*
+		 * Packs a cell so that keys sort by y, then x (flipping x's sign bit makes it sort unsigned)
+		 *
+		 **/
+
+		return (long) y << 32 | ((x ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+	}
+
+	private static int rowY(long key) {
+		return (int) (key >> 32);
+	}
+
+	private static long rowX(long key) {
+		return (int) key ^ Integer.MIN_VALUE;
+	}
+}
@@ -0,0 +1,114 @@
+import java.util.Random;
+
+public class ParallelScalingReport {
+
+	/*
+	 * Times nextGen() on a 1M+ cell soup at parallelism 1, 2, 4, ... up to the
+	 * number of cores (or the given maximum), for both backends.
+	 *
+	 * Every run starts from the same soup and its final board is checked cell by
+	 * cell against the single threaded run, so the report also proves the parallel
+	 * step is deterministic.
+	 *
+	 *     java ParallelScalingReport [side] [generations] [max threads]
+	 *
+	 **/
+
+	public static void main(String[] args) {
+		int side = args.length > 0 ? Integer.parseInt(args[0]) : 2048;
+		int generations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		int maxThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+		long[] soup = randomSoup(side, 7);
+		System.out.println("soup " + side + "x" + side + ", " + soup.length + " alive cells, " + generations + " generations, "
+				+ Runtime.getRuntime().availableProcessors() + " cores available");
+		for (InfiniteGameOfLife.Backend backend : InfiniteGameOfLife.Backend.values()) {
+			System.out.printf("%n%-9s %8s %12s %9s%n", backend, "threads", "ms/gen", "speedup");
+			CellSet expected = null;
+			double baseline = 0;
+			for (int threads = 1; threads <= maxThreads; threads = nextThreadCount(threads, maxThreads)) {
+				InfiniteGameOfLife game = new InfiniteGameOfLife(backend);
+				game.setParallelism(threads);
+				for (long cell : soup) {
+					game.addAliveCell(CellSet.unpackX(cell), CellSet.unpackY(cell));
+				}
+				long start = System.nanoTime();
+				for (int i = 0; i < generations; i++) {
+					game.nextGen();
+				}
+				double millis = (System.nanoTime() - start) / 1e6 / generations;
+				game.setParallelism(1);
+
+				CellSet result = collect(game);
+				if (expected == null) {
+					expected = result;
+					baseline = millis;
+				}
+				else {
+					checkSame(expected, result, backend, threads);
+				}
+				System.out.printf("%-9s %8d %12.2f %8.2fx%n", "", threads, millis, baseline / millis);
+			}
+		}
+	}
+
+	private static int nextThreadCount(int threads, int maxThreads) {
+		/*
+		 * Doubles the thread count, making sure maxThreads itself is measured
+		 *
+		 **/
+
+		if (threads < maxThreads && threads * 2 > maxThreads) {
+			return maxThreads;
+		}
+		return threads * 2;
+	}
+
+	private static CellSet collect(InfiniteGameOfLife game) {
+		/*
+		 * Returns every alive cell of the game
+		 *
+		 **/
+
+		final CellSet cells = new CellSet();
+		game.forEachAliveCell(new CellVisitor() {
+			public void visit(int x, int y) {
+				cells.add(CellSet.pack(x, y));
+			}
+		});
+		return cells;
+	}
+
+	private static void checkSame(CellSet expected, CellSet actual, InfiniteGameOfLife.Backend backend, int threads) {
+		/*
+		 * Throws if the two boards differ
+		 *
+		 **/
+
+		boolean same = expected.size() == actual.size();
+		for (long cell : actual.toArray()) {
+			same = same && expected.contains(cell);
+		}
+		if (!same) {
+			throw new IllegalStateException(backend + " with " + threads + " threads differs from the single threaded result");
+		}
+	}
+
+	private static long[] randomSoup(int side, long seed) {
+		/*
+		 * Returns a side x side soup centered on the origin with each cell alive with probability 1/2
+		 *
+		 **/
+
+		Random random = new Random(seed);
+		LongList cells = new LongList();
+		for (int y = -side / 2; y < side - side / 2; y++) {
+			for (int x = -side / 2; x < side - side / 2; x++) {
+				if (random.nextBoolean()) {
+					cells.add(CellSet.pack(x, y));
+				}
+			}
+		}
+		return cells.toArray();
+	}
+}
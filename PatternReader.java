@@ -0,0 +1,299 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class PatternReader {
+
+	/*
+	 * Loads patterns in the RLE and plaintext (.cells) formats used by Golly and the LifeWiki.
+	 *
+	 * Both readers go through their input one character at a time and hand each row of
+	 * alive cells to the game as soon as it's parsed, a batch at a time through addRuns()
+	 * (see RunBatch), so a pattern of millions of cells never exists as a string or as a
+	 * list of cells in between. The only extra memory is the reader's buffer and the batch.
+	 *
+	 * RLE: optional '#' comment lines, a header "x = width, y = height[, rule = B3/S23]" and
+	 * runs like "3o2b$": a count (1 if left out) followed by 'b' (dead), 'o' (alive), '$' (end
+	 * of row) or '!' (end of pattern). A "#CXRLE Pos=x,y" comment, written by Golly and by
+	 * PatternWriter, gives the position of the top-left corner. A rule in the header becomes
+	 * the game's rule (see Rule.parse()), without one the game keeps its own.
+	 *
+	 * Plaintext: '!' comment lines, then one line per row with 'O' (or '*') for alive and
+	 * '.' for dead. A "!Position: x,y" comment before the first row, written by PatternWriter,
+	 * gives the position of the top-left corner the same way.
+	 *
+	 * A run or a position that would put cells outside the int coordinates of the board is
+	 * rejected with an IOException rather than wrapped around.
+	 *
+	 **/
+
+	private static final String POSITION = "#CXRLE Pos=";
+	private static final String PLAINTEXT_POSITION = "!Position:";
+	// a run can't be longer than the board is wide
+	private static final long MAX_RUN = 1L << 32;
+
+	public static long read(Path file, InfiniteGameOfLife game) throws IOException {
+		/*
+		 * Loads an .rle or .cells file, picked by its extension
+		 * Returns number of alive cells read
+		 *
+		 **/
+
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			if (file.getFileName().toString().toLowerCase().endsWith(".cells")) {
+				return readPlaintext(reader, game);
+			}
+			return readRle(reader, game);
+		}
+	}
+
+	public static long readRle(Reader in, InfiniteGameOfLife game) throws IOException {
+		/*
+		 * Loads an RLE pattern at the position in its #CXRLE line, or at (0, 0) if it has none
+		 * Returns number of alive cells read
+		 *
+		 **/
+
+		return readRle(in, game, 0, 0, true);
+	}
+
+	public static long readRle(Reader in, InfiniteGameOfLife game, int x, int y) throws IOException {
+		/*
+		 * Loads an RLE pattern with its top-left corner at (x, y)
+		 * Returns number of alive cells read
+		 *
+		 **/
+
+		return readRle(in, game, x, y, false);
+	}
+
+	public static long readPlaintext(Reader in, InfiniteGameOfLife game) throws IOException {
+		/*
+		 * Loads a plaintext (.cells) pattern at the position in its !Position line, or at (0, 0)
+		 * if it has none
+		 * Returns number of alive cells read
+		 *
+		 **/
+
+		return readPlaintext(in, game, 0, 0, true);
+	}
+
+	public static long readPlaintext(Reader in, InfiniteGameOfLife game, int x, int y) throws IOException {
+		/*
+		 * Loads a plaintext (.cells) pattern with its top-left corner at (x, y)
+		 * Returns number of alive cells read
+		 *
+		 **/
+
+		return readPlaintext(in, game, x, y, false);
+	}
+
+	private static long readPlaintext(Reader in, InfiniteGameOfLife game, int x, int y, boolean usePosition) throws IOException {
+		/*
+		 * Loads a plaintext pattern, the comments before the first row a line at a time and
+		 * the rows a character at a time
+		 *
+		 **/
+
+		BufferedReader reader = buffered(in);
+		while (true) {
+			reader.mark(1);
+			int c = reader.read();
+			if (c == -1) {
+				return 0;
+			}
+			reader.reset();
+			if (c != '!') {
+				break;
+			}
+			String line = reader.readLine().trim();
+			if (line.startsWith(PLAINTEXT_POSITION) && usePosition) {
+				int[] position = positionOf(line.substring(PLAINTEXT_POSITION.length()));
+				x = position[0];
+				y = position[1];
+			}
+		}
+		RunBatch runs = new RunBatch(game);
+		long alive = 0;
+		int row = 0;
+		int column = 0;
+		// first column of the alive cells right before column, -1 if there are none
+		int runStart = -1;
+		boolean lineStart = true;
+		boolean comment = false;
+		int c;
+		while ((c = reader.read()) != -1) {
+			if (runStart >= 0 && c != 'O' && c != '*' && c != '\r') {
+				runs.add(x + runStart, y + row, column - runStart);
+				runStart = -1;
+			}
+			if (c == '\n') {
+				if (!comment) {
+					row++;
+				}
+				column = 0;
+				lineStart = true;
+				comment = false;
+				continue;
+			}
+			if (lineStart && c == '!') {
+				comment = true;
+			}
+			lineStart = false;
+			if (comment || c == '\r') {
+				continue;
+			}
+			if (c == 'O' || c == '*') {
+				if ((long) x + column > Integer.MAX_VALUE || (long) y + row > Integer.MAX_VALUE) {
+					throw new IOException("Cell at row " + row + ", column " + column + " of plaintext pattern doesn't fit the board");
+				}
+				if (runStart < 0) {
+					runStart = column;
+				}
+				alive++;
+			}
+			else if (c != '.') {
+				throw new IOException("Unexpected '" + (char) c + "' in plaintext pattern at row " + row + ", column " + column);
+			}
+			column++;
+		}
+		if (runStart >= 0) {
+			runs.add(x + runStart, y + row, column - runStart);
+		}
+		runs.flush();
+		return alive;
+	}
+
+	private static long readRle(Reader in, InfiniteGameOfLife game, int x, int y, boolean usePosition) throws IOException {
+		/*
+		 * Loads an RLE pattern, the header and comments a line at a time and the runs a
+		 * character at a time
+		 *
+		 **/
+
+		BufferedReader reader = buffered(in);
+		int left = x;
+		int top = y;
+
+		// comments and header
+		String line;
+		while (true) {
+			reader.mark(1);
+			int c = reader.read();
+			if (c == -1) {
+				return 0;
+			}
+			reader.reset();
+			if (c != '#' && c != 'x' && !Character.isWhitespace(c)) {
+				break;
+			}
+			line = reader.readLine().trim();
+			if (line.startsWith(POSITION) && usePosition) {
+				int[] position = positionOf(line.substring(POSITION.length()));
+				left = position[0];
+				top = position[1];
+			}
+			else if (line.startsWith("x")) {
+				Rule rule = ruleOf(line);
+				if (rule != null) {
+					game.setRule(rule);
+				}
+				break;
+			}
+		}
+
+		// runs
+		RunBatch runs = new RunBatch(game);
+		long alive = 0;
+		long column = 0;
+		long row = 0;
+		long count = 0;
+		int c;
+		while ((c = reader.read()) != -1 && c != '!') {
+			if (c >= '0' && c <= '9') {
+				count = count * 10 + (c - '0');
+				if (count > MAX_RUN) {
+					throw new IOException("Run longer than the board at row " + row + ", column " + column + " of RLE pattern");
+				}
+				continue;
+			}
+			if (Character.isWhitespace(c)) {
+				continue;
+			}
+			long run = count == 0 ? 1 : count;
+			count = 0;
+			if (c == '$') {
+				row += run;
+				column = 0;
+			}
+			else if (c == 'b' || c == '.') {
+				column += run;
+			}
+			else if (c == 'o' || (c >= 'A' && c <= 'X')) {
+				// letters other than 'o' are the states of multi-state rules, all of them alive here
+				if (left + column + run - 1 > Integer.MAX_VALUE || top + row > Integer.MAX_VALUE) {
+					throw new IOException("Run of " + run + " cells at row " + row + ", column " + column + " of RLE pattern doesn't fit the board");
+				}
+				runs.add((int) (left + column), (int) (top + row), run);
+				column += run;
+				alive += run;
+			}
+			else {
+				throw new IOException("Unexpected '" + (char) c + "' in RLE pattern at row " + row + ", column " + column);
+			}
+		}
+		runs.flush();
+		return alive;
+	}
+
+	private static int[] positionOf(String text) throws IOException {
+		/*
+		 * Returns {x, y} from the "x,y" a position line starts with
+		 *
+		 **/
+
+		String[] position = text.trim().split("\\s+")[0].split(",");
+		try {
+			if (position.length != 2) {
+				throw new NumberFormatException("expected x,y");
+			}
+			return new int[] {Integer.parseInt(position[0].trim()), Integer.parseInt(position[1].trim())};
+		}
+		catch (NumberFormatException e) {
+			throw new IOException("Bad pattern position " + text.trim() + ": " + e.getMessage(), e);
+		}
+	}
+
+	private static Rule ruleOf(String header) throws IOException {
+		/*
+		 * Returns the rule the header asks for, or null if it doesn't say
+		 * Throws if it isn't a Life-like rule in B/S notation
+		 *
+		 **/
+
+		for (String field : header.split(",")) {
+			String[] pair = field.split("=");
+			if (pair.length == 2 && pair[0].trim().equals("rule")) {
+				try {
+					return Rule.parse(pair[1]);
+				}
+				catch (IllegalArgumentException e) {
+					throw new IOException("Unsupported rule " + pair[1].trim() + ": " + e.getMessage(), e);
+				}
+			}
+		}
+		return null;
+	}
+
+	private static BufferedReader buffered(Reader in) {
+		/*
+		 * Returns in itself if it's already buffered, so reading a character at a time is cheap
+		 *
+		 **/
+
+		return in instanceof BufferedReader ? (BufferedReader) in : new BufferedReader(in);
+	}
+}
@@ -0,0 +1,98 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+public class PatternRoundTripCheck {
+
+	/*
+	 * Writes boards to RLE and snapshot files and checks that reading them back gives the
+	 * very same cells.
+	 *
+	 * The boards are a handful of cells scattered over the whole int range, so their
+	 * bounding boxes span more than 2^31 rows and columns and the row and column offsets
+	 * RowOrder sorts by use all 32 bits, plus a dense soup around the origin. Both backends
+	 * are checked, and the first board that comes back different throws.
+	 *
+	 *     java PatternRoundTripCheck [boards]
+	 *
+	 **/
+
+	public static void main(String[] args) throws IOException {
+		int boards = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		Path rle = Files.createTempFile("roundtrip", ".rle");
+		Path snapshot = Files.createTempFile("roundtrip", ".life");
+		try {
+			for (InfiniteGameOfLife.Backend backend : InfiniteGameOfLife.Backend.values()) {
+				// rows on both sides of the sign flip of the row offset
+				InfiniteGameOfLife game = new InfiniteGameOfLife(backend);
+				game.addAliveCell(0, Integer.MIN_VALUE);
+				game.addAliveCell(3, -1);
+				game.addAliveCell(7, 1);
+				check(backend + " cells above and below 2^31 rows", game, rle, snapshot);
+
+				Random random = new Random(1);
+				for (int b = 0; b < boards; b++) {
+					game = new InfiniteGameOfLife(backend);
+					int cells = 1 + random.nextInt(12);
+					for (int i = 0; i < cells; i++) {
+						game.addAliveCell(random.nextInt(), random.nextInt());
+					}
+					if (random.nextBoolean()) {
+						game.addAliveCell(Integer.MIN_VALUE, Integer.MIN_VALUE);
+						game.addAliveCell(Integer.MAX_VALUE, Integer.MAX_VALUE);
+					}
+					check(backend + " scattered board " + b, game, rle, snapshot);
+				}
+
+				game = new InfiniteGameOfLife(backend);
+				game.randomSetup(new int[] {-100, 99, -80, 79}, 0.5, 7);
+				check(backend + " soup", game, rle, snapshot);
+			}
+		}
+		finally {
+			Files.deleteIfExists(rle);
+			Files.deleteIfExists(snapshot);
+		}
+		System.out.println("every board came back the same from RLE and snapshot files");
+	}
+
+	private static void check(String name, InfiniteGameOfLife game, Path rle, Path snapshot) throws IOException {
+		/*
+		 * Writes game to both files, reads each back into a new game and throws if the cells differ
+		 *
+		 **/
+
+		long[] expected = cellsOf(game);
+		PatternWriter.write(rle, game);
+		InfiniteGameOfLife read = new InfiniteGameOfLife(game.getBackend());
+		PatternReader.read(rle, read);
+		if (!Arrays.equals(expected, cellsOf(read))) {
+			throw new IllegalStateException(name + ": RLE file reads back as different cells");
+		}
+		SnapshotFile.save(game, snapshot);
+		InfiniteGameOfLife loaded = new InfiniteGameOfLife(game.getBackend());
+		SnapshotFile.load(snapshot, loaded);
+		if (!Arrays.equals(expected, cellsOf(loaded))) {
+			throw new IllegalStateException(name + ": snapshot file loads as different cells");
+		}
+	}
+
+	private static long[] cellsOf(InfiniteGameOfLife game) {
+		/*
+		 * Returns the packed alive cells of game, sorted
+		 *
+		 **/
+
+		final CellSet cells = new CellSet();
+		game.forEachAliveCell(new CellVisitor() {
+			public void visit(int x, int y) {
+				cells.add(CellSet.pack(x, y));
+			}
+		});
+		long[] sorted = cells.toArray();
+		Arrays.sort(sorted);
+		return sorted;
+	}
+}
@@ -0,0 +1,189 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class PatternWriter {
+
+	/*
+	 * Saves the board in the RLE and plaintext (.cells) formats read by PatternReader.
+	 *
+	 * Both formats list cells row by row, so the writer gets them from RowOrder, one band of
+	 * rows at a time, and writes them straight to the Writer. No string of the whole board
+	 * is ever built.
+	 *
+	 * RLE headers carry the game's rule. A board whose background is alive (see Rule.hasB0())
+	 * has infinitely many alive cells, which neither format can hold, so it can't be saved.
+	 *
+	 **/
+
+	private static final int MAX_LINE = 70;
+
+	public static void write(Path file, InfiniteGameOfLife game) throws IOException {
+		/*
+		 * Saves the board to an .rle or .cells file, picked by its extension
+		 *
+		 **/
+
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			if (file.getFileName().toString().toLowerCase().endsWith(".cells")) {
+				writePlaintext(writer, game);
+			}
+			else {
+				writeRle(writer, game);
+			}
+		}
+	}
+
+	public static void writeRle(Writer writer, InfiniteGameOfLife game) throws IOException {
+		/*
+		 * Writes the board as RLE, with a #CXRLE line giving its position
+		 *
+		 **/
+
+		checkBackground(game);
+		Writer out = buffered(writer);
+		final int[] bounds = game.getBounds();
+		final RunWriter runs = new RunWriter(out);
+		String rule = game.getRule().toString();
+		if (bounds == null) {
+			out.write("x = 0, y = 0, rule = " + rule + "\n!\n");
+			out.flush();
+			return;
+		}
+		out.write("#CXRLE Pos=" + bounds[0] + "," + bounds[2] + "\n");
+		out.write("x = " + ((long) bounds[1] - bounds[0] + 1) + ", y = " + ((long) bounds[3] - bounds[2] + 1) + ", rule = " + rule + "\n");
+		RowOrder.forEach(game, bounds, bandHeight(game, bounds), new RowOrder.Visitor() {
+			long row = 0;
+			long column = 0;
+
+			public void visit(long x, long y) throws IOException {
+				if (y > row) {
+					runs.add('$', y - row);
+					row = y;
+					column = 0;
+				}
+				if (x > column) {
+					runs.add('b', x - column);
+				}
+				runs.add('o', 1);
+				column = x + 1;
+			}
+		});
+		runs.add('!', 1);
+		runs.finish();
+		out.flush();
+	}
+
+	public static void writePlaintext(Writer writer, InfiniteGameOfLife game) throws IOException {
+		/*
+		 * Writes the board as plaintext, one line per row of the bounding box
+		 *
+		 **/
+
+		checkBackground(game);
+		final Writer out = buffered(writer);
+		final int[] bounds = game.getBounds();
+		if (bounds == null) {
+			out.flush();
+			return;
+		}
+		out.write("!Position: " + bounds[0] + "," + bounds[2] + "\n");
+		RowOrder.forEach(game, bounds, bandHeight(game, bounds), new RowOrder.Visitor() {
+			long row = 0;
+			long column = 0;
+
+			public void visit(long x, long y) throws IOException {
+				for (; row < y; row++) {
+					out.write('\n');
+					column = 0;
+				}
+				for (; column < x; column++) {
+					out.write('.');
+				}
+				out.write('O');
+				column++;
+			}
+		});
+		out.write('\n');
+		out.flush();
+	}
+
+	private static void checkBackground(InfiniteGameOfLife game) throws IOException {
+		/*
+		 * Throws if the game's background is alive
+		 *
+		 **/
+
+		if (game.isBackgroundAlive()) {
+			throw new IOException("Can't save generation " + game.getGen() + " of " + game.getRule()
+					+ ", every cell outside the pattern is alive (use SnapshotFile instead)");
+		}
+	}
+
+	private static long bandHeight(InfiniteGameOfLife game, int[] bounds) {
+		/*
+		 * Returns the band height for RowOrder, only the TILED backend can fetch a band cheaply
+		 *
+		 **/
+
+		return RowOrder.bandHeight(bounds, game.getBackend() == InfiniteGameOfLife.Backend.TILED);
+	}
+
+	private static Writer buffered(Writer out) {
+		/*
+		 * Returns out itself if it's already buffered, so writing a character at a time is cheap
+		 *
+		 **/
+
+		return out instanceof BufferedWriter ? out : new BufferedWriter(out);
+	}
+
+	private static class RunWriter {
+
+		/*
+		 * Writes RLE runs, merging repeats of the same tag and wrapping lines at MAX_LINE
+		 *
+		 **/
+
+		private final Writer out;
+		private char tag;
+		private long count;
+		private int lineLength;
+
+		RunWriter(Writer out) {
+			this.out = out;
+		}
+
+		void add(char tag, long count) throws IOException {
+			if (tag == this.tag) {
+				this.count += count;
+				return;
+			}
+			flushRun();
+			this.tag = tag;
+			this.count = count;
+		}
+
+		void finish() throws IOException {
+			flushRun();
+			out.write('\n');
+		}
+
+		private void flushRun() throws IOException {
+			if (count == 0) {
+				return;
+			}
+			String run = count == 1 ? String.valueOf(tag) : count + String.valueOf(tag);
+			if (lineLength + run.length() > MAX_LINE) {
+				out.write('\n');
+				lineLength = 0;
+			}
+			out.write(run);
+			lineLength += run.length();
+			count = 0;
+		}
+	}
+}
@@ -0,0 +1,119 @@
+public class Patterns {
+
+	/*
+	 * A few well known starting patterns plus seeded random soups, as arrays of packed
+	 * cells (see CellSet.pack()) that can be loaded into any InfiniteGameOfLife.
+	 *
+	 * Patterns are drawn as rows of text, 'O' for alive and '.' for dead, with the top-left
+	 * character at (0, 0), x growing to the right and y growing down like the display.
+	 *
+	 **/
+
+	private static final String[] NAMES = {"rpentomino", "acorn", "glider", "diehard", "gosper"};
+
+	private static final String[][] ROWS = {
+		{
+			".OO",
+			"OO.",
+			".O.",
+		},
+		{
+			".O.....",
+			"...O...",
+			"OO..OOO",
+		},
+		{
+			".O.",
+			"..O",
+			"OOO",
+		},
+		{
+			"......O.",
+			"OO......",
+			".O...OOO",
+		},
+		{
+			"........................O...........",
+			"......................O.O...........",
+			"............OO......OO............OO",
+			"...........O...O....OO............OO",
+			"OO........O.....O...OO..............",
+			"OO........O...O.OO....O.O...........",
+			"..........O.....O.......O...........",
+			"...........O...O....................",
+			"............OO......................",
+		},
+	};
+
+	public static String[] names() {
+		/*
+		 * Returns the names named() knows about
+		 *
+		 **/
+
+		return NAMES.clone();
+	}
+
+	public static long[] named(String name) {
+		/*
+		 * Returns the cells of the pattern with the given name (case insensitive)
+		 *
+		 **/
+
+		for (int i = 0; i < NAMES.length; i++) {
+			if (NAMES[i].equalsIgnoreCase(name)) {
+				return parse(ROWS[i]);
+			}
+		}
+		throw new IllegalArgumentException("Unknown pattern " + name + ", expected one of " + String.join(", ", NAMES));
+	}
+
+	public static long[] randomSoup(int side, double density, long seed) {
+		/*
+		 * Returns a side x side soup centered on the origin with each cell alive with the
+		 * given probability, always the same soup for the same seed
+		 * It's the RandomSoup that InfiniteGameOfLife.randomSetup() writes for the same
+		 * bounds, density and seed
+		 *
+		 **/
+
+		RandomSoup soup = new RandomSoup(side, side, density, seed);
+		long[] bitmap = soup.fill(1);
+		int words = soup.getWords();
+		LongList cells = new LongList();
+		for (int r = 0; r < side; r++) {
+			for (int w = 0; w < words; w++) {
+				for (long bits = bitmap[r * words + w]; bits != 0; bits &= bits - 1) {
+					cells.add(CellSet.pack(-side / 2 + (w << 6) + Long.numberOfTrailingZeros(bits), -side / 2 + r));
+				}
+			}
+		}
+		return cells.toArray();
+	}
+
+	public static void load(InfiniteGameOfLife game, long[] cells) {
+		/*
+		 * Makes every given cell alive
+		 *
+		 **/
+
+		game.addCells(cells);
+	}
+
+	static long[] parse(String[] rows) {
+		/*
+		 * Returns the alive cells of a pattern drawn as text
+		 *
+		 **/
+
+		LongList cells = new LongList();
+		for (int y = 0; y < rows.length; y++) {
+			for (int x = 0; x < rows[y].length(); x++) {
+				if (rows[y].charAt(x) == 'O') {
+					cells.add(CellSet.pack(x, y));
+				}
+			}
+		}
+		return cells.toArray();
+	}
+}
@@ -0,0 +1,176 @@
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class RandomSoup {
+
+	/*
+	 * A seeded random soup, width x height cells each alive with a given density, produced
+	 * as rows of 64 bit words (bit i of word w is column 64 w + i) that go straight into a
+	 * board with InfiniteGameOfLife.setCells().
+	 *
+	 * Words are filled 64 cells at a time. A density written in binary as 0.b1 b2 ... bk
+	 * (rounded to PRECISION bits) takes k random words, combined from the last bit to the
+	 * first: OR with a new word where the bit is 1, AND where it's 0. Each step halves the
+	 * chance of a 0 or of a 1, so every cell ends up alive with exactly that probability,
+	 * and 0.5 costs a single nextLong() per 64 cells.
+	 *
+	 * The rows are cut into bands of BAND_ROWS, and every band draws from its own
+	 * SplittableRandom seeded from the soup's seed. Bands don't depend on each other, so
+	 * they can be filled in any order or on several threads and the same seed always gives
+	 * the same soup, whatever the parallelism.
+	 *
+	 **/
+
+	public static final int BAND_ROWS = 64;
+	private static final int PRECISION = 24;
+
+	private final int width;
+	private final int height;
+	private final int words;
+	private final long lastWordMask;
+	private final int threshold;
+	private final long[] bandSeeds;
+
+	public RandomSoup(int width, int height, double density, long seed) {
+		/*
+		 * Constructs a width x height soup with each cell alive with the given probability
+		 *
+		 **/
+
+		if (width < 1 || height < 1) {
+			throw new IllegalArgumentException("A soup needs a positive size, got " + width + "x" + height);
+		}
+		if (!(density >= 0 && density <= 1)) {
+			throw new IllegalArgumentException("Density must be between 0 and 1, got " + density);
+		}
+		this.width = width;
+		this.height = height;
+		words = (width + 63) >>> 6;
+		lastWordMask = -1L >>> (-width & 63);
+		threshold = (int) Math.round(density * (1 << PRECISION));
+		bandSeeds = new long[(height + BAND_ROWS - 1) / BAND_ROWS];
+		SplittableRandom random = new SplittableRandom(seed);
+		for (int band = 0; band < bandSeeds.length; band++) {
+			bandSeeds[band] = random.nextLong();
+		}
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public int getWords() {
+		/*
+		 * Returns how many words each row takes
+		 *
+		 **/
+
+		return words;
+	}
+
+	public int getBands() {
+		/*
+		 * Returns how many bands of BAND_ROWS rows the soup is cut into, the last one maybe shorter
+		 *
+		 **/
+
+		return bandSeeds.length;
+	}
+
+	public void fillBand(int band, long[] out, int offset) {
+		/*
+		 * Writes the rows of the given band into out from offset on, getWords() words per row
+		 * Columns past the width are left dead
+		 *
+		 **/
+
+		SplittableRandom random = new SplittableRandom(bandSeeds[band]);
+		int rows = Math.min(BAND_ROWS, height - band * BAND_ROWS);
+		for (int r = 0; r < rows; r++) {
+			int row = offset + r * words;
+			for (int w = 0; w < words; w++) {
+				out[row + w] = nextWord(random);
+			}
+			out[row + words - 1] &= lastWordMask;
+		}
+	}
+
+	public long[] fill(int parallelism) {
+		/*
+		 * Returns every row of the soup, getWords() words per row, filled by parallelism threads
+		 *
+		 **/
+
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1, got " + parallelism);
+		}
+		long[] out = new long[Math.multiplyExact(height, words)];
+		if (parallelism == 1 || bandSeeds.length == 1) {
+			for (int band = 0; band < bandSeeds.length; band++) {
+				fillBand(band, out, band * BAND_ROWS * words);
+			}
+			return out;
+		}
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			pool.invoke(new BandTask(out, 0, bandSeeds.length));
+		}
+		finally {
+			pool.shutdown();
+		}
+		return out;
+	}
+
+	private long nextWord(SplittableRandom random) {
+		/*
+		 * Returns 64 cells, each alive with probability threshold / 2^PRECISION
+		 *
+		 **/
+
+		if (threshold == 0) {
+			return 0;
+		}
+		if (threshold == 1 << PRECISION) {
+			return -1L;
+		}
+		long word = 0;
+		for (int bit = Integer.numberOfTrailingZeros(threshold); bit < PRECISION; bit++) {
+			long bits = random.nextLong();
+			word = ((threshold >>> bit) & 1) != 0 ? word | bits : word & bits;
+		}
+		return word;
+	}
+
+	private class BandTask extends RecursiveAction {
+
+		/*
+		 * Fills a range of bands, splitting it in half until it's a single band
+		 *
+		 **/
+
+		private static final long serialVersionUID = 1L;
+
+		private final long[] out;
+		private final int from, to;
+
+		BandTask(long[] out, int from, int to) {
+			this.out = out;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from == 1) {
+				fillBand(from, out, from * BAND_ROWS * words);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new BandTask(out, from, middle), new BandTask(out, middle, to));
+		}
+	}
+}
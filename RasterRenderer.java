@@ -0,0 +1,351 @@
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+public class RasterRenderer {
+
+	/*
+	 * Draws the board straight into the pixels of a BufferedImage.
+	 *
+	 * The image is TYPE_INT_RGB, so its DataBufferInt is a plain int[] with one entry per
+	 * pixel. Every frame that array is cleared to black, the alive cells inside the window
+	 * are written into it and the panel draws the whole image in one drawImage(), instead of
+	 * one fillRect() per cell.
+	 *
+	 * Zoomed in, every cell covers cellWidth x cellHeight pixels and is drawn like the old
+	 * fillRect() version, white with a one pixel black outline (when there is room for one).
+	 * Zoomed out, every pixel covers 2^shift x 2^shift cells. With any-alive shading a pixel
+	 * is white if any of its cells is alive. With density shading its brightness is the
+	 * fraction of its cells that are alive, so the structure of huge patterns stays visible.
+	 *
+	 * Once a pixel covers a whole Tile or more, a view that has a DensityPyramid (the TILED
+	 * backend) is drawn from the pyramid level with one block per pixel instead, so a frame
+	 * costs at most a lookup per pixel however many cells are alive. The pixels are then
+	 * lined up with the blocks, which moves the picture by less than a pixel.
+	 *
+	 * When the background is alive (see BoardView.isBackgroundAlive()) the image is cleared
+	 * to white instead and the cells the view lists, which are the dead ones, drawn black.
+	 * Zoomed out with any-alive shading, a pixel then only turns black once every cell it
+	 * covers is listed, since a single alive cell among them makes it white.
+	 *
+	 * Zoomed in, renderChanges() keeps the image of the last frame and only redraws what a
+	 * step changed: the blocks of cells a BoardSnapshot lists as changed are cleared and
+	 * their cells drawn again, the rest of the pixels stay as they were. A pan by a few
+	 * cells moves the pixels that stay visible and draws only the strips that came into
+	 * view. Anything else (a zoom, a resize, a flipped background, unknown changes) is a
+	 * full render, and getDirtyBounds() says which pixels the last call touched.
+	 *
+	 **/
+
+	public static final int MAX_SHIFT = 16;
+
+	private static final int ALIVE = 0xFFFFFF;
+	private static final int DEAD = 0x000000;
+	private static final int MIN_DENSITY_GRAY = 48;
+
+	private BufferedImage image;
+	private int[] pixels;
+	private int[] counts;
+	private long[] blockCounts;
+	private boolean densityShading;
+	// what the image shows, for renderChanges(); drawnCellWidth is 0 when it's not a zoomed in frame
+	private int drawnOriginX, drawnOriginY, drawnCellWidth, drawnCellHeight;
+	private boolean drawnBackgroundAlive;
+	private int dirtyLeft, dirtyTop, dirtyRight, dirtyBottom;
+
+	public void setDensityShading(boolean densityShading) {
+		/*
+		 * Chooses between density shading and any-alive shading when zoomed out
+		 *
+		 **/
+
+		this.densityShading = densityShading;
+	}
+
+	public boolean isDensityShading() {
+		/*
+		 * Returns true if zoomed out pixels are shaded by density
+		 *
+		 **/
+
+		return densityShading;
+	}
+
+	public BufferedImage render(BoardView view, int width, int height, int originX, int originY, int cellWidth, int cellHeight) {
+		/*
+		 * Renders the board zoomed in, with (originX, originY) at the top-left pixel and every
+		 * cell cellWidth x cellHeight pixels big
+		 *
+		 **/
+
+		prepare(width, height, view.isBackgroundAlive());
+		drawn(originX, originY, cellWidth, cellHeight, view.isBackgroundAlive());
+		drawCells(view, originX, originX + (width - 1) / cellWidth, originY, originY + (height - 1) / cellHeight);
+		return image;
+	}
+
+	public BufferedImage renderChanges(BoardView view, int width, int height, int originX, int originY, int cellWidth, int cellHeight, long[] changedBlocks) {
+		/*
+		 * Renders the board zoomed in like render(), given that the image still shows the
+		 * frame before and the view only differs from it in the given blocks (see
+		 * BoardSnapshot.getChangedBlocks()), or in every cell if changedBlocks is null
+		 *
+		 **/
+
+		boolean backgroundAlive = view.isBackgroundAlive();
+		long panX = (long) originX - drawnOriginX;
+		long panY = (long) originY - drawnOriginY;
+		if (changedBlocks == null || image == null || image.getWidth() != width || image.getHeight() != height
+				|| cellWidth != drawnCellWidth || cellHeight != drawnCellHeight || backgroundAlive != drawnBackgroundAlive
+				|| Math.abs(panX) * cellWidth >= width || Math.abs(panY) * cellHeight >= height) {
+			return render(view, width, height, originX, originY, cellWidth, cellHeight);
+		}
+		int dx = (int) panX;
+		int dy = (int) panY;
+		dirtyLeft = width;
+		dirtyTop = height;
+		dirtyRight = 0;
+		dirtyBottom = 0;
+		int xHigh = originX + (width - 1) / cellWidth;
+		int yHigh = originY + (height - 1) / cellHeight;
+		if (dx != 0 || dy != 0) {
+			scroll(dx * cellWidth, dy * cellHeight);
+			drawn(originX, originY, cellWidth, cellHeight, backgroundAlive);
+			// the cells whose pixels weren't all on the image before
+			if (dx > 0) {
+				redraw(view, originX + (width - dx * cellWidth) / cellWidth, xHigh, originY, yHigh);
+			}
+			else if (dx < 0) {
+				redraw(view, originX, originX - dx - 1, originY, yHigh);
+			}
+			if (dy > 0) {
+				redraw(view, originX, xHigh, originY + (height - dy * cellHeight) / cellHeight, yHigh);
+			}
+			else if (dy < 0) {
+				redraw(view, originX, xHigh, originY, originY - dy - 1);
+			}
+			// everything moved
+			dirtyLeft = 0;
+			dirtyTop = 0;
+			dirtyRight = width;
+			dirtyBottom = height;
+		}
+		for (long block : changedBlocks) {
+			long xLow = (long) CellSet.unpackX(block) << BoardSnapshot.BLOCK_SHIFT;
+			long yLow = (long) CellSet.unpackY(block) << BoardSnapshot.BLOCK_SHIFT;
+			long xEnd = Math.min(xLow + BoardSnapshot.BLOCK_SIZE - 1, xHigh);
+			long yEnd = Math.min(yLow + BoardSnapshot.BLOCK_SIZE - 1, yHigh);
+			if (xEnd >= originX && yEnd >= originY && xLow <= xHigh && yLow <= yHigh) {
+				redraw(view, (int) Math.max(xLow, originX), (int) xEnd, (int) Math.max(yLow, originY), (int) yEnd);
+			}
+		}
+		return image;
+	}
+
+	public Rectangle getDirtyBounds() {
+		/*
+		 * Returns the pixels the last render changed, or null if it changed none
+		 *
+		 **/
+
+		if (dirtyLeft >= dirtyRight || dirtyTop >= dirtyBottom) {
+			return null;
+		}
+		return new Rectangle(dirtyLeft, dirtyTop, dirtyRight - dirtyLeft, dirtyBottom - dirtyTop);
+	}
+
+	private void drawn(int originX, int originY, int cellWidth, int cellHeight, boolean backgroundAlive) {
+		/*
+		 * Records what a zoomed in image shows, every pixel of which is about to be redrawn
+		 *
+		 **/
+
+		drawnOriginX = originX;
+		drawnOriginY = originY;
+		drawnCellWidth = cellWidth;
+		drawnCellHeight = cellHeight;
+		drawnBackgroundAlive = backgroundAlive;
+		dirtyLeft = 0;
+		dirtyTop = 0;
+		dirtyRight = image.getWidth();
+		dirtyBottom = image.getHeight();
+	}
+
+	private void drawCells(BoardView view, int xLow, int xHigh, int yLow, int yHigh) {
+		/*
+		 * Draws the listed cells from (xLow, yLow) to (xHigh, yHigh) onto their background
+		 *
+		 **/
+
+		final int[] pixels = this.pixels;
+		final int stride = image.getWidth();
+		final int x0 = drawnOriginX;
+		final int y0 = drawnOriginY;
+		final int listed = drawnBackgroundAlive ? DEAD : ALIVE;
+		final int w = drawnCellWidth;
+		final int h = drawnCellHeight;
+		// leave the outline black, like drawRect() used to
+		final int inset = w > 1 && h > 1 ? 1 : 0;
+		view.forEachAliveCellIn(new int[] {xLow, xHigh, yLow, yHigh}, new CellVisitor() {
+			public void visit(int x, int y) {
+				int left = (x - x0) * w + inset;
+				int top = (y - y0) * h + inset;
+				int right = Math.min(left + w - inset, stride);
+				int bottom = Math.min(top + h - inset, pixels.length / stride);
+				for (int py = top; py < bottom; py++) {
+					Arrays.fill(pixels, py * stride + left, py * stride + right, listed);
+				}
+			}
+		});
+	}
+
+	private void redraw(BoardView view, int xLow, int xHigh, int yLow, int yHigh) {
+		/*
+		 * Clears the pixels of the cells from (xLow, yLow) to (xHigh, yHigh), which have to be
+		 * in the window, and draws them again
+		 *
+		 **/
+
+		int width = image.getWidth();
+		int height = image.getHeight();
+		int left = (xLow - drawnOriginX) * drawnCellWidth;
+		int top = (yLow - drawnOriginY) * drawnCellHeight;
+		int right = Math.min((xHigh - drawnOriginX + 1) * drawnCellWidth, width);
+		int bottom = Math.min((yHigh - drawnOriginY + 1) * drawnCellHeight, height);
+		int background = drawnBackgroundAlive ? ALIVE : DEAD;
+		for (int py = top; py < bottom; py++) {
+			Arrays.fill(pixels, py * width + left, py * width + right, background);
+		}
+		drawCells(view, xLow, xHigh, yLow, yHigh);
+		dirtyLeft = Math.min(dirtyLeft, left);
+		dirtyTop = Math.min(dirtyTop, top);
+		dirtyRight = Math.max(dirtyRight, right);
+		dirtyBottom = Math.max(dirtyBottom, bottom);
+	}
+
+	private void scroll(int sx, int sy) {
+		/*
+		 * Moves every pixel sx to the left and sy up (right and down when negative), leaving
+		 * whatever was there in the pixels that came into view
+		 *
+		 **/
+
+		int width = image.getWidth();
+		int height = image.getHeight();
+		int length = width - Math.abs(sx);
+		int from = Math.max(sx, 0);
+		int to = Math.max(-sx, 0);
+		if (sy >= 0) {
+			for (int py = 0; py < height - sy; py++) {
+				System.arraycopy(pixels, (py + sy) * width + from, pixels, py * width + to, length);
+			}
+		}
+		else {
+			for (int py = height - 1; py >= -sy; py--) {
+				System.arraycopy(pixels, (py + sy) * width + from, pixels, py * width + to, length);
+			}
+		}
+	}
+
+	public BufferedImage renderZoomedOut(BoardView view, int width, int height, int originX, int originY, int shift) {
+		/*
+		 * Renders the board zoomed out, with (originX, originY) at the top-left pixel and every
+		 * pixel covering 2^shift x 2^shift cells
+		 *
+		 **/
+
+		if (shift < 0 || shift > MAX_SHIFT) {
+			throw new IllegalArgumentException("Shift must be between 0 and " + MAX_SHIFT + ", got " + shift);
+		}
+		boolean backgroundAlive = view.isBackgroundAlive();
+		prepare(width, height, backgroundAlive);
+		drawn(originX, originY, 0, 0, backgroundAlive);
+		final int[] pixels = this.pixels;
+		final int stride = width;
+		final int x0 = originX;
+		final int y0 = originY;
+		final int k = shift;
+		final int listed = backgroundAlive ? DEAD : ALIVE;
+		int[] window = {originX, (int) Math.min(Integer.MAX_VALUE, originX + ((long) width << shift) - 1),
+				originY, (int) Math.min(Integer.MAX_VALUE, originY + ((long) height << shift) - 1)};
+		DensityPyramid pyramid = shift >= Tile.SHIFT ? view.getDensityPyramid() : null;
+		if (pyramid != null) {
+			if (blockCounts == null || blockCounts.length < pixels.length) {
+				blockCounts = new long[pixels.length];
+			}
+			pyramid.countBlocks(shift - Tile.SHIFT, originX >> shift, originY >> shift, width, height, blockCounts);
+			for (int i = 0; i < pixels.length; i++) {
+				if (blockCounts[i] != 0) {
+					pixels[i] = densityShading ? shade(blockCounts[i], shift, backgroundAlive) : anyAlive(blockCounts[i], shift, backgroundAlive);
+				}
+			}
+			return image;
+		}
+		// with an alive background a pixel of several cells can only be told dead by counting its listed cells
+		if ((!densityShading && !backgroundAlive) || shift == 0) {
+			view.forEachAliveCellIn(window, new CellVisitor() {
+				public void visit(int x, int y) {
+					pixels[((y - y0) >>> k) * stride + ((x - x0) >>> k)] = listed;
+				}
+			});
+			return image;
+		}
+
+		if (counts == null || counts.length < pixels.length) {
+			counts = new int[pixels.length];
+		}
+		final int[] counts = this.counts;
+		Arrays.fill(counts, 0, pixels.length, 0);
+		view.forEachAliveCellIn(window, new CellVisitor() {
+			public void visit(int x, int y) {
+				counts[((y - y0) >>> k) * stride + ((x - x0) >>> k)]++;
+			}
+		});
+		for (int i = 0; i < pixels.length; i++) {
+			if (counts[i] != 0) {
+				pixels[i] = densityShading ? shade(counts[i], shift, backgroundAlive) : anyAlive(counts[i], shift, backgroundAlive);
+			}
+		}
+		return image;
+	}
+
+	private static int anyAlive(long listed, int shift, boolean backgroundAlive) {
+		/*
+		 * Returns the any-alive color of a pixel of 2^shift x 2^shift cells, listed (at least
+		 * one) of which the view listed: white unless the listed cells are the dead ones and
+		 * they cover the whole pixel
+		 *
+		 **/
+
+		if (!backgroundAlive) {
+			return ALIVE;
+		}
+		return listed == 1L << (2 * shift) ? DEAD : ALIVE;
+	}
+
+	private static int shade(long listed, int shift, boolean backgroundAlive) {
+		/*
+		 * Returns the gray of a pixel of 2^shift x 2^shift cells, listed of which the view listed
+		 *
+		 **/
+
+		double cellsPerPixel = (double) (1L << (2 * shift));
+		double alive = backgroundAlive ? 1 - listed / cellsPerPixel : listed / cellsPerPixel;
+		int gray = alive == 0 ? 0 : MIN_DENSITY_GRAY + (int) ((255 - MIN_DENSITY_GRAY) * alive);
+		return (gray << 16) | (gray << 8) | gray;
+	}
+
+	private void prepare(int width, int height, boolean backgroundAlive) {
+		/*
+		 * Makes sure the image is width x height and clears it to the background
+		 *
+		 **/
+
+		if (image == null || image.getWidth() != width || image.getHeight() != height) {
+			image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+			pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		}
+		Arrays.fill(pixels, backgroundAlive ? ALIVE : DEAD);
+	}
+}
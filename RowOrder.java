@@ -0,0 +1,107 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+public class RowOrder {
+
+	/*
+	 * Walks the alive cells of a board row by row, for the file formats that need them in order.
+	 *
+	 * A board hands out its cells in no particular order, so the bounding box is cut into
+	 * horizontal bands. The cells of one band are fetched with forEachAliveCellIn(), sorted
+	 * and handed to the visitor, then the next band follows. Only one band's cells (8 bytes
+	 * each) are held at a time.
+	 *
+	 * Bands start on multiples of Tile.SIZE rows. With the TILED backend a band of Tile.SIZE
+	 * rows is one row of tiles, and fetching it only touches those tiles. A CellSet has no
+	 * spatial index, so every band costs a pass over all alive cells. Without an index it's
+	 * better to use at most MAX_UNINDEXED_BANDS bands, which bounds the passes at the price
+	 * of bigger bands (see bandHeight()).
+	 *
+	 **/
+
+	public static final int MAX_UNINDEXED_BANDS = 16;
+	private static final long MAX_EMPTY_BANDS = 4096;
+
+	public interface Visitor {
+		// Called with each alive cell's offset from the top-left of the bounds, row by row
+		void visit(long x, long y) throws IOException;
+	}
+
+	public static long bandHeight(int[] bounds, boolean indexed) {
+		/*
+		 * Returns a good band height for the given bounds, depending on whether the board
+		 * can fetch a band without looking at every alive cell
+		 *
+		 **/
+
+		if (indexed) {
+			return Tile.SIZE;
+		}
+		long height = (long) bounds[3] - bounds[2] + 1;
+		long bands = (height + MAX_UNINDEXED_BANDS - 1) / MAX_UNINDEXED_BANDS;
+		return (bands + Tile.MASK) & ~(long) Tile.MASK;
+	}
+
+	public static void forEach(BoardView view, int[] bounds, long bandHeight, Visitor visitor) throws IOException {
+		/*
+		 * Calls visitor for every alive cell inside bounds, top row first and left to right
+		 * bandHeight must be a multiple of Tile.SIZE
+		 *
+		 **/
+
+		final int xLow = bounds[0];
+		final int yLow = bounds[2];
+		final LongList band = new LongList();
+		long[] tops = bandTops(view, bounds, bandHeight);
+		for (long top : tops) {
+			// end the band on a tile boundary, so with tiles no tile is fetched twice
+			long bottom = Math.min(bounds[3], (top | Tile.MASK) + bandHeight - Tile.SIZE);
+			band.clear();
+			view.forEachAliveCellIn(new int[] {bounds[0], bounds[1], (int) top, (int) bottom}, new CellVisitor() {
+				public void visit(int x, int y) {
+					// row offset in the high half, column offset in the low half, so sorting gives row order;
+					// offsets go up to 2^32 - 1, so flip the sign bit to make the signed sort an unsigned one
+					band.add((((long) y - yLow) << 32 | ((long) x - xLow)) ^ Long.MIN_VALUE);
+				}
+			});
+			long[] cells = band.toArray();
+			Arrays.sort(cells);
+			for (long cell : cells) {
+				cell ^= Long.MIN_VALUE;
+				visitor.visit(cell & 0xFFFFFFFFL, cell >>> 32);
+			}
+		}
+	}
+
+	private static long[] bandTops(BoardView view, final int[] bounds, final long bandHeight) {
+		/*
+		 * Returns the first row of every band, in order
+		 * A few far apart cells can stretch the bounds over millions of mostly empty bands, so
+		 * past MAX_EMPTY_BANDS one extra pass over the cells finds the bands that aren't empty
+		 *
+		 **/
+
+		final long firstBottom = (bounds[2] | Tile.MASK) + bandHeight - Tile.SIZE;
+		long bands = ((long) bounds[3] - firstBottom + bandHeight - 1) / bandHeight + 1;
+		if (bands <= MAX_EMPTY_BANDS) {
+			long[] tops = new long[(int) bands];
+			tops[0] = bounds[2];
+			for (int i = 1; i < tops.length; i++) {
+				tops[i] = firstBottom + 1 + (i - 1) * bandHeight;
+			}
+			return tops;
+		}
+		final CellSet used = new CellSet();
+		view.forEachAliveCell(new CellVisitor() {
+			public void visit(int x, int y) {
+				used.add(y <= firstBottom ? Long.MIN_VALUE : (y - firstBottom - 1) / bandHeight);
+			}
+		});
+		long[] tops = used.toArray();
+		Arrays.sort(tops);
+		for (int i = 0; i < tops.length; i++) {
+			tops[i] = tops[i] == Long.MIN_VALUE ? bounds[2] : firstBottom + 1 + tops[i] * bandHeight;
+		}
+		return tops;
+	}
+}
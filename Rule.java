@@ -0,0 +1,260 @@
+public final class Rule {
+
+	/*
+	 * A Life-like rule in B/S notation, like B3/S23 for Conway's Game of Life.
+	 *
+	 * The digits after B are the neighbor counts that make a dead cell alive, the digits
+	 * after S the counts that keep an alive cell alive. parse() also takes the old S/B form
+	 * "23/3" used by older RLE files. A rule is compiled once into two 9 bit masks, bit n
+	 * set if a count of n is a birth or a survival, which is all CellSetBoard needs, and
+	 * into a 512 entry table of every 3x3 neighborhood for Hashlife's 4x4 squares.
+	 * TileKernel works on the same masks 64 cells at a time, with Conway's rule kept as
+	 * its own hard-wired expression.
+	 *
+	 * Rules with B0 turn every empty cell alive, which on an infinite board means infinitely
+	 * many cells. They are run the way Golly does it: the board keeps the cells that differ
+	 * from the background, and every step uses a rule rewritten for that, which never has
+	 * B0 itself (see forBackground()). Without S8 the background blinks between dead and
+	 * alive every generation, with S8 it stays alive after the first one.
+	 *
+	 **/
+
+	public static final Rule CONWAY = parse("B3/S23");
+
+	private static final int ALL_COUNTS = (1 << 9) - 1;
+	private static final int CENTER = 1 << 4;
+
+	private final int birth;
+	private final int survival;
+	private final boolean[] neighborhoods = new boolean[512];
+	// rewritten rules for stepping from a dead and from an alive background, made when first needed
+	private Rule fromDead;
+	private Rule fromAlive;
+
+	private Rule(int birth, int survival) {
+		/*
+		 * Constructs a rule from its birth and survival masks
+		 *
+		 **/
+
+		this.birth = birth;
+		this.survival = survival;
+		for (int bits = 0; bits < neighborhoods.length; bits++) {
+			neighborhoods[bits] = next((bits & CENTER) != 0, Integer.bitCount(bits & ~CENTER));
+		}
+	}
+
+	public static Rule parse(String rule) {
+		/*
+		 * Returns the rule written as "B36/S23", "b36s23", "S23/B36" or "23/36" (survival/birth)
+		 * Throws IllegalArgumentException if it isn't one of those
+		 *
+		 **/
+
+		String text = rule.trim().toUpperCase();
+		int birth = 0;
+		int survival = 0;
+		if (text.indexOf('B') < 0 && text.indexOf('S') < 0) {
+			int slash = text.indexOf('/');
+			if (slash < 0) {
+				throw new IllegalArgumentException("Can't read rule " + rule + ", expected something like B3/S23");
+			}
+			survival = counts(text.substring(0, slash), rule);
+			birth = counts(text.substring(slash + 1), rule);
+			return new Rule(birth, survival);
+		}
+		boolean seenBirth = false;
+		boolean seenSurvival = false;
+		for (String part : text.split("/")) {
+			int s = part.indexOf('S');
+			int b = part.indexOf('B');
+			// "B3S23" without a slash is two parts in one
+			if (s > 0 && b == 0) {
+				birth |= counts(part.substring(1, s), rule);
+				survival |= counts(part.substring(s + 1), rule);
+				seenBirth = seenSurvival = true;
+			}
+			else if (b > 0 && s == 0) {
+				survival |= counts(part.substring(1, b), rule);
+				birth |= counts(part.substring(b + 1), rule);
+				seenBirth = seenSurvival = true;
+			}
+			else if (b == 0 && s < 0 && !seenBirth) {
+				birth = counts(part.substring(1), rule);
+				seenBirth = true;
+			}
+			else if (s == 0 && b < 0 && !seenSurvival) {
+				survival = counts(part.substring(1), rule);
+				seenSurvival = true;
+			}
+			else {
+				throw new IllegalArgumentException("Can't read rule " + rule + ", expected something like B3/S23");
+			}
+		}
+		if (!seenBirth || !seenSurvival) {
+			throw new IllegalArgumentException("Rule " + rule + " needs both a B and an S part");
+		}
+		return new Rule(birth, survival);
+	}
+
+	private static int counts(String digits, String rule) {
+		/*
+		 * Returns the mask of the neighbor counts 0 to 8 listed in digits
+		 *
+		 **/
+
+		int mask = 0;
+		for (int i = 0; i < digits.length(); i++) {
+			char c = digits.charAt(i);
+			if (c < '0' || c > '8') {
+				throw new IllegalArgumentException("Can't read rule " + rule + ", '" + c + "' isn't a neighbor count from 0 to 8");
+			}
+			mask |= 1 << (c - '0');
+		}
+		return mask;
+	}
+
+	public boolean next(boolean alive, int neighbors) {
+		/*
+		 * Returns true if a cell with the given state and number of alive neighbors is alive next generation
+		 *
+		 **/
+
+		return (((alive ? survival : birth) >>> neighbors) & 1) != 0;
+	}
+
+	public boolean next(int neighborhood) {
+		/*
+		 * Returns the next state of the middle cell of a 3x3 neighborhood, given as
+		 * bit (3 * y + x) for the cell at (x, y), so bit 4 is the middle cell itself
+		 *
+		 **/
+
+		return neighborhoods[neighborhood];
+	}
+
+	public int getBirthMask() {
+		/*
+		 * Returns the counts that make a dead cell alive, bit n for n neighbors
+		 *
+		 **/
+
+		return birth;
+	}
+
+	public int getSurvivalMask() {
+		/*
+		 * Returns the counts that keep an alive cell alive, bit n for n neighbors
+		 *
+		 **/
+
+		return survival;
+	}
+
+	public boolean isConway() {
+		/*
+		 * Returns true for B3/S23
+		 *
+		 **/
+
+		return birth == 1 << 3 && survival == ((1 << 2) | (1 << 3));
+	}
+
+	public boolean hasB0() {
+		/*
+		 * Returns true if empty space comes alive, so the board needs a background (see forBackground())
+		 *
+		 **/
+
+		return (birth & 1) != 0;
+	}
+
+	public boolean nextBackground(boolean alive) {
+		/*
+		 * Returns whether the background is alive after one step from a dead or alive background
+		 *
+		 **/
+
+		return alive ? (survival & (1 << 8)) != 0 : (birth & 1) != 0;
+	}
+
+	public Rule forBackground(boolean alive) {
+		/*
+		 * Returns the rule that steps the cells differing from a background that is dead or
+		 * alive now to the cells differing from nextBackground(alive). A cell that differs
+		 * from an alive background with k such neighbors is really dead with 8 - k alive ones,
+		 * and it differs from the next background if its real next state does.
+		 * This is the rule itself when neither background is alive, and never has B0
+		 *
+		 **/
+
+		Rule rewritten = alive ? fromAlive : fromDead;
+		if (rewritten != null) {
+			return rewritten;
+		}
+		boolean next = nextBackground(alive);
+		if (!alive && !next) {
+			rewritten = this;
+		}
+		else {
+			int rewrittenBirth = 0;
+			int rewrittenSurvival = 0;
+			for (int k = 0; k <= 8; k++) {
+				int n = alive ? 8 - k : k;
+				if (next(alive, n) != next) {
+					rewrittenBirth |= 1 << k;
+				}
+				if (next(!alive, n) != next) {
+					rewrittenSurvival |= 1 << k;
+				}
+			}
+			rewritten = new Rule(rewrittenBirth & ALL_COUNTS, rewrittenSurvival & ALL_COUNTS);
+		}
+		if (alive) {
+			fromAlive = rewritten;
+		}
+		else {
+			fromDead = rewritten;
+		}
+		return rewritten;
+	}
+
+	public boolean equals(Object other) {
+		/*
+		 * Returns true for a rule with the same births and survivals
+		 *
+		 **/
+
+		return other instanceof Rule && ((Rule) other).birth == birth && ((Rule) other).survival == survival;
+	}
+
+	public int hashCode() {
+		/*
+		 * Returns a hash of the births and survivals
+		 *
+		 **/
+
+		return birth << 9 | survival;
+	}
+
+	public String toString() {
+		/*
+		 * Returns the rule in B/S notation, like B36/S23
+		 *
+		 **/
+
+		StringBuilder text = new StringBuilder("B");
+		for (int n = 0; n <= 8; n++) {
+			if ((birth & (1 << n)) != 0) {
+				text.append(n);
+			}
+		}
+		text.append("/S");
+		for (int n = 0; n <= 8; n++) {
+			if ((survival & (1 << n)) != 0) {
+				text.append(n);
+			}
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,58 @@
+public class RunBatch {
+
+	/*
+	 * Collects rows of alive cells for a loader and hands them to InfiniteGameOfLife.addRuns()
+	 * RUNS at a time, so a file is loaded 64 cells per board operation instead of one cell
+	 * at a time, and never needs more than one small array in between.
+	 *
+	 **/
+
+	private static final int RUNS = 4096;
+	// longest run addRuns() is handed at once
+	private static final int MAX_LENGTH = 1 << 30;
+
+	private final InfiniteGameOfLife game;
+	private final int[] runs = new int[3 * RUNS];
+	private int size;
+
+	public RunBatch(InfiniteGameOfLife game) {
+		/*
+		 * Constructs an empty batch for the given game
+		 *
+		 **/
+
+		this.game = game;
+	}
+
+	public void add(int x, int y, long length) {
+		/*
+		 * Adds the cells (x, y) to (x + length - 1, y), which have to fit the board
+		 *
+		 **/
+
+		while (length > 0) {
+			if (size == runs.length) {
+				flush();
+			}
+			int piece = (int) Math.min(length, MAX_LENGTH);
+			runs[size] = x;
+			runs[size + 1] = y;
+			runs[size + 2] = piece;
+			size += 3;
+			x += piece;
+			length -= piece;
+		}
+	}
+
+	public void flush() {
+		/*
+		 * Hands every run added so far to the game
+		 *
+		 **/
+
+		if (size > 0) {
+			game.addRuns(runs, size);
+			size = 0;
+		}
+	}
+}
@@ -0,0 +1,224 @@
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class Simulation {
+
+	/*
+	 * Runs an InfiniteGameOfLife on its own worker thread.
+	 *
+	 * Only the worker ever touches the game. Everybody else either queues a command
+	 * with submit(), which the worker runs between two generations, or reads the latest
+	 * published BoardSnapshot. That way a slow generation never blocks the Swing event
+	 * thread, and painting never reads a board that is being stepped.
+	 *
+	 * Snapshots are handed over through an AtomicReference. Copying the board every
+	 * generation would cost more than stepping it, so while running the worker only
+	 * publishes a new snapshot once the previous one has been taken by latest(). If the
+	 * display falls behind, the generations it didn't get to are simply never drawn.
+	 * While stopped, every change is published right away.
+	 *
+	 * Running at max speed steps as fast as the CPU allows. Otherwise there is one
+	 * generation every period, like the old Swing Timer.
+	 *
+	 **/
+
+	public static final long DEFAULT_PERIOD_MILLIS = 10;
+
+	private final InfiniteGameOfLife game;
+	private final LinkedBlockingQueue<Runnable> commands = new LinkedBlockingQueue<Runnable>();
+	private final AtomicReference<BoardSnapshot> latest = new AtomicReference<BoardSnapshot>();
+	private final AtomicBoolean frameWanted = new AtomicBoolean(true);
+	private final Runnable onPublish;
+	private final Thread worker;
+	private volatile boolean running;
+	private volatile boolean maxSpeed;
+	private volatile long periodNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_PERIOD_MILLIS);
+	private volatile Checkpointer checkpointer;
+	private boolean dirty = true;
+
+	public Simulation(InfiniteGameOfLife game, Runnable onPublish) {
+		/*
+		 * Constructs a stopped simulation of game and starts its worker thread
+		 * onPublish is called on the worker thread every time a new snapshot is available
+		 *
+		 **/
+
+		this.game = game;
+		this.onPublish = onPublish;
+		this.worker = new Thread(new Runnable() {
+			public void run() {
+				work();
+			}
+		}, "life-simulation");
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	public void submit(Runnable command) {
+		/*
+		 * Queues command to run on the worker thread between two generations
+		 * Commands run in the order they were submitted and may freely change the game
+		 *
+		 **/
+
+		commands.add(command);
+	}
+
+	public BoardSnapshot latest() {
+		/*
+		 * Returns the newest published snapshot (null until the first one) and asks the
+		 * worker for a new one, so call this once per frame
+		 *
+		 **/
+
+		frameWanted.set(true);
+		return latest.get();
+	}
+
+	public BoardSnapshot peek() {
+		/*
+		 * Returns the newest published snapshot without asking for a new one
+		 *
+		 **/
+
+		return latest.get();
+	}
+
+	public void setRunning(boolean running) {
+		/*
+		 * Starts or stops stepping the game
+		 *
+		 **/
+
+		this.running = running;
+		worker.interrupt();
+	}
+
+	public boolean isRunning() {
+		/*
+		 * Returns true if the game is being stepped
+		 *
+		 **/
+
+		return running;
+	}
+
+	public void setMaxSpeed(boolean maxSpeed) {
+		/*
+		 * Chooses between stepping as fast as possible and one generation per period
+		 *
+		 **/
+
+		this.maxSpeed = maxSpeed;
+		worker.interrupt();
+	}
+
+	public boolean isMaxSpeed() {
+		/*
+		 * Returns true if the game is stepped as fast as possible
+		 *
+		 **/
+
+		return maxSpeed;
+	}
+
+	public void setPeriod(long millis) {
+		/*
+		 * Sets the time between two generations when not at max speed
+		 *
+		 **/
+
+		if (millis < 0) {
+			throw new IllegalArgumentException("Period can't be negative: " + millis);
+		}
+		periodNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+
+	public void setCheckpointer(Checkpointer checkpointer) {
+		/*
+		 * Saves the game in the background every so many generations, null to stop
+		 *
+		 **/
+
+		this.checkpointer = checkpointer;
+	}
+
+	private void work() {
+		/*
+		 * Worker loop: run queued commands, step when it's time, publish when wanted
+		 *
+		 **/
+
+		long nextStep = System.nanoTime();
+		while (true) {
+			if (dirty && (!running || frameWanted.getAndSet(false))) {
+				publish();
+			}
+			Runnable command;
+			try {
+				if (!running) {
+					command = commands.take();
+					nextStep = System.nanoTime();
+				}
+				else if (maxSpeed) {
+					command = commands.poll();
+				}
+				else {
+					long wait = nextStep - System.nanoTime();
+					command = wait > 0 ? commands.poll(wait, TimeUnit.NANOSECONDS) : commands.poll();
+				}
+			}
+			catch (InterruptedException e) {
+				// running or maxSpeed changed, look at them again
+				continue;
+			}
+			if (command != null) {
+				runCommands(command);
+				continue;
+			}
+			if (running && (maxSpeed || System.nanoTime() - nextStep >= 0)) {
+				game.nextGen();
+				dirty = true;
+				Checkpointer checkpointer = this.checkpointer;
+				if (checkpointer != null) {
+					checkpointer.afterGeneration(game);
+				}
+				// keep to the period, but don't try to catch up on more than one late generation
+				long now = System.nanoTime();
+				nextStep = maxSpeed ? now : Math.max(nextStep + periodNanos, now - periodNanos);
+			}
+		}
+	}
+
+	private void runCommands(Runnable command) {
+		/*
+		 * Runs command and anything else already queued behind it
+		 * A failing command is reported and skipped so the worker keeps going
+		 *
+		 **/
+
+		while (command != null) {
+			try {
+				command.run();
+			}
+			catch (RuntimeException e) {
+				e.printStackTrace();
+			}
+			command = commands.poll();
+		}
+		dirty = true;
+	}
+
+	private void publish() {
+		/*
+		 * Hands a copy of the current generation to the readers
+		 *
+		 **/
+
+		latest.set(game.snapshot());
+		dirty = false;
+		onPublish.run();
+	}
+}
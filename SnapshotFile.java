@@ -0,0 +1,226 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class SnapshotFile {
+
+	/*
+	 * Compact binary save file for a board and its generation counter.
+	 *
+	 * Layout (big endian):
+	 *     int  magic "LIFE"
+	 *     int  version
+	 *     long generation
+	 *     long population
+	 *     int  xLow, xHigh, yLow, yHigh    bounding box, all 0 when empty
+	 *     byte background                  1 if the cells listed are the dead ones (see Rule.hasB0())
+	 *     short length, then that many ASCII bytes: the rule, like B3/S23
+	 *     then one entry per alive cell in row order (see RowOrder), as unsigned varints:
+	 *     - first cell of a row: (rows since the previous row << 1) | 1, then x - xLow
+	 *     - any other cell:      (columns since the previous cell - 1) << 1
+	 *
+	 * In a dense area most cells are a short hop from the last one, so they take a single
+	 * byte, and a sparse pattern still only pays for the gaps it actually has.
+	 *
+	 * Saving streams the encoded cells through one direct buffer into a FileChannel.
+	 * Loading maps the whole file with a MappedByteBuffer and decodes straight into the
+	 * board, joining neighboring cells of a row into runs for addRuns() (see RunBatch), so
+	 * nothing but the mapping and one batch of runs sits between the file and the cells.
+	 *
+	 * Version 1 files have no background or rule and are loaded as Conway's Game of Life.
+	 *
+	 **/
+
+	private static final int MAGIC = 0x4C494645;
+	private static final int VERSION = 2;
+	private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4 * 4;
+	private static final int RULE_HEADER_BYTES = 1 + 2;
+	private static final int BUFFER_BYTES = 1 << 20;
+	private static final int MAX_VARINT_BYTES = 10;
+
+	public static void save(BoardView view, Path file) throws IOException {
+		/*
+		 * Writes every alive cell of view and its generation to file, replacing what was there
+		 *
+		 **/
+
+		long population = view.getPopulation();
+		int[] bounds = view.getBounds();
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.BIG_ENDIAN);
+			buffer.putInt(MAGIC).putInt(VERSION).putLong(view.getGen()).putLong(population);
+			if (bounds == null) {
+				buffer.putInt(0).putInt(0).putInt(0).putInt(0);
+			}
+			else {
+				buffer.putInt(bounds[0]).putInt(bounds[1]).putInt(bounds[2]).putInt(bounds[3]);
+			}
+			byte[] rule = view.getRule().toString().getBytes(StandardCharsets.US_ASCII);
+			buffer.put((byte) (view.isBackgroundAlive() ? 1 : 0)).putShort((short) rule.length).put(rule);
+			if (bounds != null) {
+				// band height as if there were no spatial index, since a snapshot doesn't say
+				RowOrder.forEach(view, bounds, RowOrder.bandHeight(bounds, false), new RowOrder.Visitor() {
+					long row = 0;
+					long column = -1;
+
+					public void visit(long x, long y) throws IOException {
+						if (buffer.remaining() < 2 * MAX_VARINT_BYTES) {
+							drain(buffer, channel);
+						}
+						if (y != row || column < 0) {
+							putVarint(buffer, (y - row) << 1 | 1);
+							putVarint(buffer, x);
+						}
+						else {
+							putVarint(buffer, (x - column - 1) << 1);
+						}
+						row = y;
+						column = x;
+					}
+				});
+			}
+			drain(buffer, channel);
+		}
+	}
+
+	public static void load(Path file, InfiniteGameOfLife game) throws IOException {
+		/*
+		 * Replaces the board of game with the one saved in file, generation counter included
+		 *
+		 **/
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException(file + " is " + size + " bytes, too big to map in one piece");
+			}
+			if (size < HEADER_BYTES) {
+				throw new IOException(file + " is too short to be a snapshot");
+			}
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			buffer.order(ByteOrder.BIG_ENDIAN);
+			if (buffer.getInt() != MAGIC) {
+				throw new IOException(file + " is not a snapshot");
+			}
+			int version = buffer.getInt();
+			if (version < 1 || version > VERSION) {
+				throw new IOException(file + " is snapshot version " + version + ", only versions 1 to " + VERSION + " can be read");
+			}
+			long gen = buffer.getLong();
+			long population = buffer.getLong();
+			int xLow = buffer.getInt();
+			buffer.getInt();
+			int yLow = buffer.getInt();
+			buffer.getInt();
+			boolean backgroundAlive = false;
+			Rule rule = Rule.CONWAY;
+			if (version >= 2) {
+				if (buffer.remaining() < RULE_HEADER_BYTES) {
+					throw new IOException(file + " is too short to be a snapshot");
+				}
+				backgroundAlive = buffer.get() != 0;
+				byte[] text = new byte[buffer.getShort()];
+				if (buffer.remaining() < text.length) {
+					throw new IOException(file + " is too short to be a snapshot");
+				}
+				buffer.get(text);
+				try {
+					rule = Rule.parse(new String(text, StandardCharsets.US_ASCII));
+				}
+				catch (IllegalArgumentException e) {
+					throw new IOException(file + " has a bad rule: " + e.getMessage(), e);
+				}
+			}
+
+			game.clear();
+			game.setRule(rule);
+			// every cell takes at least a byte, so a broken population can't ask for more than the file holds
+			game.reserve(Math.min(population, buffer.remaining()));
+			RunBatch runs = new RunBatch(game);
+			long row = 0;
+			long column = -1;
+			// the cells since runColumn on this row are alive and not added yet
+			long runColumn = 0;
+			try {
+				for (long i = 0; i < population; i++) {
+					long entry = getVarint(buffer);
+					if (entry == 0 && i > 0) {
+						// right next to the cell before
+						column++;
+						continue;
+					}
+					if (i > 0) {
+						runs.add((int) (xLow + runColumn), (int) (yLow + row), column - runColumn + 1);
+					}
+					if ((entry & 1) != 0) {
+						row += entry >>> 1;
+						column = getVarint(buffer);
+					}
+					else {
+						column += (entry >>> 1) + 1;
+					}
+					runColumn = column;
+				}
+				if (population > 0) {
+					runs.add((int) (xLow + runColumn), (int) (yLow + row), column - runColumn + 1);
+				}
+			}
+			catch (BufferUnderflowException e) {
+				throw new IOException(file + " ends in the middle of its cells", e);
+			}
+			runs.flush();
+			game.setBackgroundAlive(backgroundAlive);
+			game.setGen(gen);
+		}
+	}
+
+	private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+		/*
+		 * Writes out everything in buffer and empties it
+		 *
+		 **/
+
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	private static void putVarint(ByteBuffer buffer, long value) {
+		/*
+		 * Writes value 7 bits at a time, lowest first, with the top bit set on all but the last byte
+		 *
+		 **/
+
+		while ((value & ~0x7FL) != 0) {
+			buffer.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	private static long getVarint(ByteBuffer buffer) throws IOException {
+		/*
+		 * Reads a value written by putVarint()
+		 *
+		 **/
+
+		long value = 0;
+		for (int shift = 0; shift < 7 * MAX_VARINT_BYTES; shift += 7) {
+			byte b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IOException("Corrupt snapshot, varint longer than " + MAX_VARINT_BYTES + " bytes");
+	}
+}
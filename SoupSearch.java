@@ -0,0 +1,343 @@
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class SoupSearch {
+
+	/*
+	 * Runs lots of small random soups to the end, the way census searches do, and tallies
+	 * how they ended.
+	 *
+	 * Soup i is the SIDE x SIDE RandomSoup with seed SEED + i, the same one BatchRunner runs
+	 * with --soup SIDE --seed SEED+i, so anything interesting can be looked at on its own.
+	 * Each soup is stepped until the cycle detector sees it repeat (see CycleDetector) or
+	 * until the generation limit, and then added to a SoupTally.
+	 *
+	 * Most soups that settle also send a few gliders off, and those never repeat as a whole
+	 * board, so on their own they would all run to the limit. Like census searches do, the
+	 * search also stops a soup once its population went up and down with the same period
+	 * (at most the cycle window) for SETTLED_WINDOWS windows in a row, and counts it as
+	 * escaping: a settled remainder with spaceships flying away. The population is only
+	 * checked every window generations, which costs a handful of comparisons per generation.
+	 *
+	 * A soup is far too small to keep several threads busy, so instead the soups are
+	 * spread over a ForkJoinPool: the range of seeds is split in halves down to
+	 * SOUPS_PER_TASK soups, and idle workers steal the halves nobody got to yet. Every
+	 * worker thread keeps one InfiniteGameOfLife for all the soups it runs, clearing it in
+	 * between, so its tables, scratch rows, neighbor counters and cycle detector are
+	 * allocated once per thread instead of once per soup (see CellSetBoard.clear() and
+	 * TileMap.clear()).
+	 *
+	 * With the census on, every soup that stopped is also split into objects by the worker's
+	 * ObjectCensus, and the summary lists the most common ones (see SoupTally).
+	 *
+	 * While the workers run, the calling thread writes a progress line to the output every
+	 * --report-every seconds, and the full tally when the search is done.
+	 *
+	 *     java SoupSearch [options]
+	 *
+	 *     --soups N             how many soups to run (default 10000)
+	 *     --side SIDE           soup side (default 16)
+	 *     --density D           soup density (default 0.5)
+	 *     --seed S              seed of the first soup (default 1)
+	 *     --max-generations N   give up on a soup after N generations (default 20000)
+	 *     --cycle-window N      longest period detected (default 64)
+	 *     --rule R              Life-like rule in B/S notation (default B3/S23)
+	 *     --backend B           CELL_SET or TILED (default TILED)
+	 *     --threads T           worker threads (default: one per core)
+	 *     --census on|off       count the objects every soup leaves (default on)
+	 *     --report-every T      seconds between progress lines, 0 for none (default 1)
+	 *     --out FILE            write the progress and the tally to FILE instead of the console
+	 *
+	 **/
+
+	private static final int SOUPS_PER_TASK = 16;
+	private static final int SETTLED_WINDOWS = 3;
+
+	private final InfiniteGameOfLife.Backend backend;
+	private final Rule rule;
+	private final int side;
+	private final double density;
+	private final long maxGenerations;
+	private final int cycleWindow;
+	private boolean census;
+	private final SoupTally tally = new SoupTally();
+	private final ThreadLocal<Worker> workers = new ThreadLocal<Worker>() {
+		protected Worker initialValue() {
+			return new Worker();
+		}
+	};
+
+	public SoupSearch(InfiniteGameOfLife.Backend backend, Rule rule, int side, double density, long maxGenerations, int cycleWindow) {
+		/*
+		 * Constructs a search of side x side soups of the given density under the given rule
+		 *
+		 **/
+
+		if (side < 1) {
+			throw new IllegalArgumentException("Soup side must be positive, got " + side);
+		}
+		if (maxGenerations < 1) {
+			throw new IllegalArgumentException("Soups need at least 1 generation, got " + maxGenerations);
+		}
+		if (cycleWindow < 1) {
+			throw new IllegalArgumentException("Soups need a cycle window of at least 1, got " + cycleWindow);
+		}
+		// fail here rather than in every worker
+		new RandomSoup(side, side, density, 0);
+		new CycleDetector(cycleWindow);
+		this.backend = backend;
+		this.rule = rule;
+		this.side = side;
+		this.density = density;
+		this.maxGenerations = maxGenerations;
+		this.cycleWindow = cycleWindow;
+	}
+
+	public void setCensus(boolean census) {
+		/*
+		 * Sets whether every soup's objects are counted once it stopped (see ObjectCensus)
+		 *
+		 **/
+
+		this.census = census;
+	}
+
+	public SoupTally getTally() {
+		/*
+		 * Returns what the search found so far
+		 *
+		 **/
+
+		return tally;
+	}
+
+	public void run(long seed, long soups, int threads, PrintWriter out, double reportEvery) throws InterruptedException {
+		/*
+		 * Runs the soups with seeds seed to seed + soups - 1 on the given number of threads,
+		 * writing progress to out every reportEvery seconds (0 for none) and the tally at the end
+		 *
+		 **/
+
+		if (soups < 0) {
+			throw new IllegalArgumentException("Can't run a negative number of soups: " + soups);
+		}
+		if (threads < 1) {
+			throw new IllegalArgumentException("A search needs at least 1 thread, got " + threads);
+		}
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		long start = System.nanoTime();
+		try {
+			ForkJoinTask<Void> search = pool.submit(new SoupTask(seed, seed + soups));
+			long reportNanos = (long) (reportEvery * 1e9);
+			while (true) {
+				try {
+					if (reportNanos > 0) {
+						search.get(reportNanos, TimeUnit.NANOSECONDS);
+					}
+					else {
+						search.get();
+					}
+					break;
+				}
+				catch (TimeoutException e) {
+					tally.writeProgress(out, (System.nanoTime() - start) / 1e9);
+					out.flush();
+				}
+				catch (ExecutionException e) {
+					throw new IllegalStateException("Soup search failed", e.getCause());
+				}
+			}
+		}
+		finally {
+			pool.shutdownNow();
+		}
+		tally.writeSummary(out, (System.nanoTime() - start) / 1e9);
+		out.flush();
+	}
+
+	private class Worker {
+
+		/*
+		 * What one worker thread keeps from soup to soup: its game and the populations of the
+		 * last generations, SETTLED_WINDOWS + 1 windows of them in a ring
+		 *
+		 **/
+
+		private final InfiniteGameOfLife game = new InfiniteGameOfLife(backend);
+		private final long[] populations = new long[(SETTLED_WINDOWS + 1) * cycleWindow];
+		private final ObjectCensus objects = new ObjectCensus();
+
+		Worker() {
+			game.setRule(rule);
+			game.setCycleDetection(cycleWindow);
+		}
+
+		void runSoup(long seed) {
+			/*
+			 * Runs the soup with the given seed until it repeats, settles or hits the limit
+			 *
+			 **/
+
+			game.clear();
+			game.randomSetup(new int[] {-side / 2, side - side / 2 - 1, -side / 2, side - side / 2 - 1}, density, seed);
+			Cycle cycle = null;
+			boolean settled = false;
+			while (cycle == null && !settled && game.getGen() < maxGenerations) {
+				game.nextGen();
+				cycle = game.getCycle();
+				long gen = game.getGen();
+				populations[(int) (gen % populations.length)] = game.getPopulation();
+				settled = gen % cycleWindow == 0 && gen >= populations.length && populationPeriodic(gen);
+			}
+			if (cycle == null && settled) {
+				tally.addEscaping(game.getGen(), game.getPopulation());
+			}
+			else {
+				tally.add(cycle, game.getGen(), game.getPopulation());
+			}
+			if (census) {
+				tally.addObjects(objects.count(game));
+			}
+		}
+
+		private boolean populationPeriodic(long gen) {
+			/*
+			 * Returns whether the populations of the last SETTLED_WINDOWS windows repeat with
+			 * some period of at most a window
+			 *
+			 **/
+
+			int length = populations.length;
+			int span = SETTLED_WINDOWS * cycleWindow;
+			for (int period = 1; period <= cycleWindow; period++) {
+				int g = 0;
+				while (g < span && populations[(int) ((gen - g) % length)] == populations[(int) ((gen - g - period) % length)]) {
+					g++;
+				}
+				if (g == span) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	private class SoupTask extends RecursiveAction {
+
+		/*
+		 * Runs the soups with seeds in [from, to), splitting the range in half until it's small
+		 *
+		 **/
+
+		private static final long serialVersionUID = 1L;
+
+		private final long from, to;
+
+		SoupTask(long from, long to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from <= SOUPS_PER_TASK) {
+				for (long seed = from; seed < to; seed++) {
+					workers.get().runSoup(seed);
+				}
+				return;
+			}
+			long middle = from + (to - from) / 2;
+			invokeAll(new SoupTask(from, middle), new SoupTask(middle, to));
+		}
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		System.setProperty("java.awt.headless", "true");
+		long soups = 10000;
+		int side = 16;
+		double density = 0.5;
+		long seed = 1;
+		long maxGenerations = 20000;
+		int cycleWindow = 64;
+		Rule rule = Rule.CONWAY;
+		InfiniteGameOfLife.Backend backend = InfiniteGameOfLife.Backend.TILED;
+		int threads = Runtime.getRuntime().availableProcessors();
+		double reportEvery = 1;
+		String outFile = null;
+		String censusOption = "on";
+
+		for (int i = 0; i < args.length; i++) {
+			String option = args[i];
+			if (i + 1 >= args.length) {
+				usage("Missing value for " + option);
+			}
+			String value = args[++i];
+			try {
+				switch (option) {
+					case "--soups": soups = Long.parseLong(value); break;
+					case "--side": side = Integer.parseInt(value); break;
+					case "--density": density = Double.parseDouble(value); break;
+					case "--seed": seed = Long.parseLong(value); break;
+					case "--max-generations": maxGenerations = Long.parseLong(value); break;
+					case "--cycle-window": cycleWindow = Integer.parseInt(value); break;
+					case "--rule": rule = Rule.parse(value); break;
+					case "--backend": backend = InfiniteGameOfLife.Backend.valueOf(value.toUpperCase(Locale.ROOT)); break;
+					case "--threads": threads = Integer.parseInt(value); break;
+					case "--report-every": reportEvery = Double.parseDouble(value); break;
+					case "--out": outFile = value; break;
+					case "--census": censusOption = value; break;
+					default: usage("Unknown option " + option);
+				}
+			}
+			catch (IllegalArgumentException e) {
+				usage(e.getMessage());
+			}
+		}
+
+		if (!censusOption.equals("on") && !censusOption.equals("off")) {
+			usage("--census must be on or off, got " + censusOption);
+		}
+
+		SoupSearch search = null;
+		try {
+			search = new SoupSearch(backend, rule, side, density, maxGenerations, cycleWindow);
+		}
+		catch (IllegalArgumentException e) {
+			usage(e.getMessage());
+		}
+		search.setCensus(censusOption.equals("on"));
+		PrintWriter out = outFile == null ? new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+				: new PrintWriter(Files.newBufferedWriter(Paths.get(outFile), StandardCharsets.UTF_8));
+		System.out.println("searching " + soups + " soups " + side + "x" + side + " density " + density + " from seed " + seed
+				+ ", rule " + rule + ", backend " + backend + ", " + threads + " thread(s)" + (outFile == null ? "" : ", writing to " + outFile));
+		System.out.flush();
+		try {
+			search.run(seed, soups, threads, out, reportEvery);
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	private static void usage(String problem) {
+		/*
+		 * Prints what went wrong and exits
+		 *
+		 **/
+
+		System.err.println(problem);
+		System.err.println("usage: java SoupSearch [--soups N] [--side SIDE] [--density D] [--seed S] [--max-generations N] [--cycle-window N]");
+		System.err.println("       [--rule B3/S23] [--backend CELL_SET|TILED] [--threads T] [--census on|off] [--report-every SECONDS] [--out FILE]");
+		System.exit(2);
+	}
+}
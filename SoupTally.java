@@ -0,0 +1,230 @@
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+public class SoupTally {
+
+	/*
+	 * What a SoupSearch found so far, added to by every worker at once.
+	 *
+	 * Every soup ends up in one of the Results: it died out, settled into a still life or
+	 * an oscillator, turned into something that moves as a whole, settled while sending
+	 * spaceships off (so only its population repeats), or was still changing after the
+	 * generation limit. Next to
+	 * that the tally keeps how many generations the soups took, their final populations
+	 * (as a histogram of powers of two) and the periods of the ones that repeat, and if the
+	 * search takes an ObjectCensus of every soup, how many of each object they left.
+	 *
+	 * All counters are LongAdders, which spread concurrent increments over several cells,
+	 * so workers adding a soup every few hundred microseconds never wait on each other.
+	 * Reading them while the search runs gives numbers that are each up to date but not
+	 * necessarily from the same instant, which is all a progress line needs.
+	 *
+	 **/
+
+	public static final int LISTED_OBJECTS = 40;
+
+	public enum Result {
+		EXTINCT,
+		STILL_LIFE,
+		OSCILLATOR,
+		SPACESHIP,
+		ESCAPING,
+		UNSTABLE
+	}
+
+	private final LongAdder soups = new LongAdder();
+	private final LongAdder generations = new LongAdder();
+	private final LongAdder populations = new LongAdder();
+	private final LongAccumulator maxPopulation = new LongAccumulator(new LongBinaryOperator() {
+		public long applyAsLong(long a, long b) {
+			return Math.max(a, b);
+		}
+	}, 0);
+	private final LongAdder[] results = new LongAdder[Result.values().length];
+	private final AtomicLongArray populationHistogram = new AtomicLongArray(64);
+	private final ConcurrentHashMap<Long, LongAdder> periods = new ConcurrentHashMap<Long, LongAdder>();
+	private final ConcurrentHashMap<String, LongAdder> objects = new ConcurrentHashMap<String, LongAdder>();
+
+	public SoupTally() {
+		/*
+		 * Constructs an empty tally
+		 *
+		 **/
+
+		for (int i = 0; i < results.length; i++) {
+			results[i] = new LongAdder();
+		}
+	}
+
+	public static Result resultOf(Cycle cycle) {
+		/*
+		 * Returns how a soup ended, from the cycle it ran into or null if it never did
+		 *
+		 **/
+
+		if (cycle == null) {
+			return Result.UNSTABLE;
+		}
+		if (cycle.getPopulation() == 0) {
+			return Result.EXTINCT;
+		}
+		switch (cycle.getKind()) {
+			case STILL_LIFE: return Result.STILL_LIFE;
+			case OSCILLATOR: return Result.OSCILLATOR;
+			default: return Result.SPACESHIP;
+		}
+	}
+
+	public void add(Cycle cycle, long generations, long population) {
+		/*
+		 * Adds a soup that ran for the given generations and ended on the given cycle
+		 * (null if it never repeated) with the given population
+		 *
+		 **/
+
+		Result result = resultOf(cycle);
+		add(result, generations, population);
+		if (result != Result.EXTINCT && result != Result.UNSTABLE) {
+			counter(periods, cycle.getPeriod()).increment();
+		}
+	}
+
+	public void addObjects(Map<String, Long> census) {
+		/*
+		 * Adds the objects a soup left, by canonical key (see ObjectCensus.count())
+		 *
+		 **/
+
+		for (Map.Entry<String, Long> entry : census.entrySet()) {
+			counter(objects, entry.getKey()).add(entry.getValue());
+		}
+	}
+
+	public void addEscaping(long generations, long population) {
+		/*
+		 * Adds a soup whose population settled into a period after the given generations
+		 * while the board itself never repeated
+		 *
+		 **/
+
+		add(Result.ESCAPING, generations, population);
+	}
+
+	private void add(Result result, long generations, long population) {
+		soups.increment();
+		this.generations.add(generations);
+		populations.add(population);
+		maxPopulation.accumulate(population);
+		results[result.ordinal()].increment();
+		populationHistogram.incrementAndGet(64 - Long.numberOfLeadingZeros(population));
+	}
+
+	private static <K> LongAdder counter(ConcurrentHashMap<K, LongAdder> counters, K key) {
+		/*
+		 * Returns the counter for key, adding it if there is none yet
+		 *
+		 **/
+
+		LongAdder count = counters.get(key);
+		if (count == null) {
+			LongAdder added = new LongAdder();
+			count = counters.putIfAbsent(key, added);
+			if (count == null) {
+				count = added;
+			}
+		}
+		return count;
+	}
+
+	public long getSoups() {
+		return soups.sum();
+	}
+
+	public long getGenerations() {
+		return generations.sum();
+	}
+
+	public long getCount(Result result) {
+		return results[result.ordinal()].sum();
+	}
+
+	public Map<Long, Long> getPeriods() {
+		/*
+		 * Returns how many soups settled into each period, smallest period first
+		 *
+		 **/
+
+		TreeMap<Long, Long> sorted = new TreeMap<Long, Long>();
+		for (Map.Entry<Long, LongAdder> entry : periods.entrySet()) {
+			sorted.put(entry.getKey(), entry.getValue().sum());
+		}
+		return sorted;
+	}
+
+	public Map<String, Long> getObjects() {
+		/*
+		 * Returns how many of each object the soups left, by canonical key
+		 *
+		 **/
+
+		Map<String, Long> counts = new HashMap<String, Long>();
+		for (Map.Entry<String, LongAdder> entry : objects.entrySet()) {
+			counts.put(entry.getKey(), entry.getValue().sum());
+		}
+		return counts;
+	}
+
+	public void writeProgress(PrintWriter out, double seconds) {
+		/*
+		 * Writes one line with the totals so far, seconds after the search started
+		 *
+		 **/
+
+		long soups = getSoups();
+		out.printf(Locale.ROOT, "seconds=%.1f soups=%d soups_per_sec=%.1f gens_per_sec=%.0f mean_population=%.1f unstable=%d%n",
+				seconds, soups, soups / seconds, getGenerations() / seconds, soups == 0 ? 0.0 : (double) populations.sum() / soups,
+				getCount(Result.UNSTABLE));
+	}
+
+	public void writeSummary(PrintWriter out, double seconds) {
+		/*
+		 * Writes every total as key=value lines, with the population and period histograms
+		 * and the most common objects
+		 *
+		 **/
+
+		long soups = getSoups();
+		out.println("soups=" + soups);
+		out.printf(Locale.ROOT, "seconds=%.3f%n", seconds);
+		out.printf(Locale.ROOT, "soups_per_sec=%.1f%n", soups / seconds);
+		out.println("generations=" + getGenerations());
+		for (Result result : Result.values()) {
+			out.println("result." + result.toString().toLowerCase(Locale.ROOT) + "=" + getCount(result));
+		}
+		out.printf(Locale.ROOT, "mean_population=%.2f%n", soups == 0 ? 0.0 : (double) populations.sum() / soups);
+		out.println("max_population=" + maxPopulation.get());
+		for (int b = 0; b < populationHistogram.length(); b++) {
+			long count = populationHistogram.get(b);
+			if (count != 0) {
+				long low = b == 0 ? 0 : 1L << (b - 1);
+				long high = b == 0 ? 0 : (1L << b) - 1;
+				out.println("population." + low + "-" + high + "=" + count);
+			}
+		}
+		for (Map.Entry<Long, Long> entry : getPeriods().entrySet()) {
+			out.println("period." + entry.getKey() + "=" + entry.getValue());
+		}
+		Map<String, Long> objects = getObjects();
+		if (!objects.isEmpty()) {
+			ObjectCensus.writeSummary(out, objects, LISTED_OBJECTS);
+		}
+	}
+}
@@ -0,0 +1,214 @@
+import java.util.Arrays;
+import java.util.Random;
+
+public class StepBenchmark {
+
+	/*
+	 * Compares the neighbor-count accumulation pass in InfiniteGameOfLife.nextGen()
+	 * against the old algorithm, which recounted the neighbors of every dead
+	 * neighbor of every alive cell.
+	 *
+	 * The old algorithm is kept here (on a CellSet, so only the algorithm differs)
+	 * as the reference. Every generation of the engine is checked cell by cell
+	 * against it before anything is timed, then both are timed separately and the
+	 * number of hash table operations per generation is reported.
+	 * The TILED backend is checked and timed the same way for comparison.
+	 *
+	 *     java StepBenchmark [generations]
+	 *
+	 **/
+
+	private static final int[][] NEIGHBORS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}, {-1, -1}, {1, 1}, {1, -1}, {-1, 1}};
+	private static final int[][] R_PENTOMINO = {{1, 0}, {2, 0}, {0, 1}, {1, 1}, {1, 2}};
+
+	private static long lookups;
+
+	public static void main(String[] args) {
+		int generations = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+
+		System.out.printf("%-14s %8s %10s %14s %14s %12s %12s %12s%n", "workload", "gens", "avg pop", "recount ops", "accum ops", "recount ms", "accum ms", "tiled ms");
+		run("R-pentomino", rPentomino(), 1000);
+		run("soup 256^2", randomSoup(256, 1), generations);
+		run("soup 1024^2", randomSoup(1024, 2), generations);
+	}
+
+	private static void run(String name, long[] seed, int generations) {
+		/*
+		 * Verifies, then times both algorithms on one workload and prints a row
+		 *
+		 **/
+
+		verify(name, seed, generations, InfiniteGameOfLife.Backend.CELL_SET);
+		verify(name, seed, generations, InfiniteGameOfLife.Backend.TILED);
+
+		CellSet reference = new CellSet();
+		for (long cell : seed) {
+			reference.add(cell);
+		}
+		lookups = 0;
+		long population = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < generations; i++) {
+			population += reference.size();
+			reference = recountStep(reference);
+		}
+		double recountMillis = (System.nanoTime() - start) / 1e6 / generations;
+		long recountOps = lookups / generations;
+
+		double accumMillis = time(seed, generations, InfiniteGameOfLife.Backend.CELL_SET);
+		// one counter update for each alive cell itself and one for each of its 8 neighbors
+		long accumOps = 9 * population / generations;
+		double tiledMillis = time(seed, generations, InfiniteGameOfLife.Backend.TILED);
+
+		System.out.printf("%-14s %8d %10d %14d %14d %12.3f %12.3f %12.3f%n", name, generations, population / generations, recountOps, accumOps, recountMillis, accumMillis, tiledMillis);
+	}
+
+	private static double time(long[] seed, int generations, InfiniteGameOfLife.Backend backend) {
+		/*
+		 * Returns milliseconds per generation of the engine on the given backend
+		 *
+		 **/
+
+		InfiniteGameOfLife game = load(seed, backend);
+		long start = System.nanoTime();
+		for (int i = 0; i < generations; i++) {
+			game.nextGen();
+		}
+		return (System.nanoTime() - start) / 1e6 / generations;
+	}
+
+	private static void verify(String name, long[] seed, int generations, InfiniteGameOfLife.Backend backend) {
+		/*
+		 * Steps the engine and the reference side by side and checks every cell that
+		 * could possibly be alive in either one
+		 *
+		 **/
+
+		CellSet reference = new CellSet();
+		for (long cell : seed) {
+			reference.add(cell);
+		}
+		InfiniteGameOfLife game = load(seed, backend);
+		for (int i = 0; i < generations; i++) {
+			// both boards can only grow one cell past the bounds of the current generation
+			int[] bounds = bounds(reference);
+			reference = recountStep(reference);
+			game.nextGen();
+			for (int y = bounds[2] - 1; y <= bounds[3] + 1; y++) {
+				for (int x = bounds[0] - 1; x <= bounds[1] + 1; x++) {
+					if (game.isAlive(x, y) != reference.contains(CellSet.pack(x, y))) {
+						throw new IllegalStateException(name + " (" + backend + "): generation " + (i + 1) + " differs at (" + x + ", " + y + ")");
+					}
+				}
+			}
+		}
+	}
+
+	private static CellSet recountStep(CellSet board) {
+		/*
+		 * The previous nextGen(): counts neighbors of every alive cell and recounts
+		 * the neighbors of every dead neighbor
+		 *
+		 **/
+
+		long[] alive = board.toArray();
+		CellSet next = new CellSet(alive.length);
+		for (long key : alive) {
+			int x = CellSet.unpackX(key);
+			int y = CellSet.unpackY(key);
+			int neighbors = 0;
+			for (int[] shift : NEIGHBORS) {
+				int nx = x + shift[0];
+				int ny = y + shift[1];
+				lookups++;
+				if (board.contains(CellSet.pack(nx, ny))) {
+					neighbors++;
+				}
+				else if (countLivingNeighbors(board, nx, ny) == 3) {
+					next.add(CellSet.pack(nx, ny));
+				}
+			}
+			if (neighbors == 2 || neighbors == 3) {
+				next.add(key);
+			}
+		}
+		return next;
+	}
+
+	private static int countLivingNeighbors(CellSet board, int x, int y) {
+		/*
+		 * Counts alive neighbors of the given cell
+		 *
+		 **/
+
+		int neighbors = 0;
+		for (int[] shift : NEIGHBORS) {
+			lookups++;
+			if (board.contains(CellSet.pack(x + shift[0], y + shift[1]))) {
+				neighbors++;
+			}
+		}
+		return neighbors;
+	}
+
+	private static int[] bounds(CellSet board) {
+		/*
+		 * Returns {minX, maxX, minY, maxY} of the given cells
+		 *
+		 **/
+
+		int[] bounds = {Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE};
+		for (long cell : board.toArray()) {
+			bounds[0] = Math.min(bounds[0], CellSet.unpackX(cell));
+			bounds[1] = Math.max(bounds[1], CellSet.unpackX(cell));
+			bounds[2] = Math.min(bounds[2], CellSet.unpackY(cell));
+			bounds[3] = Math.max(bounds[3], CellSet.unpackY(cell));
+		}
+		return bounds;
+	}
+
+	private static InfiniteGameOfLife load(long[] cells, InfiniteGameOfLife.Backend backend) {
+		/*
+		 * Returns a new game on the given backend with the given cells alive
+		 *
+		 **/
+
+		InfiniteGameOfLife game = new InfiniteGameOfLife(backend);
+		for (long cell : cells) {
+			game.addAliveCell(CellSet.unpackX(cell), CellSet.unpackY(cell));
+		}
+		return game;
+	}
+
+	private static long[] rPentomino() {
+		/*
+		 * Returns the R-pentomino
+		 *
+		 **/
+
+		long[] cells = new long[R_PENTOMINO.length];
+		for (int i = 0; i < cells.length; i++) {
+			cells[i] = CellSet.pack(R_PENTOMINO[i][0], R_PENTOMINO[i][1]);
+		}
+		return cells;
+	}
+
+	private static long[] randomSoup(int side, long seed) {
+		/*
+		 * Returns a side x side soup centered on the origin with each cell alive with probability 1/2
+		 *
+		 **/
+
+		Random random = new Random(seed);
+		long[] cells = new long[side * side];
+		int n = 0;
+		for (int y = -side / 2; y < side - side / 2; y++) {
+			for (int x = -side / 2; x < side - side / 2; x++) {
+				if (random.nextBoolean()) {
+					cells[n++] = CellSet.pack(x, y);
+				}
+			}
+		}
+		return Arrays.copyOf(cells, n);
+	}
+}
@@ -0,0 +1,130 @@
+public class Tile {
+
+	/*
+	 * A 64x64 block of cells used by TiledBoard.
+	 *
+	 * Each row of the block is one long: bit i of rows[r] is the cell at
+	 * (tileX * 64 + i, tileY * 64 + r). next holds the rows being computed for the
+	 * following generation while the neighbor tiles still read rows, and once they are
+	 * swapped it holds the previous generation.
+	 *
+	 * changed and repeats remember whether the tile differs from one generation ago and
+	 * whether it's the same as two generations ago, which TiledBoard uses to skip still
+	 * lifes and period 2 oscillators. A brand new tile is empty and was empty before,
+	 * so it starts out unchanged and repeating.
+	 *
+	 * population, and for a tile that isn't empty the first and last column and row with an
+	 * alive cell (minX, maxX, minY, maxY, counted from the tile's corner), describe rows.
+	 * births counts the cells alive in rows that weren't in the generation before.
+	 *
+	 **/
+
+	public static final int SHIFT = 6;
+	public static final int SIZE = 1 << SHIFT;
+	public static final int MASK = SIZE - 1;
+
+	final int tileX, tileY;
+	final long key;
+	long[] rows;
+	long[] next;
+	int population;
+	int minX, maxX, minY, maxY;
+	int births;
+	// population the board's DensityPyramid has for this tile
+	int counted;
+	boolean changed;
+	boolean repeats = true;
+	boolean edited;
+	int mode;
+
+	public Tile(int tileX, int tileY) {
+		/*
+		 * Constructs a new empty Tile at the given tile coordinates
+		 *
+		 **/
+
+		this(tileX, tileY, new long[SIZE], new long[SIZE]);
+	}
+
+	public Tile(int tileX, int tileY, long[] rows, long[] next) {
+		/*
+		 * Constructs a Tile at the given tile coordinates on rows that are already all dead,
+		 * left over from a tile that was freed (see TileMap)
+		 *
+		 **/
+
+		this.tileX = tileX;
+		this.tileY = tileY;
+		this.key = CellSet.pack(tileX, tileY);
+		this.rows = rows;
+		this.next = next;
+	}
+
+	public static int population(long[] rows) {
+		/*
+		 * Returns number of alive cells in the given tile rows
+		 *
+		 **/
+
+		int population = 0;
+		for (long row : rows) {
+			population += Long.bitCount(row);
+		}
+		return population;
+	}
+
+	public void measure(long[] rows, long[] before) {
+		/*
+		 * Sets population and the extent of the alive cells from the given rows, and births
+		 * from the rows of the generation before (the same rows again after an edit), in the
+		 * same pass that counts them
+		 *
+		 **/
+
+		int count = 0;
+		int born = 0;
+		long columns = 0;
+		int first = -1;
+		int last = -1;
+		for (int r = 0; r < SIZE; r++) {
+			long row = rows[r];
+			if (row != 0) {
+				count += Long.bitCount(row);
+				born += Long.bitCount(row & ~before[r]);
+				columns |= row;
+				if (first < 0) {
+					first = r;
+				}
+				last = r;
+			}
+		}
+		population = count;
+		births = born;
+		minX = Long.numberOfTrailingZeros(columns);
+		maxX = MASK - Long.numberOfLeadingZeros(columns);
+		minY = first;
+		maxY = last;
+	}
+
+	public void markEdited() {
+		/*
+		 * Remembers that cells were set by hand, so this tile's history can't be trusted
+		 *
+		 **/
+
+		changed = true;
+		repeats = false;
+		edited = true;
+	}
+
+	public void swap() {
+		/*
+		 * Makes the computed next generation the current one
+		 *
+		 **/
+
+		long[] old = rows;
+		rows = next;
+		next = old;
+	}
+}
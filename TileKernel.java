@@ -0,0 +1,156 @@
+public class TileKernel {
+
+	/*
+	 * Word-wide Game of Life step for one 64x64 Tile.
+	 *
+	 * Works on three arrays of 66 rows: the tile's 64 rows plus the last row of the
+	 * tile above and the first row of the tile below (the halo). mid holds the cells
+	 * themselves, left holds each row shifted so that bit i is the cell to the left of
+	 * bit i (with the bit from the west tile shifted in), and right the same for the
+	 * cell to the right. For every row the 8 neighbor words are then added up 64 cells
+	 * at a time with bitwise full adders, giving the neighbor count as 4 bit planes
+	 * (ones, twos, fours, eights), and the rules are applied to those planes.
+	 *
+	 * Conway's rule is three operations on the planes. Any other Rule matches the planes
+	 * against each count in its birth and survival masks, which costs a few more
+	 * operations per count but nothing per cell.
+	 *
+	 * The very same operations work on several rows at once with the Vector API, see
+	 * VectorTileKernel. shiftRows() and step() use it when the JVM was started with
+	 * --add-modules jdk.incubator.vector (unless -Dlife.vector=false), and the scalar
+	 * versions below otherwise. Both give exactly the same rows.
+	 *
+	 **/
+
+	public static final int HALO_ROWS = Tile.SIZE + 2;
+	public static final boolean VECTORIZED = vectorKernelLoads();
+
+	private static boolean vectorKernelLoads() {
+		/*
+		 * Returns true if VectorTileKernel can be used, which needs the incubator module at run time
+		 *
+		 **/
+
+		if (!Boolean.parseBoolean(System.getProperty("life.vector", "true"))) {
+			return false;
+		}
+		try {
+			Class.forName("VectorTileKernel");
+			return true;
+		}
+		catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	public static void shiftRows(long[] mid, long[] west, long[] east, long[] left, long[] right) {
+		/*
+		 * Fills left and right from the tile rows and the rows of the tiles beside it
+		 *
+		 **/
+
+		if (VECTORIZED) {
+			VectorTileKernel.shiftRows(mid, west, east, left, right);
+		}
+		else {
+			shiftRowsScalar(mid, west, east, left, right);
+		}
+	}
+
+	public static long step(long[] mid, long[] left, long[] right, long[] out, Rule rule) {
+		/*
+		 * Writes the next generation of the 64 middle rows into out
+		 * Returns the OR of every output row, so 0 means the tile died out
+		 *
+		 **/
+
+		if (VECTORIZED) {
+			return VectorTileKernel.step(mid, left, right, out, rule);
+		}
+		return stepScalar(mid, left, right, out, rule);
+	}
+
+	public static void shiftRowsScalar(long[] mid, long[] west, long[] east, long[] left, long[] right) {
+		/*
+		 * shiftRows() one long at a time
+		 *
+		 **/
+
+		for (int r = 0; r < HALO_ROWS; r++) {
+			left[r] = (mid[r] << 1) | (west[r] >>> 63);
+			right[r] = (mid[r] >>> 1) | (east[r] << 63);
+		}
+	}
+
+	public static long stepScalar(long[] mid, long[] left, long[] right, long[] out, Rule rule) {
+		/*
+		 * step() one long at a time
+		 *
+		 **/
+
+		boolean conway = rule.isConway();
+		int birth = rule.getBirthMask();
+		int survival = rule.getSurvivalMask();
+		long any = 0;
+		for (int r = 0; r < Tile.SIZE; r++) {
+			long a = mid[r], aL = left[r], aR = right[r];
+			long b = mid[r + 1], bL = left[r + 1], bR = right[r + 1];
+			long c = mid[r + 2], cL = left[r + 2], cR = right[r + 2];
+
+			// add up each of the three neighbor rows
+			long sumAbove = a ^ aL ^ aR;
+			long carryAbove = (a & aL) | (aR & (a ^ aL));
+			long sumBelow = c ^ cL ^ cR;
+			long carryBelow = (c & cL) | (cR & (c ^ cL));
+			long sumSides = bL ^ bR;
+			long carrySides = bL & bR;
+
+			// then add the rows together into bit planes of the count
+			long ones = sumAbove ^ sumBelow ^ sumSides;
+			long carryOnes = (sumAbove & sumBelow) | (sumSides & (sumAbove ^ sumBelow));
+			long carries = carryAbove ^ carryBelow ^ carrySides;
+			long carryCarries = (carryAbove & carryBelow) | (carrySides & (carryAbove ^ carryBelow));
+			long twos = carries ^ carryOnes;
+			long fours = carryCarries ^ (carries & carryOnes);
+
+			long next;
+			if (conway) {
+				// alive with 2 or 3 neighbors, or dead with exactly 3 (a count of 10 or 11 is impossible)
+				next = twos & ~fours & (ones | b);
+			}
+			else {
+				long eights = carryCarries & carries & carryOnes;
+				next = applyRule(birth, survival, b, ones, twos, fours, eights);
+			}
+			out[r] = next;
+			any |= next;
+		}
+		return any;
+	}
+
+	private static long applyRule(int birth, int survival, long alive, long ones, long twos, long fours, long eights) {
+		/*
+		 * Returns the next state of 64 cells from their states and the bit planes of their neighbor counts
+		 *
+		 **/
+
+		long next = 0;
+		for (int n = 0; n <= 8; n++) {
+			boolean born = (birth & (1 << n)) != 0;
+			boolean survives = (survival & (1 << n)) != 0;
+			if (!born && !survives) {
+				continue;
+			}
+			long count = ((n & 1) != 0 ? ones : ~ones) & ((n & 2) != 0 ? twos : ~twos)
+					& ((n & 4) != 0 ? fours : ~fours) & ((n & 8) != 0 ? eights : ~eights);
+			if (!born) {
+				count &= alive;
+			}
+			else if (!survives) {
+				count &= ~alive;
+			}
+			next |= count;
+		}
+		return next;
+	}
+}
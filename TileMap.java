@@ -0,0 +1,227 @@
+import java.util.Arrays;
+
+public class TileMap {
+
+	/*
+	 * Sparse map from tile coordinates to Tiles, used by TiledBoard.
+	 *
+	 * Same idea as CellSet: an open-addressing table with linear probing and
+	 * backward-shift deletion. The key is stored inside the Tile itself, so a null
+	 * slot is free and there's no separate keys array.
+	 *
+	 * The rows of tiles that are freed or cleared are kept, up to MAX_SPARE_ROWS arrays,
+	 * and handed to the next tiles created. A board that keeps growing and dying out in
+	 * new places, or that is cleared and filled over and over, then stops allocating
+	 * 1 KB per tile.
+	 *
+	 **/
+
+	private static final int MIN_CAPACITY = 16;
+	private static final int MAX_SPARE_ROWS = 1024;
+
+	private Tile[] table;
+	private int mask;
+	private int size;
+	private long[][] spareRows = new long[MIN_CAPACITY][];
+	private int spares;
+
+	public TileMap() {
+		/*
+		 * Constructs an empty TileMap
+		 *
+		 **/
+
+		table = new Tile[MIN_CAPACITY];
+		mask = MIN_CAPACITY - 1;
+	}
+
+	public Tile get(int tileX, int tileY) {
+		/*
+		 * Returns the tile at given tile coordinates, or null if there is none
+		 *
+		 **/
+
+		long key = CellSet.pack(tileX, tileY);
+		int slot = CellSet.hash(key) & mask;
+		Tile tile;
+		while ((tile = table[slot]) != null) {
+			if (tile.key == key) {
+				return tile;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return null;
+	}
+
+	public Tile getOrCreate(int tileX, int tileY) {
+		/*
+		 * Returns the tile at given tile coordinates, adding an empty one if there is none
+		 *
+		 **/
+
+		long key = CellSet.pack(tileX, tileY);
+		int slot = CellSet.hash(key) & mask;
+		Tile tile;
+		while ((tile = table[slot]) != null) {
+			if (tile.key == key) {
+				return tile;
+			}
+			slot = (slot + 1) & mask;
+		}
+		tile = spares >= 2 ? new Tile(tileX, tileY, spareRows[--spares], spareRows[--spares]) : new Tile(tileX, tileY);
+		table[slot] = tile;
+		if (++size >= table.length >> 1) {
+			rehash(table.length << 1);
+		}
+		return tile;
+	}
+
+	public void remove(Tile tile) {
+		/*
+		 * Removes the given tile from the map
+		 *
+		 **/
+
+		int slot = CellSet.hash(tile.key) & mask;
+		Tile current;
+		while ((current = table[slot]) != null) {
+			if (current == tile) {
+				shiftTiles(slot);
+				size--;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	public void free(Tile tile) {
+		/*
+		 * Removes the given tile, which has to be all dead in both rows and next, and keeps
+		 * its rows for a later tile
+		 *
+		 **/
+
+		remove(tile);
+		keepRows(tile.rows);
+		keepRows(tile.next);
+	}
+
+	public void clear() {
+		/*
+		 * Removes every tile, keeping as many of their rows as there is room for, and the
+		 * table too unless it's much bigger than the spare rows could fill again
+		 *
+		 **/
+
+		for (int slot = 0; slot < table.length; slot++) {
+			Tile tile = table[slot];
+			if (tile != null && spares < MAX_SPARE_ROWS) {
+				Arrays.fill(tile.rows, 0);
+				Arrays.fill(tile.next, 0);
+				keepRows(tile.rows);
+				keepRows(tile.next);
+			}
+			table[slot] = null;
+		}
+		size = 0;
+		if (table.length > MAX_SPARE_ROWS) {
+			table = new Tile[MIN_CAPACITY];
+			mask = MIN_CAPACITY - 1;
+		}
+	}
+
+	private void keepRows(long[] rows) {
+		/*
+		 * Adds all dead rows to the spares if there is room
+		 *
+		 **/
+
+		if (spares == MAX_SPARE_ROWS) {
+			return;
+		}
+		if (spares == spareRows.length) {
+			spareRows = Arrays.copyOf(spareRows, spares * 2);
+		}
+		spareRows[spares++] = rows;
+	}
+
+	public int size() {
+		/*
+		 * Returns number of tiles in the map
+		 *
+		 **/
+
+		return size;
+	}
+
+	public int capacity() {
+		/*
+		 * Returns number of slots in the table
+		 *
+		 **/
+
+		return table.length;
+	}
+
+	public Tile[] toArray() {
+		/*
+		 * Returns every tile in the map, so the map can be changed while looping over them
+		 *
+		 **/
+
+		Tile[] tiles = new Tile[size];
+		int n = 0;
+		for (Tile tile : table) {
+			if (tile != null) {
+				tiles[n++] = tile;
+			}
+		}
+		return tiles;
+	}
+
+	private void shiftTiles(int slot) {
+		/*
+		 * Backward-shift deletion, see CellSet.shiftKeys()
+		 *
+		 **/
+
+		int last;
+		Tile tile;
+		while (true) {
+			last = slot;
+			slot = (slot + 1) & mask;
+			while (true) {
+				if ((tile = table[slot]) == null) {
+					table[last] = null;
+					return;
+				}
+				int home = CellSet.hash(tile.key) & mask;
+				if (last <= slot ? (last >= home || home > slot) : (last >= home && home > slot)) {
+					break;
+				}
+				slot = (slot + 1) & mask;
+			}
+			table[last] = tile;
+		}
+	}
+
+	private void rehash(int newCapacity) {
+		/*
+		 * Moves every tile into a table of the given capacity
+		 *
+		 **/
+
+		Tile[] oldTable = table;
+		table = new Tile[newCapacity];
+		mask = newCapacity - 1;
+		for (Tile tile : oldTable) {
+			if (tile != null) {
+				int slot = CellSet.hash(tile.key) & mask;
+				while (table[slot] != null) {
+					slot = (slot + 1) & mask;
+				}
+				table[slot] = tile;
+			}
+		}
+	}
+}
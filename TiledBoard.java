@@ -0,0 +1,926 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class TiledBoard implements LifeBoard {
+
+	/*
+	 * Board backend that splits the plane into 64x64 Tiles.
+	 *
+	 * Each tile stores its cells as 64 long rows, one bit per cell, and the tiles are
+	 * kept in a sparse TileMap keyed by tile coordinate, so empty space costs nothing.
+	 * A dense area takes about 1 KB per 4096 cells instead of 16+ bytes per alive cell.
+	 *
+	 * step() works a whole tile at a time:
+	 * 1. Every tile with alive cells on an edge makes sure the tile across that edge
+	 *    exists, since births can spill over into it.
+	 * 2. Every tile gathers the bordering rows and columns of its 8 neighbors (the halo)
+	 *    and TileKernel computes the next generation 64 cells per operation.
+	 * 3. The new rows are swapped in and tiles that died out are freed.
+	 *
+	 * Step 2 only reads the current rows of the map and writes each tile's own next rows, so
+	 * with a parallelism above 1 the tiles are split into ranges and computed in a ForkJoinPool.
+	 * Steps 1 and 3 change the map and stay on the calling thread.
+	 *
+	 * Step 2 is also skipped for tiles that can't do anything new. Every tile remembers if it
+	 * changed in the last generation and if it's the same as two generations ago, so:
+	 * - STILL: nothing in the tile or its 8 neighbors changed, so the tile stays as it is.
+	 * - REPLAY: the tile and its neighbors all repeat from two generations ago, so the next
+	 *   generation is the previous one again, which is already sitting in the tile's next rows.
+	 * - COMPUTE: anything else goes through TileKernel.
+	 * That way still lifes and blinkers cost next to nothing and the time spent in step()
+	 * follows the activity instead of the population. Tiles are only freed once they have
+	 * been empty for three generations, so a missing tile is always STILL and REPLAY-safe.
+	 *
+	 * A bounded Topology only costs anything on its edge tiles, the ones with a cell within
+	 * one cell of the edge. Tiles entirely outside are never created. After TileKernel, an
+	 * edge tile has its rows ANDed with a mask of the columns inside and its rows outside
+	 * cleared, so nothing ever lives outside. On a torus, an edge tile's halo also gets the
+	 * cells just outside the edge replaced with the ones they wrap around to, copied a whole
+	 * row at a time above and below and a bit at a time beside it. Since their neighbors
+	 * are on the other side of the torus, edge tiles are always COMPUTE and never freed.
+	 *
+	 * Every tile counts its population and the extent of its alive cells while its next
+	 * rows are being compared anyway (see Tile.measure()), and step 3 already goes over all
+	 * the tiles, so the board's population and exact bounding box come out of that loop for
+	 * free. Cells removed by hand from the edge of the box only mark it stale, and it is
+	 * recomputed from the tile extents when it's asked for.
+	 *
+	 * The DensityPyramid for drawing the board zoomed out is only built once it's asked for.
+	 * From then on step 3 also adds each tile's change in population to it, which is nothing
+	 * for the tiles that didn't change. Edits only mark it stale, and the next call to
+	 * getDensityPyramid() brings it up to date from every tile.
+	 *
+	 **/
+
+	private static final int TILES_PER_TASK = 16;
+	private static final int STILL = 0;
+	private static final int REPLAY = 1;
+	private static final int COMPUTE = 2;
+
+	private TileMap tiles;
+	private Rule rule = Rule.CONWAY;
+	private Topology topology = Topology.PLANE;
+	private boolean bounded;
+	private boolean torus;
+	private int xLow = Integer.MIN_VALUE, xHigh = Integer.MAX_VALUE, yLow = Integer.MIN_VALUE, yHigh = Integer.MAX_VALUE;
+	private ForkJoinPool pool;
+	private long activeCells;
+	private long stepPopulation;
+	private long population;
+	private long births;
+	private int[] bounds;
+	private boolean boundsStale;
+	private DensityPyramid pyramid;
+	private boolean pyramidStale;
+
+	// scratch rows for the halo, reused every tile
+	private long[] mid = new long[TileKernel.HALO_ROWS];
+	private long[] west = new long[TileKernel.HALO_ROWS];
+	private long[] east = new long[TileKernel.HALO_ROWS];
+	private long[] left = new long[TileKernel.HALO_ROWS];
+	private long[] right = new long[TileKernel.HALO_ROWS];
+	private long[] out = new long[Tile.SIZE];
+
+	public TiledBoard() {
+		/*
+		 * Constructs an empty board
+		 *
+		 **/
+
+		tiles = new TileMap();
+	}
+
+	public boolean isAlive(int x, int y) {
+		/*
+		 * Returns true if cell is alive at given location
+		 *
+		 **/
+
+		Tile tile = tiles.get(x >> Tile.SHIFT, y >> Tile.SHIFT);
+		return tile != null && (tile.rows[y & Tile.MASK] & (1L << x)) != 0;
+	}
+
+	public boolean add(int x, int y) {
+		/*
+		 * Makes the cell at given location alive
+		 *
+		 **/
+
+		Tile tile = tiles.getOrCreate(x >> Tile.SHIFT, y >> Tile.SHIFT);
+		long row = tile.rows[y & Tile.MASK];
+		if ((row & (1L << x)) != 0) {
+			return false;
+		}
+		tile.rows[y & Tile.MASK] = row | (1L << x);
+		if (tile.population++ == 0) {
+			tile.minX = tile.maxX = x & Tile.MASK;
+			tile.minY = tile.maxY = y & Tile.MASK;
+		}
+		else {
+			tile.minX = Math.min(tile.minX, x & Tile.MASK);
+			tile.maxX = Math.max(tile.maxX, x & Tile.MASK);
+			tile.minY = Math.min(tile.minY, y & Tile.MASK);
+			tile.maxY = Math.max(tile.maxY, y & Tile.MASK);
+		}
+		tile.markEdited();
+		pyramidStale = true;
+		if (population++ == 0) {
+			bounds = new int[] {x, x, y, y};
+		}
+		else if (bounds != null) {
+			bounds[0] = Math.min(bounds[0], x);
+			bounds[1] = Math.max(bounds[1], x);
+			bounds[2] = Math.min(bounds[2], y);
+			bounds[3] = Math.max(bounds[3], y);
+		}
+		return true;
+	}
+
+	public boolean remove(int x, int y) {
+		/*
+		 * Makes the cell at given location dead
+		 * The tile stays around even if it's empty so its neighbors see the change
+		 *
+		 **/
+
+		Tile tile = tiles.get(x >> Tile.SHIFT, y >> Tile.SHIFT);
+		if (tile == null || (tile.rows[y & Tile.MASK] & (1L << x)) == 0) {
+			return false;
+		}
+		tile.rows[y & Tile.MASK] &= ~(1L << x);
+		tile.measure(tile.rows, tile.rows);
+		tile.markEdited();
+		pyramidStale = true;
+		population--;
+		if (bounds != null && (x == bounds[0] || x == bounds[1] || y == bounds[2] || y == bounds[3])) {
+			boundsStale = true;
+		}
+		return true;
+	}
+
+	public void setRow(int x, int y, long bits, long mask) {
+		/*
+		 * Sets the cells (x + i, y) for every bit i of mask to bit i of bits
+		 * A word not aligned to a tile lands in one row of each of two tiles
+		 *
+		 **/
+
+		int shift = x & Tile.MASK;
+		setTileRow(x >> Tile.SHIFT, y, bits << shift, mask << shift);
+		if (shift != 0 && (mask >>> -shift) != 0) {
+			setTileRow((x >> Tile.SHIFT) + 1, y, bits >>> -shift, mask >>> -shift);
+		}
+	}
+
+	private void setTileRow(int tileX, int y, long bits, long mask) {
+		/*
+		 * Sets the cells of row y of the tile for every bit of mask to the bit of bits,
+		 * keeping the tile's and the board's population and extents up to date
+		 *
+		 **/
+
+		bits &= mask;
+		Tile tile = bits != 0 ? tiles.getOrCreate(tileX, y >> Tile.SHIFT) : tiles.get(tileX, y >> Tile.SHIFT);
+		if (tile == null) {
+			return;
+		}
+		int r = y & Tile.MASK;
+		long old = tile.rows[r];
+		long row = (old & ~mask) | bits;
+		if (row == old) {
+			return;
+		}
+		tile.rows[r] = row;
+		tile.markEdited();
+		pyramidStale = true;
+		long died = old & ~row;
+		long born = row & ~old;
+		int baseX = tileX << Tile.SHIFT;
+		if (died != 0) {
+			tile.measure(tile.rows, tile.rows);
+			population -= Long.bitCount(died);
+			if (bounds != null && (y == bounds[2] || y == bounds[3]
+					|| baseX + Long.numberOfTrailingZeros(died) == bounds[0] || baseX + Tile.MASK - Long.numberOfLeadingZeros(died) == bounds[1])) {
+				boundsStale = true;
+			}
+		}
+		if (born == 0) {
+			return;
+		}
+		int bornLow = Long.numberOfTrailingZeros(born);
+		int bornHigh = Tile.MASK - Long.numberOfLeadingZeros(born);
+		if (died == 0) {
+			if (tile.population == 0) {
+				tile.minX = bornLow;
+				tile.maxX = bornHigh;
+				tile.minY = tile.maxY = r;
+			}
+			else {
+				tile.minX = Math.min(tile.minX, bornLow);
+				tile.maxX = Math.max(tile.maxX, bornHigh);
+				tile.minY = Math.min(tile.minY, r);
+				tile.maxY = Math.max(tile.maxY, r);
+			}
+			tile.population += Long.bitCount(born);
+		}
+		if (population == 0) {
+			bounds = new int[] {baseX + bornLow, baseX + bornHigh, y, y};
+		}
+		else if (bounds != null) {
+			bounds[0] = Math.min(bounds[0], baseX + bornLow);
+			bounds[1] = Math.max(bounds[1], baseX + bornHigh);
+			bounds[2] = Math.min(bounds[2], y);
+			bounds[3] = Math.max(bounds[3], y);
+		}
+		population += Long.bitCount(born);
+	}
+
+	public void reserve(long cells) {
+		/*
+		 * Nothing to do, tiles are allocated as cells land in them
+		 *
+		 **/
+	}
+
+	public void clear() {
+		/*
+		 * Kills every cell, keeping the map and some tile rows for the cells to come
+		 *
+		 **/
+
+		tiles.clear();
+		population = 0;
+		bounds = null;
+		boundsStale = false;
+		pyramid = null;
+		if (torus) {
+			createEdgeTiles();
+		}
+	}
+
+	public LifeBoard copy() {
+		/*
+		 * Returns an independent board with the same alive cells
+		 * Only the current rows are copied, so the copy starts out without any history
+		 *
+		 **/
+
+		TiledBoard copy = new TiledBoard();
+		copy.rule = rule;
+		copy.setTopology(topology);
+		for (Tile tile : tiles.toArray()) {
+			if (tile.population > 0) {
+				Tile copied = copy.tiles.getOrCreate(tile.tileX, tile.tileY);
+				System.arraycopy(tile.rows, 0, copied.rows, 0, Tile.SIZE);
+				copied.measure(copied.rows, copied.rows);
+				copied.markEdited();
+				copied.counted = copied.population;
+			}
+		}
+		if (pyramid != null) {
+			copy.pyramid = getDensityPyramid().copy();
+		}
+		copy.population = population;
+		copy.boundsStale = true;
+		return copy;
+	}
+
+	public void forEachChangedCell(CellVisitor visitor) {
+		/*
+		 * Calls visitor for every cell born or killed by the last step
+		 * Once swapped, a tile's next rows hold the generation before, so the changes are
+		 * the bits where the two differ. STILL tiles weren't swapped and have none.
+		 *
+		 **/
+
+		for (Tile tile : tiles.toArray()) {
+			if (tile.mode == STILL) {
+				continue;
+			}
+			int baseX = tile.tileX << Tile.SHIFT;
+			int baseY = tile.tileY << Tile.SHIFT;
+			for (int r = 0; r < Tile.SIZE; r++) {
+				long row = tile.rows[r] ^ tile.next[r];
+				while (row != 0) {
+					visitor.visit(baseX + Long.numberOfTrailingZeros(row), baseY + r);
+					row &= row - 1;
+				}
+			}
+		}
+	}
+
+	public void forEachAliveCell(CellVisitor visitor) {
+		/*
+		 * Calls visitor for every alive cell
+		 *
+		 **/
+
+		for (Tile tile : tiles.toArray()) {
+			int baseX = tile.tileX << Tile.SHIFT;
+			int baseY = tile.tileY << Tile.SHIFT;
+			for (int r = 0; r < Tile.SIZE; r++) {
+				long row = tile.rows[r];
+				while (row != 0) {
+					visitor.visit(baseX + Long.numberOfTrailingZeros(row), baseY + r);
+					row &= row - 1;
+				}
+			}
+		}
+	}
+
+	public void forEachAliveCellIn(int xLow, int xHigh, int yLow, int yHigh, CellVisitor visitor) {
+		/*
+		 * Calls visitor for every alive cell inside the given bounds
+		 * Only the tiles overlapping the bounds are looked at, and only their alive bits walked
+		 *
+		 **/
+
+		if (xLow > xHigh || yLow > yHigh) {
+			return;
+		}
+		int txLow = xLow >> Tile.SHIFT;
+		int txHigh = xHigh >> Tile.SHIFT;
+		int tyLow = yLow >> Tile.SHIFT;
+		int tyHigh = yHigh >> Tile.SHIFT;
+		long tilesInBounds = ((long) txHigh - txLow + 1) * ((long) tyHigh - tyLow + 1);
+		if (tilesInBounds <= tiles.size()) {
+			for (int ty = tyLow; ty <= tyHigh; ty++) {
+				for (int tx = txLow; tx <= txHigh; tx++) {
+					Tile tile = tiles.get(tx, ty);
+					if (tile != null) {
+						visitTileIn(tile, xLow, xHigh, yLow, yHigh, visitor);
+					}
+				}
+			}
+			return;
+		}
+		for (Tile tile : tiles.toArray()) {
+			if (tile.tileX >= txLow && tile.tileX <= txHigh && tile.tileY >= tyLow && tile.tileY <= tyHigh) {
+				visitTileIn(tile, xLow, xHigh, yLow, yHigh, visitor);
+			}
+		}
+	}
+
+	private static void visitTileIn(Tile tile, int xLow, int xHigh, int yLow, int yHigh, CellVisitor visitor) {
+		/*
+		 * Calls visitor for the alive cells of one tile that are inside the given bounds
+		 *
+		 **/
+
+		int baseX = tile.tileX << Tile.SHIFT;
+		int baseY = tile.tileY << Tile.SHIFT;
+		int rowLow = (int) Math.max((long) yLow - baseY, 0);
+		int rowHigh = (int) Math.min((long) yHigh - baseY, Tile.MASK);
+		int bitLow = (int) Math.max((long) xLow - baseX, 0);
+		int bitHigh = (int) Math.min((long) xHigh - baseX, Tile.MASK);
+		long mask = (-1L << bitLow) & (-1L >>> (Tile.MASK - bitHigh));
+		for (int r = rowLow; r <= rowHigh; r++) {
+			long row = tile.rows[r] & mask;
+			while (row != 0) {
+				visitor.visit(baseX + Long.numberOfTrailingZeros(row), baseY + r);
+				row &= row - 1;
+			}
+		}
+	}
+
+	public long getPopulation() {
+		/*
+		 * Returns how many cells are alive
+		 *
+		 **/
+
+		return population;
+	}
+
+	public int[] getBounds() {
+		/*
+		 * Returns the smallest rectangle holding every alive cell, or null if there are none
+		 * Only goes over the tile extents if a cell on its edge was removed by hand after the last step
+		 *
+		 **/
+
+		if (boundsStale) {
+			bounds = null;
+			for (Tile tile : tiles.toArray()) {
+				include(tile);
+			}
+			boundsStale = false;
+		}
+		return bounds == null ? null : bounds.clone();
+	}
+
+	private void include(Tile tile) {
+		/*
+		 * Grows bounds to hold the alive cells of the tile
+		 *
+		 **/
+
+		if (tile.population == 0) {
+			return;
+		}
+		int baseX = tile.tileX << Tile.SHIFT;
+		int baseY = tile.tileY << Tile.SHIFT;
+		if (bounds == null) {
+			bounds = new int[] {baseX + tile.minX, baseX + tile.maxX, baseY + tile.minY, baseY + tile.maxY};
+			return;
+		}
+		bounds[0] = Math.min(bounds[0], baseX + tile.minX);
+		bounds[1] = Math.max(bounds[1], baseX + tile.maxX);
+		bounds[2] = Math.min(bounds[2], baseY + tile.minY);
+		bounds[3] = Math.max(bounds[3], baseY + tile.maxY);
+	}
+
+	public long getBirths() {
+		/*
+		 * Returns how many cells were born in the last step
+		 *
+		 **/
+
+		return births;
+	}
+
+	public double getTableLoad() {
+		/*
+		 * Returns how full the TileMap is, tiles per slot
+		 *
+		 **/
+
+		return (double) tiles.size() / tiles.capacity();
+	}
+
+	public long getActiveCells() {
+		/*
+		 * Returns how many cells the last step computed (4096 for every COMPUTE tile)
+		 *
+		 **/
+
+		return activeCells;
+	}
+
+	public long getStepPopulation() {
+		/*
+		 * Returns how many cells were alive going into the last step
+		 *
+		 **/
+
+		return stepPopulation;
+	}
+
+	public void step() {
+		/*
+		 * Updates board to the next generation
+		 * See comments at the top of the class for more details
+		 *
+		 **/
+
+		stepPopulation = 0;
+		for (Tile tile : tiles.toArray()) {
+			stepPopulation += tile.population;
+			// a STILL tile can't give birth across its edges
+			if ((torus && isEdge(tile)) || modeOf(tile) != STILL) {
+				addBorderingTiles(tile);
+			}
+		}
+		Tile[] all = tiles.toArray();
+		int computed = 0;
+		for (Tile tile : all) {
+			tile.mode = torus && isEdge(tile) ? COMPUTE : modeOf(tile);
+			if (tile.mode == COMPUTE) {
+				all[computed++] = tile;
+			}
+		}
+		Tile[] toCompute = Arrays.copyOf(all, computed);
+		all = tiles.toArray();
+		if (pool == null) {
+			computeNext(toCompute, 0, computed, mid, west, east, left, right, out);
+		}
+		else {
+			pool.invoke(new TileRangeTask(toCompute, 0, computed));
+		}
+		activeCells = (long) computed * Tile.SIZE * Tile.SIZE;
+		population = 0;
+		births = 0;
+		bounds = null;
+		boundsStale = false;
+		for (Tile tile : all) {
+			if (tile.mode == STILL) {
+				tile.repeats = true;
+			}
+			else {
+				if (tile.mode == REPLAY) {
+					tile.measure(tile.next, tile.rows);
+				}
+				births += tile.births;
+				tile.swap();
+			}
+			population += tile.population;
+			include(tile);
+			recount(tile);
+			// unchanged and repeating, so next is as empty as rows
+			if (tile.population == 0 && !tile.changed && tile.repeats && !(torus && isEdge(tile))) {
+				tiles.free(tile);
+			}
+		}
+		pyramidStale = false;
+	}
+
+	public DensityPyramid getDensityPyramid() {
+		/*
+		 * Returns the populations of the tiles and of the blocks of tiles above them, building
+		 * them the first time and bringing them up to date after edits
+		 *
+		 **/
+
+		if (pyramid == null) {
+			Tile[] all = tiles.toArray();
+			for (Tile tile : all) {
+				tile.counted = tile.population;
+			}
+			pyramid = DensityPyramid.of(all);
+		}
+		else if (pyramidStale) {
+			for (Tile tile : tiles.toArray()) {
+				recount(tile);
+			}
+		}
+		pyramidStale = false;
+		return pyramid;
+	}
+
+	private void recount(Tile tile) {
+		/*
+		 * Adds the change in the tile's population since it was last counted to the pyramid, if there is one
+		 *
+		 **/
+
+		if (pyramid != null && tile.population != tile.counted) {
+			pyramid.add(tile.tileX, tile.tileY, tile.population - tile.counted);
+			tile.counted = tile.population;
+		}
+	}
+
+	private int modeOf(Tile tile) {
+		/*
+		 * Returns whether the tile is STILL, can REPLAY the previous generation or has to COMPUTE
+		 *
+		 **/
+
+		boolean anyChanged = tile.changed;
+		boolean allRepeat = tile.repeats;
+		for (int dy = -1; dy <= 1; dy++) {
+			for (int dx = -1; dx <= 1; dx++) {
+				if (dx == 0 && dy == 0) {
+					continue;
+				}
+				Tile neighbor = tiles.get(tile.tileX + dx, tile.tileY + dy);
+				if (neighbor != null) {
+					anyChanged |= neighbor.changed;
+					allRepeat &= neighbor.repeats;
+				}
+			}
+		}
+		if (!anyChanged) {
+			return STILL;
+		}
+		return allRepeat ? REPLAY : COMPUTE;
+	}
+
+	public void setRule(Rule rule) {
+		/*
+		 * Sets the rule step() uses
+		 * What the tiles remember about the last generations came from the old rule, so
+		 * every tile is computed again on the next step
+		 *
+		 **/
+
+		if (rule.hasB0()) {
+			throw new IllegalArgumentException("A board can't step " + rule + " by itself, see Rule.forBackground()");
+		}
+		if (rule.equals(this.rule)) {
+			return;
+		}
+		this.rule = rule;
+		for (Tile tile : tiles.toArray()) {
+			tile.markEdited();
+		}
+	}
+
+	public void setTopology(Topology topology) {
+		/*
+		 * Sets the topology step() wraps or clips the board to
+		 * Cells near the edges may have new neighbors now, so every tile is computed again
+		 * on the next step
+		 *
+		 **/
+
+		this.topology = topology;
+		bounded = topology.isBounded();
+		torus = topology.getKind() == Topology.Kind.TORUS;
+		int[] bounds = topology.getBounds();
+		xLow = bounds[0];
+		xHigh = bounds[1];
+		yLow = bounds[2];
+		yHigh = bounds[3];
+		for (Tile tile : tiles.toArray()) {
+			// the cells are inside already, so a tile outside can only be empty
+			if (bounded && !overlaps(tile.tileX, tile.tileY)) {
+				recount(tile);
+				tiles.remove(tile);
+			}
+			else {
+				tile.markEdited();
+			}
+		}
+		if (torus) {
+			createEdgeTiles();
+		}
+	}
+
+	private boolean isEdge(Tile tile) {
+		/*
+		 * Returns true if the tile or the cells right around it cross the edge of a bounded topology
+		 *
+		 **/
+
+		long baseX = (long) tile.tileX << Tile.SHIFT;
+		long baseY = (long) tile.tileY << Tile.SHIFT;
+		return bounded && (baseX - 1 < xLow || baseX + Tile.SIZE > xHigh || baseY - 1 < yLow || baseY + Tile.SIZE > yHigh);
+	}
+
+	private boolean overlaps(int tileX, int tileY) {
+		/*
+		 * Returns true if the tile at the given tile coordinates has any cell inside the bounds
+		 *
+		 **/
+
+		long baseX = (long) tileX << Tile.SHIFT;
+		long baseY = (long) tileY << Tile.SHIFT;
+		return baseX <= xHigh && baseX + Tile.MASK >= xLow && baseY <= yHigh && baseY + Tile.MASK >= yLow;
+	}
+
+	private void createTile(int tileX, int tileY) {
+		/*
+		 * Creates the tile at the given tile coordinates unless it's entirely outside the bounds
+		 *
+		 **/
+
+		if (!bounded || overlaps(tileX, tileY)) {
+			tiles.getOrCreate(tileX, tileY);
+		}
+	}
+
+	private void createEdgeTiles() {
+		/*
+		 * Creates every edge tile of the torus, which can be born into from the other side
+		 * at any time
+		 *
+		 **/
+
+		int txLow = xLow >> Tile.SHIFT;
+		int txHigh = xHigh >> Tile.SHIFT;
+		int tyLow = yLow >> Tile.SHIFT;
+		int tyHigh = yHigh >> Tile.SHIFT;
+		for (int tx = txLow; tx <= txHigh; tx++) {
+			tiles.getOrCreate(tx, tyLow);
+			tiles.getOrCreate(tx, tyHigh);
+		}
+		for (int ty = tyLow; ty <= tyHigh; ty++) {
+			tiles.getOrCreate(txLow, ty);
+			tiles.getOrCreate(txHigh, ty);
+		}
+	}
+
+	public void setParallelism(int parallelism) {
+		/*
+		 * Sets how many threads step() may use
+		 *
+		 **/
+
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1, got " + parallelism);
+		}
+		if (pool != null) {
+			pool.shutdown();
+		}
+		pool = parallelism == 1 ? null : new ForkJoinPool(parallelism);
+	}
+
+	private void computeNext(Tile[] all, int from, int to, long[] mid, long[] west, long[] east, long[] left, long[] right, long[] out) {
+		/*
+		 * Computes the next rows of the tiles in all[from, to) using the given scratch rows,
+		 * and whether each one changed and repeats
+		 *
+		 **/
+
+		for (int i = from; i < to; i++) {
+			Tile tile = all[i];
+			gatherHalo(tile, mid, west, east);
+			boolean edge = isEdge(tile);
+			if (edge && torus) {
+				wrapHalo(tile, mid, west, east);
+			}
+			TileKernel.shiftRows(mid, west, east, left, right);
+			TileKernel.step(mid, left, right, out, rule);
+			if (edge) {
+				clipRows(tile, out);
+			}
+			tile.changed = !Arrays.equals(out, tile.rows);
+			// right after an edit the previous generation didn't lead to this one, so it can't repeat
+			tile.repeats = !tile.edited && Arrays.equals(out, tile.next);
+			tile.edited = false;
+			tile.measure(out, tile.rows);
+			System.arraycopy(out, 0, tile.next, 0, Tile.SIZE);
+		}
+	}
+
+	private class TileRangeTask extends RecursiveAction {
+
+		/*
+		 * Computes the next rows of a range of tiles, splitting it in half until it's small
+		 *
+		 **/
+
+		private static final long serialVersionUID = 1L;
+
+		private final Tile[] all;
+		private final int from, to;
+
+		TileRangeTask(Tile[] all, int from, int to) {
+			this.all = all;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from <= TILES_PER_TASK) {
+				computeNext(all, from, to, new long[TileKernel.HALO_ROWS], new long[TileKernel.HALO_ROWS],
+						new long[TileKernel.HALO_ROWS], new long[TileKernel.HALO_ROWS], new long[TileKernel.HALO_ROWS],
+						new long[Tile.SIZE]);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new TileRangeTask(all, from, middle), new TileRangeTask(all, middle, to));
+		}
+	}
+
+	private void addBorderingTiles(Tile tile) {
+		/*
+		 * Creates the neighbor tiles that cells on this tile's edges could give birth into
+		 *
+		 **/
+
+		long top = tile.rows[0];
+		long bottom = tile.rows[Tile.MASK];
+		long all = 0;
+		for (long row : tile.rows) {
+			all |= row;
+		}
+		int tx = tile.tileX;
+		int ty = tile.tileY;
+		if (top != 0) {
+			createTile(tx, ty - 1);
+		}
+		if (bottom != 0) {
+			createTile(tx, ty + 1);
+		}
+		if ((all & 1L) != 0) {
+			createTile(tx - 1, ty);
+		}
+		if ((all >>> 63) != 0) {
+			createTile(tx + 1, ty);
+		}
+		if ((top & 1L) != 0) {
+			createTile(tx - 1, ty - 1);
+		}
+		if ((top >>> 63) != 0) {
+			createTile(tx + 1, ty - 1);
+		}
+		if ((bottom & 1L) != 0) {
+			createTile(tx - 1, ty + 1);
+		}
+		if ((bottom >>> 63) != 0) {
+			createTile(tx + 1, ty + 1);
+		}
+	}
+
+	private void gatherHalo(Tile tile, long[] mid, long[] west, long[] east) {
+		/*
+		 * Copies the tile rows plus the bordering rows of the 8 neighbor tiles into the halo arrays
+		 *
+		 **/
+
+		int tx = tile.tileX;
+		int ty = tile.tileY;
+		fillColumn(mid, tiles.get(tx, ty - 1), tile, tiles.get(tx, ty + 1));
+		fillColumn(west, tiles.get(tx - 1, ty - 1), tiles.get(tx - 1, ty), tiles.get(tx - 1, ty + 1));
+		fillColumn(east, tiles.get(tx + 1, ty - 1), tiles.get(tx + 1, ty), tiles.get(tx + 1, ty + 1));
+	}
+
+	private static void fillColumn(long[] halo, Tile above, Tile center, Tile below) {
+		/*
+		 * Fills one column of halo rows: the last row of above, the rows of center and the first row of below
+		 *
+		 **/
+
+		halo[0] = above == null ? 0 : above.rows[Tile.MASK];
+		if (center == null) {
+			Arrays.fill(halo, 1, Tile.SIZE + 1, 0L);
+		}
+		else {
+			System.arraycopy(center.rows, 0, halo, 1, Tile.SIZE);
+		}
+		halo[Tile.SIZE + 1] = below == null ? 0 : below.rows[0];
+	}
+
+	private void wrapHalo(Tile tile, long[] mid, long[] west, long[] east) {
+		/*
+		 * Replaces the halo cells just outside the torus with the cells they wrap around to
+		 * The rows above and below go first, then the columns beside, which fixes the corners
+		 *
+		 **/
+
+		long baseX = (long) tile.tileX << Tile.SHIFT;
+		long baseY = (long) tile.tileY << Tile.SHIFT;
+		wrapRow(tile.tileX, yLow - 1L - baseY + 1, yHigh, mid, west, east);
+		wrapRow(tile.tileX, yHigh + 1L - baseY + 1, yLow, mid, west, east);
+		wrapColumn(xLow - 1L - baseX, xHigh, baseY, mid, west, east);
+		wrapColumn(xHigh + 1L - baseX, xLow, baseY, mid, west, east);
+	}
+
+	private void wrapRow(int tileX, long haloRow, int from, long[] mid, long[] west, long[] east) {
+		/*
+		 * Copies row from of the tile column and the columns beside it into the given halo row,
+		 * if the tile's halo has that row
+		 *
+		 **/
+
+		if (haloRow < 0 || haloRow >= TileKernel.HALO_ROWS) {
+			return;
+		}
+		int r = (int) haloRow;
+		mid[r] = rowOf(tileX, from);
+		west[r] = rowOf(tileX - 1, from);
+		east[r] = rowOf(tileX + 1, from);
+	}
+
+	private long rowOf(int tileX, int y) {
+		/*
+		 * Returns row y of the tile in the given tile column, 0 if there is no such tile
+		 *
+		 **/
+
+		Tile tile = tiles.get(tileX, y >> Tile.SHIFT);
+		return tile == null ? 0 : tile.rows[y & Tile.MASK];
+	}
+
+	private void wrapColumn(long column, int from, long baseY, long[] mid, long[] west, long[] east) {
+		/*
+		 * Copies column from, wrapped row by row, into the halo column at the given offset
+		 * from the tile's left edge (-1 is the last bit of west, 64 the first bit of east),
+		 * if the tile's halo has that column
+		 *
+		 **/
+
+		long[] halo;
+		int bit;
+		if (column == -1) {
+			halo = west;
+			bit = Tile.MASK;
+		}
+		else if (column == Tile.SIZE) {
+			halo = east;
+			bit = 0;
+		}
+		else if (column >= 0 && column < Tile.SIZE) {
+			halo = mid;
+			bit = (int) column;
+		}
+		else {
+			return;
+		}
+		long height = (long) yHigh - yLow + 1;
+		for (int r = 0; r < TileKernel.HALO_ROWS; r++) {
+			int y = (int) (yLow + Math.floorMod(baseY - 1 + r - yLow, height));
+			long cell = isAlive(from, y) ? 1L << bit : 0;
+			halo[r] = (halo[r] & ~(1L << bit)) | cell;
+		}
+	}
+
+	private void clipRows(Tile tile, long[] out) {
+		/*
+		 * Kills every cell of the computed rows that is outside the bounds
+		 *
+		 **/
+
+		long baseX = (long) tile.tileX << Tile.SHIFT;
+		long baseY = (long) tile.tileY << Tile.SHIFT;
+		int bitLow = (int) Math.max(xLow - baseX, 0);
+		int bitHigh = (int) Math.min(xHigh - baseX, Tile.MASK);
+		long columns = bitLow > bitHigh ? 0 : (-1L << bitLow) & (-1L >>> (Tile.MASK - bitHigh));
+		for (int r = 0; r < Tile.SIZE; r++) {
+			long y = baseY + r;
+			out[r] = y < yLow || y > yHigh ? 0 : out[r] & columns;
+		}
+	}
+}
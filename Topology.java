@@ -0,0 +1,211 @@
+import java.util.Locale;
+
+public final class Topology {
+
+	/*
+	 * The shape of the universe a board lives in.
+	 *
+	 * PLANE is the usual infinite board. A TORUS is a W x H rectangle whose edges are glued
+	 * together, so a glider leaving on the right comes back on the left, and a CLIP is the
+	 * infinite plane with an absorbing rectangle: every cell outside it is dead, so whatever
+	 * crosses its edges just disappears. Both bounded ones cap the board at W * H cells no
+	 * matter what runs on it, which is what a gun or a breeder left running unattended needs.
+	 *
+	 * The backends enforce the topology inside their step loops (see CellSetBoard and
+	 * TiledBoard), so a topology costs a few operations per alive cell or per edge tile,
+	 * never a check on every neighbor. Under a rule with B0 the cells outside a clip
+	 * rectangle follow the background instead of staying dead.
+	 *
+	 **/
+
+	public enum Kind {
+		PLANE,
+		TORUS,
+		CLIP
+	}
+
+	public static final Topology PLANE = new Topology(Kind.PLANE, Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE);
+
+	private final Kind kind;
+	private final int xLow, xHigh, yLow, yHigh;
+	private final long width, height;
+
+	private Topology(Kind kind, int xLow, int xHigh, int yLow, int yHigh) {
+		/*
+		 * Constructs a topology of the given kind over the given inclusive bounds
+		 *
+		 **/
+
+		if (xLow > xHigh || yLow > yHigh) {
+			throw new IllegalArgumentException("A " + kind + " needs at least one cell, got bounds " + xLow + ".." + xHigh + " x " + yLow + ".." + yHigh);
+		}
+		this.kind = kind;
+		this.xLow = xLow;
+		this.xHigh = xHigh;
+		this.yLow = yLow;
+		this.yHigh = yHigh;
+		width = (long) xHigh - xLow + 1;
+		height = (long) yHigh - yLow + 1;
+	}
+
+	public static Topology torus(int[] bounds) {
+		/*
+		 * Returns a torus over the given bounds {xLow, xHigh, yLow, yHigh} (inclusive)
+		 *
+		 **/
+
+		return new Topology(Kind.TORUS, bounds[0], bounds[1], bounds[2], bounds[3]);
+	}
+
+	public static Topology torus(int width, int height) {
+		/*
+		 * Returns a width x height torus centered on the origin, like Patterns.randomSoup()
+		 *
+		 **/
+
+		return torus(centered(width, height));
+	}
+
+	public static Topology clip(int[] bounds) {
+		/*
+		 * Returns the plane clipped to the given bounds {xLow, xHigh, yLow, yHigh} (inclusive)
+		 *
+		 **/
+
+		return new Topology(Kind.CLIP, bounds[0], bounds[1], bounds[2], bounds[3]);
+	}
+
+	public static Topology clip(int width, int height) {
+		/*
+		 * Returns the plane clipped to a width x height rectangle centered on the origin
+		 *
+		 **/
+
+		return clip(centered(width, height));
+	}
+
+	private static int[] centered(int width, int height) {
+		/*
+		 * Returns the bounds of a width x height rectangle centered on the origin
+		 *
+		 **/
+
+		if (width < 1 || height < 1) {
+			throw new IllegalArgumentException("A bounded universe needs a positive size, got " + width + "x" + height);
+		}
+		return new int[] {-width / 2, width - width / 2 - 1, -height / 2, height - height / 2 - 1};
+	}
+
+	public Kind getKind() {
+		/*
+		 * Returns PLANE, TORUS or CLIP
+		 *
+		 **/
+
+		return kind;
+	}
+
+	public boolean isBounded() {
+		/*
+		 * Returns true for a torus or a clip rectangle
+		 *
+		 **/
+
+		return kind != Kind.PLANE;
+	}
+
+	public int[] getBounds() {
+		/*
+		 * Returns {xLow, xHigh, yLow, yHigh} (inclusive), the whole int range for the plane
+		 *
+		 **/
+
+		return new int[] {xLow, xHigh, yLow, yHigh};
+	}
+
+	public long getMaxCells() {
+		/*
+		 * Returns the most cells a board can ever hold, Long.MAX_VALUE for the plane
+		 *
+		 **/
+
+		return isBounded() ? width * height : Long.MAX_VALUE;
+	}
+
+	public boolean contains(int x, int y) {
+		/*
+		 * Returns true if the cell at given location is inside the bounds
+		 *
+		 **/
+
+		return x >= xLow && x <= xHigh && y >= yLow && y <= yHigh;
+	}
+
+	public boolean isOutside(int x, int y) {
+		/*
+		 * Returns true if the cell at given location is outside a clip rectangle and so always
+		 * dead. Never true on the plane or on a torus, where every location is some cell
+		 *
+		 **/
+
+		return kind == Kind.CLIP && !contains(x, y);
+	}
+
+	public int wrapX(int x) {
+		/*
+		 * Returns the column x wraps around to on a torus, x itself otherwise
+		 *
+		 **/
+
+		if (kind != Kind.TORUS || (x >= xLow && x <= xHigh)) {
+			return x;
+		}
+		return (int) (xLow + Math.floorMod((long) x - xLow, width));
+	}
+
+	public int wrapY(int y) {
+		/*
+		 * Returns the row y wraps around to on a torus, y itself otherwise
+		 *
+		 **/
+
+		if (kind != Kind.TORUS || (y >= yLow && y <= yHigh)) {
+			return y;
+		}
+		return (int) (yLow + Math.floorMod((long) y - yLow, height));
+	}
+
+	public boolean equals(Object other) {
+		/*
+		 * Returns true for a topology of the same kind over the same bounds
+		 *
+		 **/
+
+		if (!(other instanceof Topology)) {
+			return false;
+		}
+		Topology topology = (Topology) other;
+		return topology.kind == kind && topology.xLow == xLow && topology.xHigh == xHigh && topology.yLow == yLow && topology.yHigh == yHigh;
+	}
+
+	public int hashCode() {
+		/*
+		 * Returns a hash of the kind and bounds
+		 *
+		 **/
+
+		return 31 * (31 * (31 * (31 * kind.ordinal() + xLow) + xHigh) + yLow) + yHigh;
+	}
+
+	public String toString() {
+		/*
+		 * Returns e.g. "plane" or "torus 256x256 at (-128, -128)"
+		 *
+		 **/
+
+		if (!isBounded()) {
+			return "plane";
+		}
+		return kind.toString().toLowerCase(Locale.ROOT) + " " + width + "x" + height + " at (" + xLow + ", " + yLow + ")";
+	}
+}
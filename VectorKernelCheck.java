@@ -0,0 +1,103 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+public class VectorKernelCheck {
+
+	/*
+	 * Checks VectorTileKernel against the scalar TileKernel code it replaces.
+	 *
+	 * Every tile gets random rows and random rows for the tiles beside it, at densities
+	 * from nearly empty to nearly full, and is run through shiftRows() and step() by both
+	 * kernels under each of several rules: Conway's, which takes the short path, and rules
+	 * that go through the birth and survival masks, B0 ones included. The shifted rows, the
+	 * next generation and the returned OR of the rows all have to be the same, otherwise
+	 * the check throws with the first tile and row that differ.
+	 *
+	 * Needs the Vector API, so run it with the incubator module:
+	 *
+	 *     java --add-modules jdk.incubator.vector VectorKernelCheck [tiles] [seed]
+	 *
+	 **/
+
+	private static final String[] RULES = {"B3/S23", "B36/S23", "B3678/S34678", "B2/S", "B1357/S1357", "B0/S8", "B0123478/S34678", "B/S012345678"};
+
+	public static void main(String[] args) {
+		int tiles = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+		if (!TileKernel.VECTORIZED) {
+			System.err.println("The vector kernel isn't available, run with --add-modules jdk.incubator.vector");
+			System.exit(2);
+		}
+		System.out.println("vector kernel " + VectorTileKernel.describe() + ", " + tiles + " random tiles per rule");
+		for (String name : RULES) {
+			check(Rule.parse(name), tiles, seed);
+			System.out.println(name + ": " + tiles + " tiles agree");
+		}
+	}
+
+	private static void check(Rule rule, int tiles, long seed) {
+		/*
+		 * Runs both kernels on the given number of random tiles and throws on the first difference
+		 *
+		 **/
+
+		SplittableRandom random = new SplittableRandom(seed);
+		int rows = TileKernel.HALO_ROWS;
+		long[] mid = new long[rows], west = new long[rows], east = new long[rows];
+		long[] scalarLeft = new long[rows], scalarRight = new long[rows], scalarOut = new long[Tile.SIZE];
+		long[] vectorLeft = new long[rows], vectorRight = new long[rows], vectorOut = new long[Tile.SIZE];
+		for (int t = 0; t < tiles; t++) {
+			int density = random.nextInt(5);
+			fill(mid, random, density);
+			fill(west, random, density);
+			fill(east, random, density);
+
+			TileKernel.shiftRowsScalar(mid, west, east, scalarLeft, scalarRight);
+			VectorTileKernel.shiftRows(mid, west, east, vectorLeft, vectorRight);
+			compare(rule, t, "left", scalarLeft, vectorLeft);
+			compare(rule, t, "right", scalarRight, vectorRight);
+
+			long scalarAny = TileKernel.stepScalar(mid, scalarLeft, scalarRight, scalarOut, rule);
+			long vectorAny = VectorTileKernel.step(mid, vectorLeft, vectorRight, vectorOut, rule);
+			compare(rule, t, "next generation", scalarOut, vectorOut);
+			if (scalarAny != vectorAny) {
+				throw new IllegalStateException(rule + ": tile " + t + " returns " + Long.toHexString(vectorAny)
+						+ " from the vector kernel, " + Long.toHexString(scalarAny) + " from the scalar one");
+			}
+		}
+	}
+
+	private static void fill(long[] rows, SplittableRandom random, int density) {
+		/*
+		 * Fills rows with random bits, from about 1 in 8 alive (density 0) to all alive (density 4)
+		 *
+		 **/
+
+		for (int r = 0; r < rows.length; r++) {
+			switch (density) {
+				case 0: rows[r] = random.nextLong() & random.nextLong() & random.nextLong(); break;
+				case 1: rows[r] = random.nextLong(); break;
+				case 2: rows[r] = random.nextLong() | random.nextLong(); break;
+				case 3: rows[r] = ~(random.nextLong() & random.nextLong() & random.nextLong() & random.nextLong()); break;
+				default: rows[r] = -1L;
+			}
+		}
+	}
+
+	private static void compare(Rule rule, int tile, String what, long[] scalar, long[] vector) {
+		/*
+		 * Throws if the kernels wrote different rows
+		 *
+		 **/
+
+		if (Arrays.equals(scalar, vector)) {
+			return;
+		}
+		for (int r = 0; r < scalar.length; r++) {
+			if (scalar[r] != vector[r]) {
+				throw new IllegalStateException(rule + ": tile " + tile + " differs in row " + r + " of the " + what + ", vector "
+						+ Long.toHexString(vector[r]) + ", scalar " + Long.toHexString(scalar[r]));
+			}
+		}
+	}
+}
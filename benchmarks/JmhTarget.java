@@ -0,0 +1,92 @@
+import java.awt.Graphics;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+public class JmhTarget implements bench.LifeTarget {
+
+	/*
+	 * Gives the JMH benchmarks in package bench access to the game (see bench.LifeTarget)
+	 *
+	 **/
+
+	private InfiniteGameOfLife game;
+	private InfiniteBoardPanel panel;
+	private long[] mid, west, east;
+	private long[] left = new long[TileKernel.HALO_ROWS];
+	private long[] right = new long[TileKernel.HALO_ROWS];
+	private long[] out = new long[Tile.SIZE];
+
+	public void load(String backend, String workload) {
+		game = new InfiniteGameOfLife(InfiniteGameOfLife.Backend.valueOf(backend));
+		panel = null;
+		long[] cells;
+		if (workload.startsWith("soup")) {
+			cells = Patterns.randomSoup(Integer.parseInt(workload.substring("soup".length())), 0.5, 42);
+		}
+		else {
+			cells = Patterns.named(workload);
+		}
+		Patterns.load(game, cells);
+	}
+
+	public void nextGen() {
+		game.nextGen();
+	}
+
+	public boolean isAlive(int x, int y) {
+		return game.isAlive(x, y);
+	}
+
+	public int countLivingNeighbors(int x, int y) {
+		return game.countLivingNeighbors(x, y);
+	}
+
+	public void clear() {
+		game.clear();
+	}
+
+	public void randomSetup(int[] bounds) {
+		game.randomSetup(bounds);
+	}
+
+	public void randomSetup(int[] bounds, double density, long seed) {
+		game.randomSetup(bounds, density, seed);
+	}
+
+	public void setParallelism(int threads) {
+		game.setParallelism(threads);
+	}
+
+	public void loadKernel(long seed) {
+		SplittableRandom random = new SplittableRandom(seed);
+		mid = random.longs(TileKernel.HALO_ROWS).toArray();
+		west = random.longs(TileKernel.HALO_ROWS).toArray();
+		east = random.longs(TileKernel.HALO_ROWS).toArray();
+	}
+
+	public long stepKernel(boolean vector) {
+		if (vector) {
+			VectorTileKernel.shiftRows(mid, west, east, left, right);
+			return VectorTileKernel.step(mid, left, right, out, Rule.CONWAY);
+		}
+		TileKernel.shiftRowsScalar(mid, west, east, left, right);
+		return TileKernel.stepScalar(mid, left, right, out, Rule.CONWAY);
+	}
+
+	public boolean kernelsAgree() {
+		stepKernel(false);
+		long[] scalar = out.clone();
+		stepKernel(true);
+		return Arrays.equals(scalar, out);
+	}
+
+	public void showIn(int width, int height, int[] bounds) {
+		panel = new InfiniteBoardPanel(game);
+		panel.setSize(width, height);
+		panel.setBoundaries(bounds);
+	}
+
+	public void paint(Graphics g) {
+		panel.paintComponent(g);
+	}
+}
@@ -0,0 +1,79 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Djava.awt.headless=true", "--add-modules=jdk.incubator.vector"})
+public class KernelBenchmark {
+
+	/*
+	 * Cells per nanosecond of one generation of a 64x64 block, 50% alive.
+	 *
+	 * tile runs TileKernel on a tile with random neighbors, with the scalar kernel or
+	 * the Vector API one (kernel parameter), halo shifting included. The setup checks
+	 * that both give the same rows first. cellSet steps the same sized soup on the
+	 * CELL_SET backend, the hash set path the game started out with, reloaded before
+	 * every step so each one starts from the same block. Neither depends on the kernel
+	 * parameter, so its two results are the same measurement twice.
+	 *
+	 **/
+
+	private static final int CELLS = 64 * 64;
+
+	@Param({"scalar", "vector"})
+	public String kernel;
+
+	private LifeTarget target;
+	private boolean vector;
+
+	@Setup
+	public void load() {
+		target = LifeTarget.create();
+		target.loadKernel(42);
+		if (!target.kernelsAgree()) {
+			throw new IllegalStateException("The vector kernel doesn't give the same rows as the scalar one");
+		}
+		vector = kernel.equals("vector");
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(CELLS)
+	public long tile() {
+		return target.stepKernel(vector);
+	}
+
+	@State(Scope.Thread)
+	public static class CellSetSoup {
+
+		LifeTarget target = LifeTarget.create();
+
+		@Setup(Level.Invocation)
+		public void load() {
+			target.load("CELL_SET", "soup64");
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(CELLS)
+	public void cellSet(CellSetSoup soup) {
+		soup.target.nextGen();
+	}
+}
@@ -0,0 +1,66 @@
+package bench;
+
+import java.awt.Graphics;
+
+public interface LifeTarget {
+
+	/*
+	 * The game as seen by the benchmarks.
+	 *
+	 * The game itself lives in the default package, which classes in a named package
+	 * (and JMH insists on one) can't refer to. So every benchmark goes through this
+	 * interface, implemented by JmhTarget in the default package and loaded by name.
+	 * Each benchmark only ever sees that one implementation, so the JIT inlines the
+	 * calls and the indirection doesn't show up in the results.
+	 *
+	 **/
+
+	static LifeTarget create() {
+		try {
+			return (LifeTarget) Class.forName("JmhTarget").getDeclaredConstructor().newInstance();
+		}
+		catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("JmhTarget is missing from the benchmark jar", e);
+		}
+	}
+
+	// Starts a new game on the given backend (CELL_SET or TILED) holding the given workload,
+	// either a pattern name known to Patterns or soupN for an N x N 50% random soup
+	void load(String backend, String workload);
+
+	// Runs one generation
+	void nextGen();
+
+	// Returns true if cell is alive at given location
+	boolean isAlive(int x, int y);
+
+	// Count alive neighbors of cell at given location
+	int countLivingNeighbors(int x, int y);
+
+	// Kills every cell
+	void clear();
+
+	// Randomizes the given bounds {xLow, xHigh, yLow, yHigh}
+	void randomSetup(int[] bounds);
+
+	// Fills the given bounds with a seeded soup of the given density
+	void randomSetup(int[] bounds, double density, long seed);
+
+	// Sets how many threads nextGen() and the seeded soup may use
+	void setParallelism(int threads);
+
+	// Fills a lone tile and the rows around it with random cells for the kernel benchmarks
+	void loadKernel(long seed);
+
+	// Steps that tile once with the scalar or the vector kernel, returns the OR of its rows
+	long stepKernel(boolean vector);
+
+	// Returns true if both kernels give the same next rows for that tile
+	boolean kernelsAgree();
+
+	// Sizes the board panel and sets the bounds it shows
+	void showIn(int width, int height, int[] bounds);
+
+	// Paints the board panel
+	void paint(Graphics g);
+}
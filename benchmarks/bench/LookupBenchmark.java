@@ -0,0 +1,76 @@
+package bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class LookupBenchmark {
+
+	/*
+	 * Lookups per microsecond of isAlive() and countLivingNeighbors() on a 1024x1024
+	 * soup. The probed cells are random points of a slightly bigger square, so about
+	 * half of them fall on alive cells and some fall outside the soup altogether.
+	 *
+	 **/
+
+	private static final int LOOKUPS = 4096;
+	private static final int SIDE = 1024;
+
+	@Param({"CELL_SET", "TILED"})
+	public String backend;
+
+	private LifeTarget target;
+	private int[] xs = new int[LOOKUPS];
+	private int[] ys = new int[LOOKUPS];
+
+	@Setup
+	public void load() {
+		target = LifeTarget.create();
+		target.load(backend, "soup" + SIDE);
+		Random random = new Random(7);
+		for (int i = 0; i < LOOKUPS; i++) {
+			xs[i] = random.nextInt(SIDE + SIDE / 8) - (SIDE + SIDE / 8) / 2;
+			ys[i] = random.nextInt(SIDE + SIDE / 8) - (SIDE + SIDE / 8) / 2;
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public int isAlive() {
+		int alive = 0;
+		for (int i = 0; i < LOOKUPS; i++) {
+			if (target.isAlive(xs[i], ys[i])) {
+				alive++;
+			}
+		}
+		return alive;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LOOKUPS)
+	public int countLivingNeighbors() {
+		int neighbors = 0;
+		for (int i = 0; i < LOOKUPS; i++) {
+			neighbors += target.countLivingNeighbors(xs[i], ys[i]);
+		}
+		return neighbors;
+	}
+}
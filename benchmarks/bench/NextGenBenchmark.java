@@ -0,0 +1,54 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class NextGenBenchmark {
+
+	/*
+	 * Time per nextGen() on the canonical workloads, for each backend.
+	 *
+	 * Every iteration starts over from generation 0, so all iterations (and all runs)
+	 * measure the same stretch of the pattern's history instead of wherever the last
+	 * iteration left off. The small patterns get through their whole interesting
+	 * phase within an iteration, the soups only through their first generations.
+	 *
+	 **/
+
+	@Param({"CELL_SET", "TILED"})
+	public String backend;
+
+	@Param({"rpentomino", "gosper", "acorn", "soup256", "soup1024", "soup4096"})
+	public String workload;
+
+	private LifeTarget target;
+
+	@Setup(Level.Iteration)
+	public void load() {
+		target = LifeTarget.create();
+		target.load(backend, workload);
+	}
+
+	@Benchmark
+	public void nextGen() {
+		target.nextGen();
+	}
+}
@@ -0,0 +1,76 @@
+package bench;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PaintBenchmark {
+
+	/*
+	 * Time for InfiniteBoardPanel.paintComponent() to draw a 1024x1024 soup into an
+	 * offscreen 1200x800 image at three zoom levels:
+	 * - cells:    a few thousand cells, 6 pixels each
+	 * - pixels:   the whole soup, one pixel per cell
+	 * - overview: 8x8 cells per pixel, the soup in a corner of a huge empty window
+	 *
+	 **/
+
+	private static final int WIDTH = 1200;
+	private static final int HEIGHT = 800;
+
+	@Param({"CELL_SET", "TILED"})
+	public String backend;
+
+	@Param({"cells", "pixels", "overview"})
+	public String zoom;
+
+	private LifeTarget target;
+	private BufferedImage image;
+	private Graphics2D graphics;
+
+	@Setup
+	public void load() {
+		target = LifeTarget.create();
+		target.load(backend, "soup1024");
+		int[] bounds;
+		switch (zoom) {
+			case "cells": bounds = new int[] {-100, 99, -66, 66}; break;
+			case "pixels": bounds = new int[] {-600, 599, -400, 399}; break;
+			case "overview": bounds = new int[] {-1024, 8575, -512, 5887}; break;
+			default: throw new IllegalArgumentException("Unknown zoom " + zoom);
+		}
+		target.showIn(WIDTH, HEIGHT, bounds);
+		image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		graphics = image.createGraphics();
+	}
+
+	@TearDown
+	public void dispose() {
+		graphics.dispose();
+	}
+
+	@Benchmark
+	public BufferedImage paint() {
+		target.paint(graphics);
+		return image;
+	}
+}
@@ -0,0 +1,74 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RandomSetupBenchmark {
+
+	/*
+	 * Time for randomSetup() to fill a side x side square of an empty board
+	 * (divide side^2 by it for the fill rate in cells per millisecond)
+	 * seeded() writes the same seeded soup every time, at 50% and 10% density,
+	 * generated on the given number of threads
+	 *
+	 **/
+
+	@Param({"CELL_SET", "TILED"})
+	public String backend;
+
+	@Param({"256", "1024", "4096"})
+	public int side;
+
+	@Param({"1", "4"})
+	public int threads;
+
+	private LifeTarget target;
+	private int[] bounds;
+
+	@Setup
+	public void load() {
+		target = LifeTarget.create();
+		target.load(backend, "rpentomino");
+		target.setParallelism(threads);
+		bounds = new int[] {-side / 2, side - side / 2 - 1, -side / 2, side - side / 2 - 1};
+	}
+
+	@Setup(Level.Invocation)
+	public void clear() {
+		// each call takes milliseconds, so the cost of an invocation level setup is lost in the noise
+		target.clear();
+	}
+
+	@Benchmark
+	public void randomSetup() {
+		target.randomSetup(bounds);
+	}
+
+	@Benchmark
+	public void seeded() {
+		target.randomSetup(bounds, 0.5, 42);
+	}
+
+	@Benchmark
+	public void seededSparse() {
+		target.randomSetup(bounds, 0.1, 42);
+	}
+}
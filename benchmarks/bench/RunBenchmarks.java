@@ -0,0 +1,49 @@
+package bench;
+
+import java.io.IOException;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class RunBenchmarks {
+
+	/*
+	 * Entry point of benchmarks.jar.
+	 *
+	 * Takes the usual JMH command line (benchmark regexps, -p backend=TILED, -f, -rf json, ...)
+	 * but always adds the gc profiler, so every result comes with its allocation rate
+	 * (gc.alloc.rate.norm is bytes allocated per operation) and regressions in garbage
+	 * show up next to regressions in time.
+	 *
+	 *     java -jar target/benchmarks.jar NextGen -p workload=soup1024
+	 *
+	 **/
+
+	public static void main(String[] args) throws RunnerException, IOException {
+		CommandLineOptions commandLine;
+		try {
+			commandLine = new CommandLineOptions(args);
+		}
+		catch (CommandLineOptionException e) {
+			System.err.println("Error parsing command line: " + e.getMessage());
+			System.exit(1);
+			return;
+		}
+		if (commandLine.shouldHelp()) {
+			commandLine.showHelp();
+			return;
+		}
+		Runner runner = new Runner(commandLine);
+		if (commandLine.shouldList()) {
+			runner.list();
+			return;
+		}
+		Options options = new OptionsBuilder().parent(commandLine).addProfiler(GCProfiler.class).build();
+		new Runner(options).run();
+	}
+}